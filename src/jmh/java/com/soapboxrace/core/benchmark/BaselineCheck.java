@@ -0,0 +1,133 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.benchmark;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares a JMH JSON result file against the committed baseline, and fails the build if a benchmark got slower
+ * by more than the allowed ratio. All benchmarks use a time-per-operation mode, so a higher score is worse.
+ * <p>
+ * Usage: {@code BaselineCheck <baseline> <results> <maxRegression> <updateBaseline>}. A missing baseline fails the
+ * check. When updateBaseline is true, the results are merged into the baseline instead: benchmarks that were run
+ * replace their baseline entries, and the others are kept, so that a subset can be re-recorded on its own.
+ */
+public final class BaselineCheck {
+
+    private BaselineCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("Usage: BaselineCheck <baseline> <results> <maxRegression> <updateBaseline>");
+            System.exit(2);
+        }
+
+        Path baselinePath = Paths.get(args[0]);
+        Path resultsPath = Paths.get(args[1]);
+        double maxRegression = Double.parseDouble(args[2]);
+
+        if (Boolean.parseBoolean(args[3])) {
+            Map<String, JsonObject> runs = Files.exists(baselinePath) ? readRuns(baselinePath) : new LinkedHashMap<>();
+            Map<String, JsonObject> results = readRuns(resultsPath);
+            runs.putAll(results);
+            writeRuns(baselinePath, runs);
+            System.out.println("Recorded " + results.size() + " benchmark(s) in " + baselinePath + " ("
+                    + runs.size() + " in total)");
+            return;
+        }
+
+        if (!Files.exists(baselinePath)) {
+            System.err.println("No benchmark baseline in " + baselinePath
+                    + "; record one with -Dbenchmark.updateBaseline=true");
+            System.exit(1);
+        }
+
+        Map<String, Double> baseline = readScores(baselinePath);
+        Map<String, Double> results = readScores(resultsPath);
+        int regressions = 0;
+
+        for (Map.Entry<String, Double> result : results.entrySet()) {
+            Double baselineScore = baseline.get(result.getKey());
+
+            if (baselineScore == null) {
+                System.out.printf("%-90s %12.3f (new)%n", result.getKey(), result.getValue());
+                continue;
+            }
+
+            double change = (result.getValue() - baselineScore) / baselineScore;
+            boolean regressed = change > maxRegression;
+            System.out.printf("%-90s %12.3f %+7.1f%%%s%n", result.getKey(), result.getValue(), change * 100,
+                    regressed ? "  REGRESSION" : "");
+
+            if (regressed) {
+                regressions++;
+            }
+        }
+
+        if (regressions > 0) {
+            System.err.printf("%d benchmark(s) regressed by more than %.0f%% against %s%n", regressions,
+                    maxRegression * 100, baselinePath);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Double> readScores(Path path) throws IOException {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        readRuns(path).forEach((key, run) ->
+                scores.put(key, run.getAsJsonObject("primaryMetric").get("score").getAsDouble()));
+        return scores;
+    }
+
+    /**
+     * Reads the runs of a JMH result file, keyed by benchmark name and parameters.
+     */
+    private static Map<String, JsonObject> readRuns(Path path) throws IOException {
+        Map<String, JsonObject> runs = new LinkedHashMap<>();
+
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            for (JsonElement element : new JsonParser().parse(reader).getAsJsonArray()) {
+                JsonObject run = element.getAsJsonObject();
+                StringBuilder key = new StringBuilder(run.get("benchmark").getAsString());
+
+                if (run.has("params")) {
+                    run.getAsJsonObject("params").entrySet().forEach(param ->
+                            key.append(' ').append(param.getKey()).append('=').append(param.getValue().getAsString()));
+                }
+
+                runs.put(key.toString(), run);
+            }
+        }
+
+        return runs;
+    }
+
+    private static void writeRuns(Path path, Map<String, JsonObject> runs) throws IOException {
+        JsonArray array = new JsonArray();
+        runs.values().forEach(array::add);
+        Files.createDirectories(path.toAbsolutePath().getParent());
+
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(array, writer);
+            writer.write(System.lineSeparator());
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.benchmark;
+
+import com.soapboxrace.core.TestBeans;
+import com.soapboxrace.core.bo.CatalogBO;
+import com.soapboxrace.core.bo.ProductBO;
+import com.soapboxrace.core.bo.util.CatalogSnapshot;
+import com.soapboxrace.core.jpa.CarClassesEntity;
+import com.soapboxrace.core.jpa.ProductEntity;
+import com.soapboxrace.jaxb.http.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Data shared by the benchmarks, loaded from the dumps in {@code sql-new}. Beans are created directly and their
+ * dependencies are set with {@link TestBeans#inject}, since there is no container.
+ */
+public final class BenchmarkFixtures {
+
+    public static final String ACHIEVEMENT_DATA = "sql-new/achievement-data.sql";
+
+    public static final String CATALOG_DATA = "sql-new/catalog-data.sql";
+
+    public static final String CAR_INFO = "sql-new/car-info.sql";
+
+    public static final String EVENT_DATA = "sql-new/event-data.sql";
+
+    private static List<ProductEntity> products;
+
+    private static List<CarClassesEntity> carClasses;
+
+    private BenchmarkFixtures() {
+    }
+
+    public static synchronized List<ProductEntity> products() {
+        if (products == null) {
+            products = SqlDump.toEntities(SqlDump.read(CATALOG_DATA, "PRODUCT"), ProductEntity.class);
+            products.sort(Comparator.comparing(ProductEntity::getId));
+            products.forEach(p -> p.setBundleItems(new ArrayList<>()));
+        }
+
+        return products;
+    }
+
+    public static synchronized List<CarClassesEntity> carClasses() {
+        if (carClasses == null) {
+            carClasses = SqlDump.toEntities(SqlDump.read(CAR_INFO, "CAR_CLASSES"), CarClassesEntity.class);
+        }
+
+        return carClasses;
+    }
+
+    /**
+     * @return a {@link CatalogBO} holding every product and car class
+     */
+    public static CatalogBO catalogBO() {
+        CatalogBO catalogBO = new CatalogBO();
+        TestBeans.inject(catalogBO, "snapshot", new CatalogSnapshot(1L, products(), Collections.emptyList(),
+                Collections.emptyList(), carClasses()));
+        return catalogBO;
+    }
+
+    public static ProductBO productBO() {
+        ProductBO productBO = new ProductBO();
+        TestBeans.inject(productBO, "catalogBO", catalogBO());
+        return productBO;
+    }
+
+    /**
+     * @return a route arbitration packet, as sent by a client finishing a race in first place
+     */
+    public static RouteArbitrationPacket routeArbitrationPacket() {
+        RouteArbitrationPacket packet = new RouteArbitrationPacket();
+        packet.setAlternateEventDurationInMilliseconds(183412L);
+        packet.setCarId(1042L);
+        packet.setEventDurationInMilliseconds(183412L);
+        packet.setFinishReason(22);
+        packet.setHacksDetected(0L);
+        packet.setRank(1);
+        packet.setBestLapDurationInMilliseconds(59871L);
+        packet.setFractionCompleted(1f);
+        packet.setLongestJumpDurationInMilliseconds(1320L);
+        packet.setNumberOfCollisions(4);
+        packet.setPerfectStart(1);
+        packet.setSumOfJumpsDurationInMilliseconds(2840L);
+        packet.setTopSpeed(91.73f);
+
+        ClientPhysicsMetrics physicsMetrics = new ClientPhysicsMetrics();
+        physicsMetrics.setAccelerationAverage(8.24f);
+        physicsMetrics.setAccelerationMaximum(19.91f);
+        physicsMetrics.setAccelerationMedian(7.65f);
+        physicsMetrics.setSpeedAverage(52.11f);
+        physicsMetrics.setSpeedMaximum(91.73f);
+        physicsMetrics.setSpeedMedian(54.02f);
+        packet.setPhysicsMetrics(physicsMetrics);
+        return packet;
+    }
+
+    /**
+     * @param count the number of products
+     * @return the first products of the catalog, the way a catalog response lists them
+     */
+    public static ArrayOfProductTrans productTransList(int count) {
+        ArrayOfProductTrans arrayOfProductTrans = new ArrayOfProductTrans();
+        arrayOfProductTrans.getProductTrans().addAll(productBO().getProductTransList(
+                products().stream().limit(count).collect(Collectors.toList())));
+        return arrayOfProductTrans;
+    }
+
+    /**
+     * @return the achievements packet of a persona with no progress
+     */
+    public static AchievementsPacket achievementsPacket() {
+        Map<String, List<Map<String, String>>> ranksByAchievement = SqlDump.read(ACHIEVEMENT_DATA, "ACHIEVEMENT_RANK")
+                .stream().collect(Collectors.groupingBy(r -> r.get("achievement_id"), LinkedHashMap::new,
+                        Collectors.toList()));
+
+        AchievementsPacket achievementsPacket = new AchievementsPacket();
+        achievementsPacket.setPersonaId(100L);
+        achievementsPacket.setBadges(new ArrayOfBadgeDefinitionPacket());
+        achievementsPacket.setDefinitions(new ArrayOfAchievementDefinitionPacket());
+
+        for (Map<String, String> achievement : SqlDump.read(ACHIEVEMENT_DATA, "ACHIEVEMENT")) {
+            AchievementDefinitionPacket definition = new AchievementDefinitionPacket();
+            definition.setAchievementDefinitionId(Integer.parseInt(achievement.get("ID")));
+            definition.setAchievementRanks(new ArrayOfAchievementRankPacket());
+            definition.setBadgeDefinitionId(Integer.parseInt(achievement.get("badge_definition_id")));
+            definition.setCanProgress(true);
+            definition.setIsVisible("1".equals(achievement.get("visible")));
+            definition.setProgressText(achievement.get("progress_text"));
+            definition.setStatConversion(StatConversion.fromValue(achievement.get("stat_conversion")));
+
+            for (Map<String, String> rank : ranksByAchievement.getOrDefault(achievement.get("ID"),
+                    Collections.emptyList())) {
+                AchievementRankPacket rankPacket = new AchievementRankPacket();
+                rankPacket.setAchievedOn("0001-01-01T00:00:00");
+                rankPacket.setAchievementRankId(Integer.parseInt(rank.get("ID")));
+                rankPacket.setPoints(Short.parseShort(rank.get("points")));
+                rankPacket.setRank(Short.parseShort(rank.get("rank")));
+                rankPacket.setRarity(Float.parseFloat(rank.get("rarity")));
+                rankPacket.setRewardDescription(rank.get("reward_description"));
+                rankPacket.setRewardType(rank.get("reward_type"));
+                rankPacket.setRewardVisualStyle(rank.get("reward_visual_style"));
+                rankPacket.setState(rankPacket.getRank() == 1 ? AchievementState.IN_PROGRESS : AchievementState.LOCKED);
+                rankPacket.setThresholdValue(Long.parseLong(rank.get("threshold_value")));
+                definition.getAchievementRanks().getAchievementRankPacket().add(rankPacket);
+            }
+
+            achievementsPacket.getDefinitions().getAchievementDefinitionPacket().add(definition);
+        }
+
+        for (Map<String, String> badge : SqlDump.read(ACHIEVEMENT_DATA, "badge_definition")) {
+            BadgeDefinitionPacket badgeDefinitionPacket = new BadgeDefinitionPacket();
+            badgeDefinitionPacket.setBackground(badge.get("background"));
+            badgeDefinitionPacket.setBorder(badge.get("border"));
+            badgeDefinitionPacket.setDescription(badge.get("description"));
+            badgeDefinitionPacket.setIcon(badge.get("icon"));
+            badgeDefinitionPacket.setName(badge.get("name"));
+            badgeDefinitionPacket.setBadgeDefinitionId(Integer.parseInt(badge.get("ID")));
+            achievementsPacket.getBadges().getBadgeDefinitionPacket().add(badgeDefinitionPacket);
+        }
+
+        return achievementsPacket;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.benchmark;
+
+import com.soapboxrace.core.TestBeans;
+import com.soapboxrace.core.bo.PerformanceBO;
+import com.soapboxrace.core.jpa.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Car class calculation of a fully upgraded car, against the full catalog.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class CarClassBenchmark {
+
+    private PerformanceBO performanceBO;
+
+    private CustomCarEntity customCarEntity;
+
+    @Setup
+    public void setUp() {
+        performanceBO = new PerformanceBO();
+        TestBeans.inject(performanceBO, "catalogBO", BenchmarkFixtures.catalogBO());
+
+        // a fully upgraded car: one performance part of each of the six types
+        List<ProductEntity> parts = BenchmarkFixtures.products().stream()
+                .filter(p -> "PERFORMANCEPART".equals(p.getProductType()) && p.getHash() != null)
+                .collect(Collectors.groupingBy(ProductEntity::getSubType))
+                .values().stream()
+                .map(l -> l.get(l.size() - 1))
+                .limit(6)
+                .collect(Collectors.toList());
+        Set<PerformancePartEntity> performanceParts = new HashSet<>();
+
+        for (ProductEntity part : parts) {
+            PerformancePartEntity performancePartEntity = new PerformancePartEntity();
+            performancePartEntity.setPerformancePartAttribHash(part.getHash());
+            performanceParts.add(performancePartEntity);
+        }
+
+        OwnedCarEntity ownedCarEntity = new OwnedCarEntity();
+        ownedCarEntity.setDurability(100);
+
+        customCarEntity = new CustomCarEntity();
+        customCarEntity.setPhysicsProfileHash(BenchmarkFixtures.carClasses().get(0).getHash());
+        customCarEntity.setPerformanceParts(performanceParts);
+        customCarEntity.setOwnedCar(ownedCarEntity);
+    }
+
+    @Benchmark
+    public int calcNewCarClass() {
+        performanceBO.calcNewCarClass(customCarEntity);
+        return customCarEntity.getRating();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.benchmark;
+
+import com.soapboxrace.core.bo.ProductBO;
+import com.soapboxrace.core.jpa.ProductEntity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random drop selection, against the full catalog.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class CatalogBenchmark {
+
+    @Param({"PERFORMANCEPART", "POWERUP", "SKILLMODPART", "VISUALPART"})
+    private String dropType;
+
+    private ProductBO productBO;
+
+    @Setup
+    public void setUp() {
+        productBO = BenchmarkFixtures.productBO();
+    }
+
+    @Benchmark
+    public ProductEntity getRandomDrop() {
+        return productBO.getRandomDrop(dropType);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.benchmark;
+
+import com.soapboxrace.core.bo.HwidWriterBO;
+import com.soapboxrace.core.bo.util.LauncherPolicy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The work LaunchFilter does per login: queueing the HWID and checking the launcher policy, with both the
+ * whitelist and the MeTonaTOR protection enabled.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class LaunchFilterBenchmark {
+
+    @Param({"SBRW", "ELECTRON", "JLAUNCHER"})
+    private String launcher;
+
+    private LauncherPolicy policy;
+
+    private HwidWriterBO hwidWriterBO;
+
+    private Map<String, String> headers;
+
+    @Setup
+    public void setUp() {
+        policy = new LauncherPolicy(true, "{\"sbrw\":\"2.1.6.2\",\"electron\":\"1.8.2\"}", true);
+        hwidWriterBO = new HwidWriterBO();
+        headers = new HashMap<>();
+        headers.put("X-HWID", "4A1B2C3D4E5F60718293A4B5C6D7E8F9");
+        headers.put("X-GameLauncherHash", "9F8E7D6C5B4A39281706F5E4D3C2B1A0");
+        headers.put("User-Agent", "GameLauncher (+https://github.com/SoapboxRaceWorld/GameLauncher_NFSW)");
+
+        switch (launcher) {
+            case "SBRW":
+                headers.put("X-UserAgent", "GameLauncherReborn 2.1.6.4 WinForms (+https://github.com/worldunitedgg/GameLauncher_NFSW)");
+                break;
+            case "ELECTRON":
+                headers.put("X-User-Agent", "electron/1.8.2");
+                break;
+            case "JLAUNCHER":
+                break;
+            default:
+                throw new IllegalArgumentException(launcher);
+        }
+    }
+
+    @Benchmark
+    public String filter() {
+        String hwid = headers.get("X-HWID");
+        hwidWriterBO.submit("player@example.com", hwid);
+        return policy.check(headers::get, hwid);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.benchmark;
+
+import com.soapboxrace.core.bo.util.ListDifferences;
+import com.soapboxrace.jaxb.http.CustomVinylTrans;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The vinyl diff done by CommerceBO when a car is customized. A quarter of the vinyls are moved between the
+ * old and the new list, the rest are kept.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class ListDifferencesBenchmark {
+
+    @Param({"10", "50", "200"})
+    private int size;
+
+    private List<CustomVinylTrans> oldVinyls;
+
+    private List<CustomVinylTrans> newVinyls;
+
+    @Setup
+    public void setUp() {
+        oldVinyls = new ArrayList<>(size);
+        newVinyls = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            oldVinyls.add(vinyl(i, i));
+            newVinyls.add(i % 4 == 0 ? vinyl(i, size + i) : vinyl(i, i));
+        }
+    }
+
+    @Benchmark
+    public ListDifferences<CustomVinylTrans> getDifferences() {
+        return ListDifferences.getDifferences(oldVinyls, newVinyls);
+    }
+
+    private static CustomVinylTrans vinyl(int layer, int seed) {
+        CustomVinylTrans customVinylTrans = new CustomVinylTrans();
+        customVinylTrans.setHash(-1_000_000 + seed * 7919);
+        customVinylTrans.setHue1(seed % 360);
+        customVinylTrans.setLayer(layer);
+        customVinylTrans.setRot(seed % 128);
+        customVinylTrans.setSat1(seed % 100);
+        customVinylTrans.setScaleX(7000 + seed);
+        customVinylTrans.setScaleY(7000 - seed);
+        customVinylTrans.setTranX(seed * 3);
+        customVinylTrans.setTranY(-seed * 3);
+        return customVinylTrans;
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.benchmark;
+
+import com.soapboxrace.core.TestBeans;
+import com.soapboxrace.core.bo.*;
+import com.soapboxrace.core.dao.PersonaAchievementRankDAO;
+import com.soapboxrace.core.dao.PersonaBadgeDAO;
+import com.soapboxrace.core.dao.PersonaDAO;
+import com.soapboxrace.core.jpa.*;
+import com.soapboxrace.jaxb.http.ArrayOfBadgePacket;
+import com.soapboxrace.jaxb.http.ArrayOfPersonaBase;
+import com.soapboxrace.jaxb.http.BadgePacket;
+import com.soapboxrace.jaxb.http.PersonaBase;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GetPersonaBaseFromList with 1, 50 and 500 persona IDs, each persona wearing three badges. The database and
+ * Redis are replaced by stubs that burn a fixed amount of CPU per round trip, so the score reflects the number
+ * of round trips as well as the assembly work. The badge view cache is disabled, as for personas that weren't
+ * looked up recently.
+ * <p>
+ * {@code bulk} is the current implementation. {@code perPersona} is the implementation it replaced, on the same
+ * data: for each persona, a lookup by ID, one query for its badges, one query per badge for the highest completed
+ * rank of the badge's achievement, and one presence lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class PersonaBaseBenchmark {
+
+    private static final long ROUND_TRIP_TOKENS = 2_000;
+
+    @Param({"1", "50", "500"})
+    private int size;
+
+    private List<Long> personaIds;
+
+    private PersonaDAO personaDAO;
+
+    private PersonaBadgeDAO personaBadgeDAO;
+
+    private PersonaAchievementRankDAO personaAchievementRankDAO;
+
+    private PresenceBO presenceBO;
+
+    private DriverPersonaBO driverPersonaBO;
+
+    @Setup
+    public void setUp() {
+        Map<Long, PersonaEntity> personas = new HashMap<>();
+        List<Object[]> badgeRanks = new ArrayList<>();
+        Map<Long, List<PersonaBadgeEntity>> badges = new HashMap<>();
+        Map<String, PersonaAchievementRankEntity> highestRanks = new HashMap<>();
+        personaIds = new ArrayList<>(size);
+        UserEntity userEntity = new UserEntity();
+        userEntity.setId(1L);
+
+        for (long personaId = 100; personaId < 100 + size; personaId++) {
+            PersonaEntity personaEntity = new PersonaEntity();
+            personaEntity.setPersonaId(personaId);
+            personaEntity.setName("PERSONA" + personaId);
+            personaEntity.setMotto("motto");
+            personaEntity.setLevel(60);
+            personaEntity.setScore(1000);
+            personaEntity.setUser(userEntity);
+            personas.put(personaId, personaEntity);
+            personaIds.add(personaId);
+
+            for (int slot = 0; slot < 3; slot++) {
+                // two completed ranks per badge, of which the higher one is shown
+                badgeRanks.add(new Object[]{personaId, slot, (long) slot + 1, slot * 10L + 1, 1});
+                badgeRanks.add(new Object[]{personaId, slot, (long) slot + 1, slot * 10L + 2, 2});
+
+                AchievementEntity achievementEntity = new AchievementEntity();
+                achievementEntity.setId((long) slot + 1);
+                BadgeDefinitionEntity badgeDefinitionEntity = new BadgeDefinitionEntity();
+                badgeDefinitionEntity.setId((long) slot + 1);
+                badgeDefinitionEntity.setAchievementEntity(achievementEntity);
+                PersonaBadgeEntity personaBadgeEntity = new PersonaBadgeEntity();
+                personaBadgeEntity.setPersonaEntity(personaEntity);
+                personaBadgeEntity.setBadgeDefinitionEntity(badgeDefinitionEntity);
+                personaBadgeEntity.setSlot(slot);
+                badges.computeIfAbsent(personaId, k -> new ArrayList<>()).add(personaBadgeEntity);
+
+                AchievementRankEntity achievementRankEntity = new AchievementRankEntity();
+                achievementRankEntity.setId(slot * 10L + 2);
+                achievementRankEntity.setAchievementEntity(achievementEntity);
+                achievementRankEntity.setRank(2);
+                // what the empty AchievementRarityBO of the bulk path reports
+                achievementRankEntity.setRarity(0.0f);
+                PersonaAchievementRankEntity personaAchievementRankEntity = new PersonaAchievementRankEntity();
+                personaAchievementRankEntity.setAchievementRankEntity(achievementRankEntity);
+                personaAchievementRankEntity.setState("Completed");
+                highestRanks.put(personaId + "/" + achievementEntity.getId(), personaAchievementRankEntity);
+            }
+        }
+
+        personaDAO = new PersonaDAO() {
+            @Override
+            public PersonaEntity findById(Long id) {
+                Blackhole.consumeCPU(ROUND_TRIP_TOKENS);
+                return personas.get(id);
+            }
+
+            @Override
+            public List<PersonaEntity> findByIds(Collection<Long> ids) {
+                Blackhole.consumeCPU(ROUND_TRIP_TOKENS);
+                List<PersonaEntity> result = new ArrayList<>();
+                ids.forEach(id -> Optional.ofNullable(personas.get(id)).ifPresent(result::add));
+                return result;
+            }
+        };
+
+        personaBadgeDAO = new PersonaBadgeDAO() {
+            @Override
+            public List<PersonaBadgeEntity> findAllBadgesForPersona(Long personaId) {
+                Blackhole.consumeCPU(ROUND_TRIP_TOKENS);
+                return badges.getOrDefault(personaId, Collections.emptyList());
+            }
+
+            @Override
+            public List<Object[]> findCompletedBadgeRanks(Collection<Long> ids) {
+                Blackhole.consumeCPU(ROUND_TRIP_TOKENS);
+                List<Object[]> result = new ArrayList<>();
+                for (Object[] row : badgeRanks) {
+                    if (ids.contains(row[0])) {
+                        result.add(row);
+                    }
+                }
+                return result;
+            }
+        };
+
+        personaAchievementRankDAO = new PersonaAchievementRankDAO() {
+            @Override
+            public PersonaAchievementRankEntity findHighestCompletedRankOfAchievementByPersona(Long personaId,
+                                                                                               Long achievementId) {
+                Blackhole.consumeCPU(ROUND_TRIP_TOKENS);
+                return highestRanks.get(personaId + "/" + achievementId);
+            }
+        };
+
+        presenceBO = new PresenceBO() {
+            @Override
+            public Long getPresence(Long personaId) {
+                Blackhole.consumeCPU(ROUND_TRIP_TOKENS);
+                return 1L;
+            }
+
+            @Override
+            public Map<Long, Long> getPresences(Collection<Long> ids) {
+                Blackhole.consumeCPU(ROUND_TRIP_TOKENS);
+                Map<Long, Long> result = new HashMap<>();
+                ids.forEach(id -> result.put(id, 1L));
+                return result;
+            }
+        };
+
+        ParameterBO parameterBO = new ParameterBO();
+        TestBeans.inject(parameterBO, "parameterMap",
+                new ConcurrentHashMap<>(Collections.singletonMap("BADGE_VIEW_CACHE_SIZE", "0")));
+
+        BadgeViewBO badgeViewBO = new BadgeViewBO();
+        TestBeans.inject(badgeViewBO, "parameterBO", parameterBO);
+        TestBeans.inject(badgeViewBO, "personaBadgeDAO", personaBadgeDAO);
+        TestBeans.inject(badgeViewBO, "achievementRarityBO", new AchievementRarityBO());
+        badgeViewBO.init();
+
+        driverPersonaBO = new DriverPersonaBO();
+        TestBeans.inject(driverPersonaBO, "personaDao", personaDAO);
+        TestBeans.inject(driverPersonaBO, "presenceBO", presenceBO);
+        TestBeans.inject(driverPersonaBO, "badgeViewBO", badgeViewBO);
+    }
+
+    @Benchmark
+    public ArrayOfPersonaBase bulk() {
+        return driverPersonaBO.getPersonaBaseFromList(personaIds);
+    }
+
+    @Benchmark
+    public ArrayOfPersonaBase perPersona() {
+        ArrayOfPersonaBase arrayOfPersonaBase = new ArrayOfPersonaBase();
+        for (Long personaId : personaIds) {
+            PersonaEntity personaEntity = personaDAO.findById(personaId);
+            if (personaEntity == null) {
+                return arrayOfPersonaBase;
+            }
+            PersonaBase personaBase = new PersonaBase();
+            personaBase.setBadges(getBadges(personaId));
+            personaBase.setIconIndex(personaEntity.getIconIndex());
+            personaBase.setLevel(personaEntity.getLevel());
+            personaBase.setMotto(personaEntity.getMotto());
+            personaBase.setName(personaEntity.getName());
+            personaBase.setPresence(presenceBO.getPresence(personaEntity.getPersonaId()));
+            personaBase.setPersonaId(personaEntity.getPersonaId());
+            personaBase.setScore(personaEntity.getScore());
+            personaBase.setUserId(personaEntity.getUser().getId());
+            arrayOfPersonaBase.getPersonaBase().add(personaBase);
+        }
+        return arrayOfPersonaBase;
+    }
+
+    private ArrayOfBadgePacket getBadges(Long personaId) {
+        ArrayOfBadgePacket arrayOfBadgePacket = new ArrayOfBadgePacket();
+
+        for (PersonaBadgeEntity personaBadgeEntity : personaBadgeDAO.findAllBadgesForPersona(personaId)) {
+            PersonaAchievementRankEntity personaAchievementRankEntity =
+                    personaAchievementRankDAO.findHighestCompletedRankOfAchievementByPersona(
+                            personaId, personaBadgeEntity.getBadgeDefinitionEntity().getAchievementEntity().getId());
+            if (personaAchievementRankEntity != null) {
+                BadgePacket badgePacket = new BadgePacket();
+                badgePacket.setAchievementRankId(personaAchievementRankEntity.getAchievementRankEntity().getId().intValue());
+                badgePacket.setBadgeDefinitionId(personaBadgeEntity.getBadgeDefinitionEntity().getId().intValue());
+                badgePacket.setIsRare(personaAchievementRankEntity.getAchievementRankEntity().isRare());
+                badgePacket.setRarity(personaAchievementRankEntity.getAchievementRankEntity().getRarity());
+                badgePacket.setSlotId(personaBadgeEntity.getSlot().shortValue());
+                arrayOfBadgePacket.getBadgePacket().add(badgePacket);
+            }
+        }
+
+        return arrayOfBadgePacket;
+    }
+}
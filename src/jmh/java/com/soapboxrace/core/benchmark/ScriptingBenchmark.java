@@ -0,0 +1,133 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.benchmark;
+
+import com.soapboxrace.core.bo.ScriptingBO;
+import com.soapboxrace.core.bo.util.AchievementEventContext;
+import com.soapboxrace.core.bo.util.AchievementProgressionContext;
+import com.soapboxrace.core.jpa.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.script.ScriptException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of the achievement scripts from {@code achievement-data.sql}, with the bindings that
+ * AchievementBO passes them. One operation evaluates every trigger and value script of the category.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class ScriptingBenchmark {
+
+    @Param({"EVENT", "PROGRESSION"})
+    private String category;
+
+    private ScriptingBO scriptingBO;
+
+    private Map<String, Object> bindings;
+
+    private List<String> scripts;
+
+    @Setup
+    public void setUp() {
+        scriptingBO = new ScriptingBO();
+        scriptingBO.init();
+
+        PersonaEntity personaEntity = new PersonaEntity();
+        personaEntity.setPersonaId(100L);
+        personaEntity.setLevel(42);
+        personaEntity.setScore(1250);
+        personaEntity.setCash(1_500_000);
+
+        PersonaAchievementEntity personaAchievementEntity = new PersonaAchievementEntity();
+        personaAchievementEntity.setCanProgress(true);
+        personaAchievementEntity.setCurrentValue(17L);
+
+        bindings = new HashMap<>();
+        bindings.put("persona", personaEntity);
+        bindings.put("personaAchievement", personaAchievementEntity);
+
+        if ("EVENT".equals(category)) {
+            putEventBindings();
+        } else {
+            bindings.put("progression", new AchievementProgressionContext(25_000, 3_400, 42, 1250, 12,
+                    true, true, true, false));
+        }
+
+        scripts = new ArrayList<>();
+
+        for (Map<String, String> achievement : SqlDump.read(BenchmarkFixtures.ACHIEVEMENT_DATA, "ACHIEVEMENT")) {
+            if (category.equals(achievement.get("category"))) {
+                addScript(achievement.get("update_trigger"));
+                addScript(achievement.get("update_value"));
+            }
+        }
+
+        if (scripts.isEmpty()) {
+            throw new IllegalStateException("No scripts could be evaluated for " + category);
+        }
+    }
+
+    @Benchmark
+    public void eval(Blackhole blackhole) throws ScriptException {
+        for (String script : scripts) {
+            blackhole.consume(scriptingBO.eval(script, bindings));
+        }
+    }
+
+    private void putEventBindings() {
+        EventEntity eventEntity = SqlDump.toEntities(SqlDump.read(BenchmarkFixtures.EVENT_DATA, "EVENT"),
+                EventEntity.class).stream()
+                .filter(e -> e.getEventModeId() == EventMode.CIRCUIT.getEventModeId())
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No circuit event in the event data"));
+
+        LobbyEntity lobbyEntity = new LobbyEntity();
+        lobbyEntity.setIsPrivate(false);
+        lobbyEntity.setEvent(eventEntity);
+
+        EventSessionEntity eventSessionEntity = new EventSessionEntity();
+        eventSessionEntity.setEvent(eventEntity);
+        eventSessionEntity.setLobby(lobbyEntity);
+
+        EventDataEntity eventDataEntity = new EventDataEntity();
+        eventDataEntity.setEvent(eventEntity);
+        eventDataEntity.setEventModeId(eventEntity.getEventModeId());
+        eventDataEntity.setPersonaId(100L);
+        eventDataEntity.setRank(1);
+
+        CarSlotEntity carSlotEntity = new CarSlotEntity();
+        carSlotEntity.setOwnedCar(new OwnedCarEntity());
+
+        bindings.put("event", eventEntity);
+        bindings.put("eventData", eventDataEntity);
+        bindings.put("eventSession", eventSessionEntity);
+        bindings.put("eventContext", new AchievementEventContext(EventMode.fromId(eventEntity.getEventModeId()),
+                BenchmarkFixtures.routeArbitrationPacket(), eventSessionEntity));
+        bindings.put("car", carSlotEntity);
+    }
+
+    private void addScript(String script) {
+        if (script == null || script.trim().isEmpty()) {
+            return;
+        }
+
+        // scripts that need bindings this benchmark does not provide are left out, rather than failing the run
+        try {
+            scriptingBO.eval(script, bindings);
+            scripts.add(script);
+        } catch (ScriptException | RuntimeException e) {
+            System.err.println("Skipping script (" + e.getMessage() + "): " + script);
+        }
+    }
+}
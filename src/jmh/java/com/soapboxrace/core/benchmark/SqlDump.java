@@ -0,0 +1,195 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.benchmark;
+
+import javax.persistence.Column;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Reads the rows of a table from one of the MySQL dumps in {@code sql-new}, so that benchmarks run on the same
+ * data as a real server.
+ */
+public final class SqlDump {
+
+    private SqlDump() {
+    }
+
+    /**
+     * Reads every row of a table.
+     *
+     * @param file  the dump file, relative to the project directory
+     * @param table the table name
+     * @return the rows, as column name to value (NULL becomes {@code null}, and bit literals become "0" or "1")
+     */
+    public static List<Map<String, String>> read(String file, String table) {
+        String sql;
+
+        try {
+            sql = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read " + file + " (benchmarks must run from the project directory)", e);
+        }
+
+        List<Map<String, String>> rows = new ArrayList<>();
+        String marker = "INSERT INTO `" + table + "`";
+        int index = 0;
+
+        while ((index = sql.indexOf(marker, index)) != -1) {
+            int columnsStart = sql.indexOf('(', index);
+            int columnsEnd = sql.indexOf(')', columnsStart);
+            List<String> columns = new ArrayList<>();
+
+            for (String column : sql.substring(columnsStart + 1, columnsEnd).split(",")) {
+                columns.add(column.trim().replace("`", ""));
+            }
+
+            index = parseValues(sql, sql.indexOf("VALUES", columnsEnd) + "VALUES".length(), columns, rows);
+        }
+
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("No rows for " + table + " in " + file);
+        }
+
+        return rows;
+    }
+
+    /**
+     * Creates entities from rows, setting every field whose column is present. Relations are left unset, and so
+     * are fields whose column is NULL.
+     *
+     * @param rows the rows
+     * @param type the entity class
+     * @param <T>  the entity type
+     * @return the entities
+     */
+    public static <T> List<T> toEntities(List<Map<String, String>> rows, Class<T> type) {
+        Map<String, Field> fields = new HashMap<>();
+
+        for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+
+                Column column = field.getAnnotation(Column.class);
+                String name = column != null && !column.name().isEmpty() ? column.name() : field.getName();
+                field.setAccessible(true);
+                fields.putIfAbsent(name.toLowerCase(Locale.ROOT), field);
+            }
+        }
+
+        List<T> entities = new ArrayList<>(rows.size());
+
+        try {
+            for (Map<String, String> row : rows) {
+                T entity = type.getDeclaredConstructor().newInstance();
+
+                for (Map.Entry<String, String> value : row.entrySet()) {
+                    Field field = fields.get(value.getKey().toLowerCase(Locale.ROOT));
+
+                    if (field != null && value.getValue() != null) {
+                        Object converted = convert(value.getValue(), field.getType());
+
+                        if (converted != null) {
+                            field.set(entity, converted);
+                        }
+                    }
+                }
+
+                entities.add(entity);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Cannot create " + type.getSimpleName(), e);
+        }
+
+        return entities;
+    }
+
+    private static Object convert(String value, Class<?> type) {
+        if (type == String.class) {
+            return value;
+        } else if (type == int.class || type == Integer.class) {
+            return Integer.valueOf(value);
+        } else if (type == long.class || type == Long.class) {
+            return Long.valueOf(value);
+        } else if (type == float.class || type == Float.class) {
+            return Float.valueOf(value);
+        } else if (type == double.class || type == Double.class) {
+            return Double.valueOf(value);
+        } else if (type == boolean.class || type == Boolean.class) {
+            return "1".equals(value);
+        }
+
+        return null;
+    }
+
+    private static int parseValues(String sql, int index, List<String> columns, List<Map<String, String>> rows) {
+        Map<String, String> row = null;
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        int column = 0;
+
+        for (; index < sql.length(); index++) {
+            char c = sql.charAt(index);
+
+            if (quoted) {
+                if (c == '\\') {
+                    char next = sql.charAt(++index);
+                    value.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next == 't' ? '\t' : next);
+                } else if (c == '\'' && sql.charAt(index + 1) == '\'') {
+                    value.append('\'');
+                    index++;
+                } else if (c == '\'') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '\'') {
+                quoted = true;
+                wasQuoted = true;
+                value.setLength(0);
+            } else if (c == '(' && row == null) {
+                row = new LinkedHashMap<>();
+                column = 0;
+            } else if ((c == ',' || c == ')') && row != null) {
+                row.put(columns.get(column++), wasQuoted ? value.toString() : toValue(value.toString().trim()));
+                value.setLength(0);
+                wasQuoted = false;
+
+                if (c == ')') {
+                    rows.add(row);
+                    row = null;
+                }
+            } else if (c == ';' && row == null) {
+                return index;
+            } else if (row != null && !wasQuoted) {
+                value.append(c);
+            }
+        }
+
+        return index;
+    }
+
+    private static String toValue(String raw) {
+        if (raw.equalsIgnoreCase("NULL")) {
+            return null;
+        }
+
+        if (raw.startsWith("0x")) {
+            return Long.toString(Long.parseLong(raw.substring(2), 16));
+        }
+
+        return raw;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.benchmark;
+
+import com.soapboxrace.jaxb.http.AchievementsPacket;
+import com.soapboxrace.jaxb.http.ArrayOfProductTrans;
+import com.soapboxrace.jaxb.http.RouteArbitrationPacket;
+import com.soapboxrace.jaxb.util.MarshalXML;
+import com.soapboxrace.jaxb.util.UnmarshalXML;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marshalling of responses and unmarshalling of requests, on payloads of the size the game actually sends.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class XmlBenchmark {
+
+    @Param({"RouteArbitrationPacket", "ProductTrans", "AchievementsPacket"})
+    private String payload;
+
+    private Object object;
+
+    private Class<?> type;
+
+    private String xml;
+
+    @Setup
+    public void setUp() {
+        switch (payload) {
+            case "RouteArbitrationPacket":
+                object = BenchmarkFixtures.routeArbitrationPacket();
+                type = RouteArbitrationPacket.class;
+                break;
+            case "ProductTrans":
+                // the size of a catalog category page
+                object = BenchmarkFixtures.productTransList(200);
+                type = ArrayOfProductTrans.class;
+                break;
+            case "AchievementsPacket":
+                object = BenchmarkFixtures.achievementsPacket();
+                type = AchievementsPacket.class;
+                break;
+            default:
+                throw new IllegalArgumentException(payload);
+        }
+
+        xml = MarshalXML.marshal(object);
+    }
+
+    @Benchmark
+    public String marshal() {
+        return MarshalXML.marshal(object);
+    }
+
+    @Benchmark
+    public Object unMarshal() {
+        return UnmarshalXML.unMarshal(xml, type);
+    }
+}
@@ -7,9 +7,9 @@
 package com.soapboxrace.core.api;
 
 import com.soapboxrace.core.api.util.Secured;
-import com.soapboxrace.core.bo.ProductBO;
-import com.soapboxrace.core.bo.TokenSessionBO;
+import com.soapboxrace.core.bo.*;
 import com.soapboxrace.core.jpa.CategoryEntity;
+import com.soapboxrace.core.jpa.PersonaEntity;
 import com.soapboxrace.core.jpa.ProductEntity;
 import com.soapboxrace.jaxb.http.ArrayOfCategoryTrans;
 import com.soapboxrace.jaxb.http.ArrayOfProductTrans;
@@ -18,7 +18,9 @@ import com.soapboxrace.jaxb.http.ProductTrans;
 
 import javax.ejb.EJB;
 import javax.ws.rs.*;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import java.util.List;
 
 @Path("/catalog")
@@ -30,47 +32,91 @@ public class Catalog {
     @EJB
     private TokenSessionBO tokenBO;
 
+    @EJB
+    private PersonaBO personaBO;
+
+    @EJB
+    private CatalogBO catalogBO;
+
+    @EJB
+    private CatalogResponseCacheBO catalogResponseCacheBO;
+
     @GET
     @Secured
     @Path("/productsInCategory")
     @Produces(MediaType.APPLICATION_XML)
-    public ArrayOfProductTrans productsInCategory(@HeaderParam("securityToken") String securityToken, @QueryParam(
-            "categoryName") String categoryName,
-                                                  @QueryParam("clientProductType") String clientProductType) {
-        ArrayOfProductTrans arrayOfProductTrans = new ArrayOfProductTrans();
-        Long activePersonaId = tokenBO.getActivePersonaId(securityToken);
-        List<ProductEntity> productsInCategory = productBO.productsInCategory(categoryName, clientProductType,
-                activePersonaId);
-        List<ProductTrans> productTransList = productBO.getProductTransList(productsInCategory);
-        arrayOfProductTrans.getProductTrans().addAll(productTransList);
-        return arrayOfProductTrans;
+    public Response productsInCategory(@HeaderParam("securityToken") String securityToken,
+                                       @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+                                       @QueryParam("categoryName") String categoryName,
+                                       @QueryParam("clientProductType") String clientProductType) {
+        PersonaEntity personaEntity = getActivePersona(securityToken);
+        int level = personaEntity == null ? 1 : personaEntity.getLevel();
+        boolean premium = personaEntity != null && personaEntity.getUser().isPremium();
+        String cacheKey = String.format("productsInCategory/%d/%s/%s/%d/%b",
+                catalogBO.getSnapshot().getVersion(), categoryName, clientProductType, level, premium);
+
+        return cachedResponse(acceptEncoding, catalogResponseCacheBO.getGzipped(cacheKey, () -> {
+            ArrayOfProductTrans arrayOfProductTrans = new ArrayOfProductTrans();
+            List<ProductEntity> productsInCategory = productBO.productsInCategory(categoryName, clientProductType,
+                    level, premium);
+            List<ProductTrans> productTransList = productBO.getProductTransList(productsInCategory);
+            arrayOfProductTrans.getProductTrans().addAll(productTransList);
+            return arrayOfProductTrans;
+        }));
     }
 
     @GET
     @Secured
     @Path("/categories")
     @Produces(MediaType.APPLICATION_XML)
-    public ArrayOfCategoryTrans categories(@HeaderParam("securityToken") String securityToken) {
+    public Response categories(@HeaderParam("securityToken") String securityToken,
+                               @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding) {
+        PersonaEntity personaEntity = getActivePersona(securityToken);
+        int level = personaEntity == null ? 1 : personaEntity.getLevel();
+        boolean premium = personaEntity != null && personaEntity.getUser().isPremium();
+        String cacheKey = String.format("categories/%d/%d/%b", catalogBO.getSnapshot().getVersion(), level, premium);
+
+        return cachedResponse(acceptEncoding, catalogResponseCacheBO.getGzipped(cacheKey, () -> {
+            ArrayOfCategoryTrans arrayOfCategoryTrans = new ArrayOfCategoryTrans();
+            List<CategoryEntity> listCategoryEntity = productBO.categories();
+            for (CategoryEntity entity : listCategoryEntity) {
+                CategoryTrans categoryTrans = new CategoryTrans();
+                categoryTrans.setCatalogVersion(Integer.parseInt(entity.getCatalogVersion()));
+                categoryTrans.setDisplayName(entity.getDisplayName());
+                categoryTrans.setFilterType(entity.getFilterType());
+                categoryTrans.setIcon(entity.getIcon());
+                categoryTrans.setId(entity.getIdentifiant().toString());
+                categoryTrans.setLongDescription(entity.getLongDescription());
+                categoryTrans.setName(entity.getName());
+                categoryTrans.setPriority(entity.getPriority());
+                categoryTrans.setProducts(productBO.getVinylByCategory(entity, level, premium));
+                categoryTrans.setShortDescription(entity.getShortDescription());
+                categoryTrans.setShowInNavigationPane(entity.getShowInNavigationPane());
+                categoryTrans.setShowPromoPage(entity.getShowPromoPage());
+                categoryTrans.setWebIcon(entity.getWebIcon());
+                arrayOfCategoryTrans.getCategoryTrans().add(categoryTrans);
+            }
+            return arrayOfCategoryTrans;
+        }));
+    }
+
+    private PersonaEntity getActivePersona(String securityToken) {
         Long activePersonaId = tokenBO.getActivePersonaId(securityToken);
-        ArrayOfCategoryTrans arrayOfCategoryTrans = new ArrayOfCategoryTrans();
-        List<CategoryEntity> listCategoryEntity = productBO.categories();
-        for (CategoryEntity entity : listCategoryEntity) {
-            CategoryTrans categoryTrans = new CategoryTrans();
-            categoryTrans.setCatalogVersion(Integer.parseInt(entity.getCatalogVersion()));
-            categoryTrans.setDisplayName(entity.getDisplayName());
-            categoryTrans.setFilterType(entity.getFilterType());
-            categoryTrans.setIcon(entity.getIcon());
-            categoryTrans.setId(entity.getIdentifiant().toString());
-            categoryTrans.setLongDescription(entity.getLongDescription());
-            categoryTrans.setName(entity.getName());
-            categoryTrans.setPriority(entity.getPriority());
-            categoryTrans.setProducts(productBO.getVinylByCategory(entity, activePersonaId));
-            categoryTrans.setShortDescription(entity.getShortDescription());
-            categoryTrans.setShowInNavigationPane(entity.getShowInNavigationPane());
-            categoryTrans.setShowPromoPage(entity.getShowPromoPage());
-            categoryTrans.setWebIcon(entity.getWebIcon());
-            arrayOfCategoryTrans.getCategoryTrans().add(categoryTrans);
+
+        if (activePersonaId == null || activePersonaId.equals(0L)) {
+            return null;
+        }
+
+        return personaBO.getPersonaById(activePersonaId);
+    }
+
+    private Response cachedResponse(String acceptEncoding, byte[] gzipped) {
+        if (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+            return Response.ok(gzipped).header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
         }
-        return arrayOfCategoryTrans;
+
+        return Response.ok(CatalogResponseCacheBO.gunzip(gzipped))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
     }
 }
@@ -13,17 +13,61 @@ import javax.ejb.EJB;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
-import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.*;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
 
 @Path("/GetServerInformation")
 public class GetServerInformation {
 
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
     @EJB
     private GetServerInformationBO bo;
 
+    @Context
+    private Providers providers;
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public ServerInfoEntity getServerInformation() {
-        return bo.getServerInformation();
+    public Response getServerInformation(@Context Request request) {
+        GetServerInformationBO.RenderedServerInformation rendered = bo.getRendered(this::render);
+
+        if (rendered == null) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
+
+        EntityTag entityTag = new EntityTag(rendered.getEtag());
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+
+        if (notModified != null) {
+            bo.notModified();
+            return notModified.build();
+        }
+
+        return Response.ok(rendered.getBody(), MediaType.APPLICATION_JSON_TYPE).tag(entityTag).build();
+    }
+
+    /**
+     * Renders the server information with the JSON provider that would have written the entity, so the
+     * response is the same as before it was cached.
+     */
+    private byte[] render(ServerInfoEntity serverInfoEntity) {
+        MessageBodyWriter<ServerInfoEntity> writer = providers.getMessageBodyWriter(ServerInfoEntity.class,
+                ServerInfoEntity.class, NO_ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(1024);
+
+        try {
+            writer.writeTo(serverInfoEntity, ServerInfoEntity.class, ServerInfoEntity.class, NO_ANNOTATIONS,
+                    MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), outputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return outputStream.toByteArray();
     }
 }
@@ -0,0 +1,211 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.api;
+
+import com.soapboxrace.core.api.util.PrometheusTextWriter;
+import com.soapboxrace.core.bo.*;
+import com.soapboxrace.core.bo.util.LatencyHistogram;
+import com.soapboxrace.core.bo.util.MetricsRegistry;
+import com.soapboxrace.core.xmpp.OpenFireRestApiCli;
+import com.soapboxrace.core.xmpp.XmppMessageScheduler;
+import com.soapboxrace.jaxb.util.JAXBContextRegistry;
+
+import javax.ejb.EJB;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.util.Map;
+
+/**
+ * Exports the server's metrics in the Prometheus text format. The admin token has to be passed as a bearer token
+ * or as the adminAuth query parameter.
+ */
+@Path("/Metrics")
+public class Metrics {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    @EJB
+    private ParameterBO parameterBO;
+
+    @EJB
+    private RedisBO redisBO;
+
+    @EJB
+    private XmppMessageScheduler xmppMessageScheduler;
+
+    @EJB
+    private OpenFireRestApiCli openFireRestApiCli;
+
+    @EJB
+    private OnlineUsersBO onlineUsersBO;
+
+    @EJB
+    private GetServerInformationBO getServerInformationBO;
+
+    @EJB
+    private LobbyCountdownBO lobbyCountdownBO;
+
+    @EJB
+    private AchievementPipelineBO achievementPipelineBO;
+
+    @EJB
+    private CatalogResponseCacheBO catalogResponseCacheBO;
+
+    @EJB
+    private GeoIpBO geoIpBO;
+
+    @EJB
+    private GarageCacheBO garageCacheBO;
+
+    @EJB
+    private BadgeViewBO badgeViewBO;
+
+    @EJB
+    private PresenceFanoutBO presenceFanoutBO;
+
+    @EJB
+    private FriendGraphBO friendGraphBO;
+
+    @EJB
+    private HwidWriterBO hwidWriterBO;
+
+    @GET
+    public Response metrics(@HeaderParam(HttpHeaders.AUTHORIZATION) String authorization,
+                            @QueryParam("adminAuth") String token) {
+        String adminToken = parameterBO.getStrParam("ADMIN_AUTH");
+
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            token = authorization.substring(BEARER_PREFIX.length());
+        }
+
+        if (adminToken == null || !adminToken.equals(token)) {
+            return Response.status(Response.Status.FORBIDDEN).build();
+        }
+
+        PrometheusTextWriter writer = new PrometheusTextWriter();
+        writeEndpoints(writer);
+        writeTimers(writer);
+        writeQueues(writer);
+
+        return Response.ok(writer.toString(), PrometheusTextWriter.CONTENT_TYPE).build();
+    }
+
+    private void writeEndpoints(PrometheusTextWriter writer) {
+        Map<String, MetricsRegistry.EndpointMetrics> endpoints = MetricsRegistry.getEndpoints();
+
+        writer.family("sbrw_http_request_duration_seconds", "histogram", "Time taken to handle a request, including writing the response");
+        endpoints.forEach((name, endpoint) -> writer.histogram("sbrw_http_request_duration_seconds", endpoint.getLatency(), "endpoint", name));
+
+        writer.family("sbrw_http_response_bytes_total", "counter", "Bytes written in responses");
+        endpoints.forEach((name, endpoint) -> writer.sample("sbrw_http_response_bytes_total", endpoint.getResponseBytes(), "endpoint", name));
+
+        writer.family("sbrw_http_response_bytes_max", "gauge", "Largest response written");
+        endpoints.forEach((name, endpoint) -> writer.sample("sbrw_http_response_bytes_max", endpoint.getMaxResponseBytes(), "endpoint", name));
+
+        writer.family("sbrw_http_engine_errors_total", "counter", "Requests that failed with an engine error code");
+        endpoints.forEach((name, endpoint) -> endpoint.getEngineErrors().forEach((code, count) ->
+                writer.sample("sbrw_http_engine_errors_total", count, "endpoint", name, "code", code.name())));
+
+        writer.family("sbrw_http_server_errors_total", "counter", "5xx responses without an engine error code");
+        endpoints.forEach((name, endpoint) -> writer.sample("sbrw_http_server_errors_total", endpoint.getServerErrors(), "endpoint", name));
+    }
+
+    private void writeTimers(PrometheusTextWriter writer) {
+        writer.family("sbrw_dao_duration_seconds", "histogram", "Time taken by DAO calls");
+        MetricsRegistry.getDaoTimers().forEach((name, timer) -> writer.histogram("sbrw_dao_duration_seconds", timer, "method", name));
+
+        writer.family("sbrw_redis_command_duration_seconds", "histogram", "Time taken by Redis commands");
+        redisBO.getCommandLatencies().forEach((command, timer) -> writer.histogram("sbrw_redis_command_duration_seconds", timer, "command", command));
+
+        for (Map.Entry<String, LatencyHistogram> entry : MetricsRegistry.getTimers().entrySet()) {
+            String name = "sbrw_" + entry.getKey() + "_duration_seconds";
+            writer.family(name, "histogram", "Time taken by " + entry.getKey().replace('_', ' '));
+            writer.histogram(name, entry.getValue());
+        }
+
+        writer.family("sbrw_jaxb_marshal_seconds_total", "counter", "Time spent marshalling responses");
+        JAXBContextRegistry.getTypeStatistics().forEach((type, statistics) ->
+                writer.sample("sbrw_jaxb_marshal_seconds_total", statistics.getMarshalNanos() / 1e9, "type", type.getSimpleName()));
+    }
+
+    private void writeQueues(PrometheusTextWriter writer) {
+        writer.family("sbrw_online_users", "gauge", "Users online, as of the last sample")
+                .sample("sbrw_online_users", onlineUsersBO.getNumberOfUsersOnlineNow());
+        writer.family("sbrw_server_information_polls_total", "counter", "Server information polls")
+                .sample("sbrw_server_information_polls_total", getServerInformationBO.getPollCount());
+        writer.family("sbrw_server_information_renders_total", "counter", "Server information polls that were not served from the cache")
+                .sample("sbrw_server_information_renders_total", getServerInformationBO.getRenderedCount());
+        writer.family("sbrw_server_information_not_modified_total", "counter", "Server information polls answered with 304 Not Modified")
+                .sample("sbrw_server_information_not_modified_total", getServerInformationBO.getNotModifiedCount());
+
+        writer.family("sbrw_xmpp_queue_depth", "gauge", "XMPP messages waiting to be sent")
+                .sample("sbrw_xmpp_queue_depth", xmppMessageScheduler.getQueueDepth());
+        writer.family("sbrw_xmpp_messages_total", "counter", "XMPP messages by outcome")
+                .sample("sbrw_xmpp_messages_total", xmppMessageScheduler.getSentCount(), "outcome", "sent")
+                .sample("sbrw_xmpp_messages_total", xmppMessageScheduler.getFailedCount(), "outcome", "failed")
+                .sample("sbrw_xmpp_messages_total", xmppMessageScheduler.getDroppedCount(), "outcome", "dropped");
+        writer.family("sbrw_openfire_async_queue_depth", "gauge", "OpenFire REST calls waiting for a thread")
+                .sample("sbrw_openfire_async_queue_depth", openFireRestApiCli.getAsyncQueueDepth());
+        writer.family("sbrw_openfire_async_failed_total", "counter", "OpenFire REST calls made in the background that failed")
+                .sample("sbrw_openfire_async_failed_total", openFireRestApiCli.getAsyncFailedCount());
+
+        writer.family("sbrw_lobby_countdowns", "gauge", "Lobbies waiting to be launched")
+                .sample("sbrw_lobby_countdowns", lobbyCountdownBO.getActiveLobbyCount());
+        writer.family("sbrw_lobby_launches_total", "counter", "Lobby launches by outcome")
+                .sample("sbrw_lobby_launches_total", lobbyCountdownBO.getLaunchCount(), "outcome", "launched")
+                .sample("sbrw_lobby_launches_total", lobbyCountdownBO.getFailedLaunchCount(), "outcome", "failed")
+                .sample("sbrw_lobby_launches_total", lobbyCountdownBO.getCancelCount(), "outcome", "cancelled");
+
+        writer.family("sbrw_achievement_pending", "gauge", "Achievement transactions waiting to be processed")
+                .sample("sbrw_achievement_pending", achievementPipelineBO.getPendingCount());
+        writer.family("sbrw_achievement_transactions_total", "counter", "Achievement transactions by outcome")
+                .sample("sbrw_achievement_transactions_total", achievementPipelineBO.getProcessedCount(), "outcome", "processed")
+                .sample("sbrw_achievement_transactions_total", achievementPipelineBO.getRetriedCount(), "outcome", "retried")
+                .sample("sbrw_achievement_transactions_total", achievementPipelineBO.getFailedCount(), "outcome", "failed");
+        writer.family("sbrw_achievement_lag_seconds", "histogram", "Time between an achievement transaction being committed and processed")
+                .histogram("sbrw_achievement_lag_seconds", achievementPipelineBO.getLag());
+
+        writer.family("sbrw_presence_fanout_pending", "gauge", "Personas with a presence update waiting to be sent")
+                .sample("sbrw_presence_fanout_pending", presenceFanoutBO.getPendingCount());
+        writer.family("sbrw_presence_fanout_updates_total", "counter", "Presence updates by outcome")
+                .sample("sbrw_presence_fanout_updates_total", presenceFanoutBO.getProcessedCount(), "outcome", "processed")
+                .sample("sbrw_presence_fanout_updates_total", presenceFanoutBO.getCoalescedCount(), "outcome", "coalesced")
+                .sample("sbrw_presence_fanout_updates_total", presenceFanoutBO.getDroppedCount(), "outcome", "dropped")
+                .sample("sbrw_presence_fanout_updates_total", presenceFanoutBO.getFailedCount(), "outcome", "failed");
+        writer.family("sbrw_presence_fanout_lagging_total", "counter", "Presence updates that waited longer than the lag threshold")
+                .sample("sbrw_presence_fanout_lagging_total", presenceFanoutBO.getLaggingCount());
+        writer.family("sbrw_presence_fanout_messages_total", "counter", "Presence packets handed to the XMPP sender")
+                .sample("sbrw_presence_fanout_messages_total", presenceFanoutBO.getMessageCount());
+        writer.family("sbrw_presence_fanout_lag_seconds", "histogram", "Time between a presence update being received and sent")
+                .histogram("sbrw_presence_fanout_lag_seconds", presenceFanoutBO.getLag());
+        writer.family("sbrw_friend_graph_users", "gauge", "Users in the friend graph index")
+                .sample("sbrw_friend_graph_users", friendGraphBO.getSize());
+
+        writer.family("sbrw_catalog_cache_hit_ratio", "gauge", "Hit ratio of the catalog response cache")
+                .sample("sbrw_catalog_cache_hit_ratio", catalogResponseCacheBO.getHitRatio());
+        writer.family("sbrw_catalog_cache_bytes_served_total", "counter", "Bytes served from the catalog response cache")
+                .sample("sbrw_catalog_cache_bytes_served_total", catalogResponseCacheBO.getBytesServed());
+        writer.family("sbrw_garage_cache_hit_ratio", "gauge", "Hit ratio of the garage response cache")
+                .sample("sbrw_garage_cache_hit_ratio", garageCacheBO.getHitRatio());
+        writer.family("sbrw_garage_cache_bytes", "gauge", "Size of the responses in the garage response cache")
+                .sample("sbrw_garage_cache_bytes", garageCacheBO.getCachedBytes());
+        writer.family("sbrw_garage_cache_entries", "gauge", "Responses in the garage response cache")
+                .sample("sbrw_garage_cache_entries", garageCacheBO.getSize());
+        writer.family("sbrw_badge_view_hit_ratio", "gauge", "Hit ratio of the persona badge view cache")
+                .sample("sbrw_badge_view_hit_ratio", badgeViewBO.getHitRatio());
+        writer.family("sbrw_hwid_pending", "gauge", "HWID updates waiting to be written")
+                .sample("sbrw_hwid_pending", hwidWriterBO.getPendingCount());
+        writer.family("sbrw_hwid_written_total", "counter", "HWID updates written")
+                .sample("sbrw_hwid_written_total", hwidWriterBO.getWrittenCount());
+        writer.family("sbrw_geoip_cache_hit_ratio", "gauge", "Hit ratio of the GeoIP lookup cache")
+                .sample("sbrw_geoip_cache_hit_ratio", geoIpBO.getCacheHitRatio());
+    }
+}
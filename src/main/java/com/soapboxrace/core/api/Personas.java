@@ -19,7 +19,9 @@ import com.soapboxrace.jaxb.util.UnmarshalXML;
 
 import javax.ejb.EJB;
 import javax.ws.rs.*;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -47,6 +49,9 @@ public class Personas {
     @EJB
     private InventoryBO inventoryBO;
 
+    @EJB
+    private GarageCacheBO garageCacheBO;
+
     @POST
     @Secured
     @Path("/{personaId}/commerce")
@@ -135,10 +140,17 @@ public class Personas {
     @Secured
     @Path("/{personaId}/carslots")
     @Produces(MediaType.APPLICATION_XML)
-    public CarSlotInfoTrans carslots(@PathParam(value = "personaId") Long personaId,
-                                     @HeaderParam("securityToken") String securityToken) {
+    public Response carslots(@PathParam(value = "personaId") Long personaId,
+                             @HeaderParam("securityToken") String securityToken,
+                             @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding) {
         sessionBO.verifyPersonaOwnership(securityToken, personaId);
+        int carlimit = parameterBO.getCarLimit(securityToken);
+
+        return cachedResponse(acceptEncoding, garageCacheBO.getGzipped(GarageCacheBO.CARSLOTS, personaId, carlimit,
+                () -> getCarSlotInfo(personaId, carlimit)));
+    }
 
+    private CarSlotInfoTrans getCarSlotInfo(Long personaId, int carlimit) {
         PersonaEntity personaEntity = personaBO.getPersonaById(personaId);
         List<CarSlotEntity> personasCar = basketBO.getPersonasCar(personaId);
 //        System.out.println("personas/id/carslots: " + personaId + " has " + personasCar.size() + " cars (curCarIndex=" + personaEntity.getCurCarIndex() + ")");
@@ -152,7 +164,6 @@ public class Personas {
         carSlotInfoTrans.setCarsOwnedByPersona(arrayOfOwnedCarTrans);
         carSlotInfoTrans.setDefaultOwnedCarIndex(personaEntity.getCurCarIndex());
         carSlotInfoTrans.setObtainableSlots(new ArrayOfProductTrans());
-        int carlimit = parameterBO.getCarLimit(securityToken);
         carSlotInfoTrans.setOwnedCarSlotsCount(carlimit);
         ArrayOfProductTrans arrayOfProductTrans = new ArrayOfProductTrans();
         ProductTrans productTrans = new ProductTrans();
@@ -217,14 +228,17 @@ public class Personas {
     @Secured
     @Path("/{personaId}/cars")
     @Produces(MediaType.APPLICATION_XML)
-    public ArrayOfOwnedCarTrans carsGet(@PathParam(value = "personaId") Long personaId) {
-        ArrayOfOwnedCarTrans arrayOfOwnedCarTrans = new ArrayOfOwnedCarTrans();
-        List<CarSlotEntity> personasCar = basketBO.getPersonasCar(personaId);
-        for (CarSlotEntity carSlotEntity : personasCar) {
-            OwnedCarTrans ownedCarTrans = OwnedCarConverter.entity2Trans(carSlotEntity.getOwnedCar());
-            arrayOfOwnedCarTrans.getOwnedCarTrans().add(ownedCarTrans);
-        }
-        return arrayOfOwnedCarTrans;
+    public Response carsGet(@PathParam(value = "personaId") Long personaId,
+                            @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding) {
+        return cachedResponse(acceptEncoding, garageCacheBO.getGzipped(GarageCacheBO.CARS, personaId, 0, () -> {
+            ArrayOfOwnedCarTrans arrayOfOwnedCarTrans = new ArrayOfOwnedCarTrans();
+            List<CarSlotEntity> personasCar = basketBO.getPersonasCar(personaId);
+            for (CarSlotEntity carSlotEntity : personasCar) {
+                OwnedCarTrans ownedCarTrans = OwnedCarConverter.entity2Trans(carSlotEntity.getOwnedCar());
+                arrayOfOwnedCarTrans.getOwnedCarTrans().add(ownedCarTrans);
+            }
+            return arrayOfOwnedCarTrans;
+        }));
     }
 
     @GET
@@ -268,4 +282,13 @@ public class Personas {
         return "";
     }
 
+    private Response cachedResponse(String acceptEncoding, byte[] gzipped) {
+        if (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+            return Response.ok(gzipped).header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+        }
+
+        return Response.ok(CatalogResponseCacheBO.gunzip(gzipped))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+    }
 }
@@ -0,0 +1,46 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.api;
+
+import com.soapboxrace.core.bo.CatalogBO;
+import com.soapboxrace.core.bo.ParameterBO;
+import com.soapboxrace.core.bo.util.CatalogSnapshot;
+
+import javax.ejb.EJB;
+import javax.ws.rs.FormParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+@Path("/ReloadCatalog")
+public class ReloadCatalog {
+
+    @EJB
+    private ParameterBO parameterBO;
+
+    @EJB
+    private CatalogBO catalogBO;
+
+    @POST
+    @Produces(MediaType.TEXT_HTML)
+    public String reloadCatalog(@FormParam("adminAuth") String token) {
+        String adminToken = parameterBO.getStrParam("ADMIN_AUTH");
+
+        if (adminToken == null) {
+            return "ERROR! no admin token set in DB";
+        }
+
+        if (adminToken.equals(token)) {
+            CatalogSnapshot snapshot = catalogBO.reload();
+            return "SUCCESS! reloaded catalog (version " + snapshot.getVersion() + ", "
+                    + snapshot.getProductCount() + " products)";
+        } else {
+            return "ERROR! invalid admin token";
+        }
+    }
+}
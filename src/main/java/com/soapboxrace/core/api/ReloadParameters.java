@@ -6,6 +6,8 @@
 
 package com.soapboxrace.core.api;
 
+import com.soapboxrace.core.bo.GeoIpBO;
+import com.soapboxrace.core.bo.LauncherPolicyBO;
 import com.soapboxrace.core.bo.ParameterBO;
 
 import javax.ejb.EJB;
@@ -21,6 +23,12 @@ public class ReloadParameters {
     @EJB
     private ParameterBO parameterBO;
 
+    @EJB
+    private GeoIpBO geoIpBO;
+
+    @EJB
+    private LauncherPolicyBO launcherPolicyBO;
+
     @POST
     @Produces(MediaType.TEXT_HTML)
     public String reloadParameters(@FormParam("message") String message, @FormParam("adminAuth") String token) {
@@ -32,6 +40,8 @@ public class ReloadParameters {
 
         if (adminToken.equals(token)) {
             parameterBO.loadParameters();
+            geoIpBO.reload();
+            launcherPolicyBO.reload();
             return "SUCCESS! reloaded parameters";
         } else {
             return "ERROR! invalid admin token";
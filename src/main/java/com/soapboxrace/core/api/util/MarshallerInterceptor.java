@@ -7,6 +7,7 @@
 package com.soapboxrace.core.api.util;
 
 import com.soapboxrace.jaxb.annotation.XsiSchemaLocation;
+import com.soapboxrace.jaxb.util.JAXBContextRegistry;
 
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
@@ -16,55 +17,78 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
 import javax.ws.rs.ext.Providers;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.XmlType;
 import javax.xml.namespace.QName;
+import java.io.BufferedWriter;
 import java.io.OutputStream;
-import java.io.StringWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.nio.charset.Charset;
 
 @Provider
 @Produces(MediaType.APPLICATION_XML)
 public class MarshallerInterceptor implements MessageBodyWriter<Object> {
 
+    /**
+     * The encoding of marshalled responses. This is the platform default, which is what responses were encoded
+     * with when they were marshalled to a String first.
+     */
+    public static final Charset CHARSET = Charset.defaultCharset();
+
     @Context
     protected Providers providers;
 
+    /**
+     * Marshals a response object the same way responses are written to clients.
+     *
+     * @param object         the object to marshal
+     * @param schemaLocation the value of the xsi:schemaLocation attribute, or {@code null} for none
+     * @param writer         the writer to marshal to
+     * @throws JAXBException if the object cannot be marshalled
+     */
+    @SuppressWarnings("unchecked")
+    public static void marshal(Object object, String schemaLocation, Writer writer) throws JAXBException {
+        long start = System.nanoTime();
+        Marshaller jaxbMarshaller = JAXBContextRegistry.getMarshaller(object.getClass(), schemaLocation);
+        XmlType xmlTypeAnnotation = object.getClass().getAnnotation(XmlType.class);
+        QName qname = new QName("", xmlTypeAnnotation.name());
+        JAXBElement<Object> jaxbElement = new JAXBElement<>(qname, (Class<Object>) object.getClass(),
+                null, object);
+        jaxbMarshaller.marshal(jaxbElement, writer);
+        JAXBContextRegistry.recordMarshal(object.getClass(), System.nanoTime() - start);
+    }
+
     @Override
     public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
-        return true;
+        // anything else (e.g. pre-rendered byte[] responses) is left to the built-in providers
+        return type.isAnnotationPresent(XmlType.class);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void writeTo(Object object, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType
             , MultivaluedMap<String, Object> httpHeaders,
                         OutputStream entityStream) throws WebApplicationException {
         if (object != null) {
             try {
-                JAXBContext jaxbContext = JAXBContext.newInstance(object.getClass());
-                Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
-                jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
-                jaxbMarshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+                String schemaLocation = null;
                 if (annotations != null) {
                     for (Annotation annotation : annotations) {
                         if (annotation instanceof XsiSchemaLocation) {
                             XsiSchemaLocation schemaAnnotation = (XsiSchemaLocation) annotation;
-                            String schemaLocation = schemaAnnotation.schemaLocation();
-                            jaxbMarshaller.setProperty(Marshaller.JAXB_SCHEMA_LOCATION, schemaLocation);
+                            schemaLocation = schemaAnnotation.schemaLocation();
                         }
                     }
                 }
-                XmlType xmlTypeAnnotation = object.getClass().getAnnotation(XmlType.class);
-                QName qname = new QName("", xmlTypeAnnotation.name());
-                StringWriter stringWriter = new StringWriter();
-                JAXBElement<Object> jaxbElement = new JAXBElement<>(qname, (Class<Object>) object.getClass(),
-                        null, object);
-                jaxbMarshaller.marshal(jaxbElement, stringWriter);
-                entityStream.write(stringWriter.toString().getBytes());
+                // Marshal straight into the response. This has to stay a Writer: marshalling to an
+                // OutputStream or XMLStreamWriter changes attribute order and empty element syntax.
+                Writer writer = new BufferedWriter(new OutputStreamWriter(entityStream, CHARSET));
+                marshal(object, schemaLocation, writer);
+                writer.flush();
             } catch (Exception e) {
                 throw new WebApplicationException(e);
             }
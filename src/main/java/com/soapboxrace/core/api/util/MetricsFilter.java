@@ -0,0 +1,130 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.api.util;
+
+import com.soapboxrace.core.bo.util.MetricsRegistry;
+import com.soapboxrace.core.engine.EngineExceptionCode;
+import com.soapboxrace.core.engine.EngineExceptionTrans;
+
+import javax.ws.rs.container.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+
+/**
+ * Records the latency, response size and errors of every resource method in {@link MetricsRegistry}.
+ * Latency covers the response being written. The only per-request allocation is the {@link RequestTimer}.
+ */
+@Provider
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    private static final String TIMER_PROPERTY = MetricsFilter.class.getName() + ".timer";
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        Method resourceMethod = resourceInfo.getResourceMethod();
+
+        if (resourceMethod != null) {
+            request.setProperty(TIMER_PROPERTY, new RequestTimer(MetricsRegistry.endpoint(resourceMethod)));
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        RequestTimer timer = (RequestTimer) request.getProperty(TIMER_PROPERTY);
+
+        if (timer == null) {
+            return;
+        }
+
+        Object entity = response.getEntity();
+
+        if (entity instanceof EngineExceptionTrans) {
+            EngineExceptionCode code = EngineExceptionCode.fromErrorCode(((EngineExceptionTrans) entity).getErrorCode());
+            timer.endpoint.recordEngineError(code != null ? code : EngineExceptionCode.UnspecifiedError);
+        } else if (response.getStatus() >= 500) {
+            timer.endpoint.recordServerError();
+        }
+
+        if (!response.hasEntity()) {
+            request.removeProperty(TIMER_PROPERTY);
+            timer.stop();
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        RequestTimer timer = (RequestTimer) context.getProperty(TIMER_PROPERTY);
+
+        if (timer == null) {
+            context.proceed();
+            return;
+        }
+
+        timer.out = context.getOutputStream();
+        context.setOutputStream(timer);
+
+        try {
+            context.proceed();
+        } finally {
+            context.setOutputStream(timer.out);
+            context.removeProperty(TIMER_PROPERTY);
+            timer.stop();
+        }
+    }
+
+    /**
+     * Holds the start time of a request, and counts the bytes of its response as they are written.
+     */
+    private static class RequestTimer extends OutputStream {
+        private final MetricsRegistry.EndpointMetrics endpoint;
+
+        private final long start = System.nanoTime();
+
+        private OutputStream out;
+
+        private long bytes;
+
+        private RequestTimer(MetricsRegistry.EndpointMetrics endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        private void stop() {
+            endpoint.recordLatency(System.nanoTime() - start);
+            endpoint.recordResponseSize(bytes);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            bytes += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
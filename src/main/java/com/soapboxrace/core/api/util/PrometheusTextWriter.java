@@ -0,0 +1,136 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.api.util;
+
+import com.soapboxrace.core.bo.util.LatencyHistogram;
+
+/**
+ * Writes metrics in the Prometheus text exposition format (version 0.0.4).
+ * Latencies are written in seconds, as Prometheus expects.
+ */
+public class PrometheusTextWriter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final StringBuilder builder = new StringBuilder(16384);
+
+    /**
+     * Starts a metric family. Must be called once before the samples of the family.
+     *
+     * @param name the metric name
+     * @param type counter, gauge or histogram
+     * @param help the description of the metric
+     * @return this writer
+     */
+    public PrometheusTextWriter family(String name, String type, String help) {
+        builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    /**
+     * Writes a sample.
+     *
+     * @param name   the metric name
+     * @param value  the value
+     * @param labels label names and values, alternating
+     * @return this writer
+     */
+    public PrometheusTextWriter sample(String name, double value, String... labels) {
+        builder.append(name);
+        appendLabels(labels, null);
+        builder.append(' ').append(format(value)).append('\n');
+        return this;
+    }
+
+    /**
+     * Writes the samples of a latency histogram.
+     *
+     * @param name      the metric name, without the _bucket/_sum/_count suffix
+     * @param histogram the histogram
+     * @param labels    label names and values, alternating
+     * @return this writer
+     */
+    public PrometheusTextWriter histogram(String name, LatencyHistogram histogram, String... labels) {
+        long[] bounds = LatencyHistogram.getBucketBounds();
+        long[] counts = histogram.getBucketCounts();
+        long cumulative = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            builder.append(name).append("_bucket");
+            appendLabels(labels, i < bounds.length ? format(bounds[i] / NANOS_PER_SECOND) : "+Inf");
+            builder.append(' ').append(cumulative).append('\n');
+        }
+
+        builder.append(name).append("_sum");
+        appendLabels(labels, null);
+        builder.append(' ').append(format(histogram.getSumNanos() / NANOS_PER_SECOND)).append('\n');
+        builder.append(name).append("_count");
+        appendLabels(labels, null);
+        // use the bucket total, so that _count always matches the +Inf bucket
+        builder.append(' ').append(cumulative).append('\n');
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return builder.toString();
+    }
+
+    private void appendLabels(String[] labels, String le) {
+        if (labels.length == 0 && le == null) {
+            return;
+        }
+
+        builder.append('{');
+
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+
+            builder.append(labels[i]).append("=\"");
+            escape(labels[i + 1]);
+            builder.append('"');
+        }
+
+        if (le != null) {
+            if (labels.length > 0) {
+                builder.append(',');
+            }
+
+            builder.append("le=\"").append(le).append('"');
+        }
+
+        builder.append('}');
+    }
+
+    private void escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == '\\' || c == '"') {
+                builder.append('\\').append(c);
+            } else if (c == '\n') {
+                builder.append("\\n");
+            } else {
+                builder.append(c);
+            }
+        }
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+
+        return Double.toString(value);
+    }
+}
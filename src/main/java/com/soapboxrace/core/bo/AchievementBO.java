@@ -8,6 +8,7 @@ package com.soapboxrace.core.bo;
 
 import com.soapboxrace.core.bo.util.AchievementProgressionContext;
 import com.soapboxrace.core.bo.util.AchievementUpdateInfo;
+import com.soapboxrace.core.bo.util.PersonaAchievementSnapshot;
 import com.soapboxrace.core.dao.*;
 import com.soapboxrace.core.engine.EngineException;
 import com.soapboxrace.core.engine.EngineExceptionCode;
@@ -19,8 +20,13 @@ import com.soapboxrace.jaxb.xmpp.AchievementProgress;
 import com.soapboxrace.jaxb.xmpp.AchievementsAwarded;
 import com.soapboxrace.jaxb.xmpp.XMPP_ResponseTypeAchievementsAwarded;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
 import javax.ejb.*;
 import javax.script.ScriptException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -42,8 +48,6 @@ public class AchievementBO {
     @EJB
     private AchievementDAO achievementDAO;
     @EJB
-    private AchievementRankDAO achievementRankDAO;
-    @EJB
     private AchievementRewardDAO achievementRewardDAO;
     @EJB
     private BadgeDefinitionDAO badgeDefinitionDAO;
@@ -51,19 +55,28 @@ public class AchievementBO {
     private PersonaDAO personaDAO;
     @EJB
     private OpenFireSoapBoxCli openFireSoapBoxCli;
+    @EJB
+    private AchievementPipelineBO achievementPipelineBO;
+    @EJB
+    private AchievementRarityBO achievementRarityBO;
+    @EJB
+    private BadgeViewBO badgeViewBO;
+    @Resource
+    private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
 
-    @Schedule(minute = "*/30", hour = "*")
-    public void updateRankRarities() {
-        Long countPersonas = personaDAO.countPersonas();
-
-        if (countPersonas == 0L) return;
+    private volatile DefinitionCache definitionCache;
 
+    /**
+     * Compiles the trigger and value scripts of every achievement ahead of time
+     */
+    @PostConstruct
+    public void init() {
         for (AchievementEntity achievementEntity : achievementDAO.findAll()) {
-            for (AchievementRankEntity achievementRankEntity : achievementEntity.getRanks()) {
-                achievementRankEntity.setRarity(((float) personaAchievementRankDAO.countPersonasWithRank(achievementRankEntity.getId())) / countPersonas);
-                achievementRankDAO.update(achievementRankEntity);
-            }
+            precompile(achievementEntity.getUpdateTrigger());
+            precompile(achievementEntity.getUpdateValue());
         }
+
+        System.out.println("AchievementBO: " + scriptingBO.getCacheSize() + " scripts compiled");
     }
 
     /**
@@ -77,25 +90,61 @@ public class AchievementBO {
     }
 
     /**
-     * Synchronously commits the changes for the given {@link AchievementTransaction} instance.
+     * Commits the given {@link AchievementTransaction} instance. The transaction is processed in the background
+     * by {@link AchievementPipelineBO} once the current request has been committed.
      *
      * @param personaEntity the {@link PersonaEntity} instance
      * @param transaction   the {@link AchievementTransaction} instance
      */
     public void commitTransaction(PersonaEntity personaEntity, AchievementTransaction transaction) {
+        transaction.markCommitted();
+        achievementPipelineBO.submit(transaction);
+    }
+
+    /**
+     * Applies the given committed transactions, in order, and sends a single update to the persona.
+     * <p>
+     * The entities in the transactions were loaded by the requests that made them, so they are reloaded here.
+     * The persona itself is only read: the points gained are added to its score with a single update, so
+     * nothing else the persona's requests change in the meantime is overwritten. The update is sent once the
+     * changes are committed, since a batch that fails is retried.
+     *
+     * @param personaId    the persona ID
+     * @param transactions the {@link AchievementTransaction} instances
+     */
+    public void processTransactions(Long personaId, List<AchievementTransaction> transactions) {
+        PersonaEntity personaEntity = personaDAO.findById(personaId);
+
+        if (personaEntity == null) {
+            return;
+        }
+
+        personaDAO.detach(personaEntity);
+        int originalScore = personaEntity.getScore();
+        PersonaAchievementSnapshot snapshot = getSnapshot(personaId);
         List<AchievementUpdateInfo> achievementUpdateInfoList = new ArrayList<>();
-        transaction.getEntries().forEach((k, v) -> v.forEach(m -> achievementUpdateInfoList.addAll(updateAchievements(personaEntity, k, m))));
-        personaDAO.update(personaEntity);
-        List<BadgePacket> badgePacketList = driverPersonaBO.getBadges(personaEntity.getPersonaId()).getBadgePacket();
 
-        sendUpdateMessage(personaEntity, achievementUpdateInfoList, badgePacketList);
+        for (AchievementTransaction transaction : transactions) {
+            transaction.getEntries().forEach((k, v) -> v.forEach(m -> {
+                Map<String, Object> properties = new HashMap<>();
+                m.forEach((name, value) -> properties.put(name, "persona".equals(name) ? personaEntity :
+                        personaDAO.reload(value)));
+                achievementUpdateInfoList.addAll(updateAchievements(personaEntity, snapshot, k, properties));
+            }));
+        }
 
-        transaction.markCommitted();
-        transaction.clear();
-        achievementUpdateInfoList.clear();
+        if (personaEntity.getScore() != originalScore) {
+            personaDAO.addScore(personaId, personaEntity.getScore() - originalScore);
+        }
+
+        List<BadgePacket> badgePacketList = driverPersonaBO.getBadges(personaId).getBadgePacket();
+        XMPP_ResponseTypeAchievementsAwarded updateMessage = createUpdateMessage(personaEntity,
+                achievementUpdateInfoList, badgePacketList);
+
+        afterCommit(() -> openFireSoapBoxCli.send(updateMessage, personaId));
     }
 
-    private void sendUpdateMessage(PersonaEntity personaEntity, List<AchievementUpdateInfo> achievementUpdateInfoList, List<BadgePacket> badgePacketList) {
+    private XMPP_ResponseTypeAchievementsAwarded createUpdateMessage(PersonaEntity personaEntity, List<AchievementUpdateInfo> achievementUpdateInfoList, List<BadgePacket> badgePacketList) {
         AchievementsAwarded achievementsAwarded = new AchievementsAwarded();
         achievementsAwarded.setScore(personaEntity.getScore());
         achievementsAwarded.setPersonaId(personaEntity.getPersonaId());
@@ -113,10 +162,10 @@ public class AchievementBO {
                 achievementAwarded.setAchievementRankId(achievementRankEntity.getId());
                 achievementAwarded.setDescription(achievementEntity.getBadgeDefinitionEntity().getDescription());
                 achievementAwarded.setIcon(achievementEntity.getBadgeDefinitionEntity().getIcon());
-                achievementAwarded.setRare(achievementRankEntity.isRare());
+                achievementAwarded.setRare(achievementRarityBO.isRare(achievementRankEntity.getId()));
                 achievementAwarded.setName(achievementEntity.getBadgeDefinitionEntity().getName());
                 achievementAwarded.setPoints(achievementRankEntity.getPoints());
-                achievementAwarded.setRarity(achievementRankEntity.getRarity());
+                achievementAwarded.setRarity(achievementRarityBO.getRarity(achievementRankEntity.getId()));
                 achievementsAwarded.getAchievements().add(achievementAwarded);
             }
 
@@ -132,8 +181,27 @@ public class AchievementBO {
 
         XMPP_ResponseTypeAchievementsAwarded responseTypeAchievementsAwarded = new XMPP_ResponseTypeAchievementsAwarded();
         responseTypeAchievementsAwarded.setAchievementsAwarded(achievementsAwarded);
+        return responseTypeAchievementsAwarded;
+    }
 
-        openFireSoapBoxCli.send(responseTypeAchievementsAwarded, personaEntity.getPersonaId());
+    private void afterCommit(Runnable action) {
+        if (transactionSynchronizationRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            action.run();
+            return;
+        }
+
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
     }
 
     public AchievementRewards redeemReward(Long personaId, Long achievementRankId) {
@@ -176,11 +244,80 @@ public class AchievementBO {
             throw new EngineException(EngineExceptionCode.FailedSessionSecurityPolicy, true);
         }
 
+        PersonaAchievementSnapshot snapshot = getSnapshot(personaId);
+        DefinitionCache definitions = getDefinitions();
         AchievementsPacket achievementsPacket = new AchievementsPacket();
         achievementsPacket.setPersonaId(personaId);
-        achievementsPacket.setBadges(new ArrayOfBadgeDefinitionPacket());
+        achievementsPacket.setBadges(definitions.badges);
         achievementsPacket.setDefinitions(new ArrayOfAchievementDefinitionPacket());
 
+        for (AchievementDefinitionPacket template : definitions.definitions) {
+            AchievementDefinitionPacket achievementDefinitionPacket = copyDefinition(template);
+            PersonaAchievementEntity personaAchievementEntity =
+                    snapshot.getAchievement((long) template.getAchievementDefinitionId());
+
+            if (personaAchievementEntity != null) {
+                achievementDefinitionPacket.setCanProgress(personaAchievementEntity.isCanProgress());
+                achievementDefinitionPacket.setCurrentValue(personaAchievementEntity.getCurrentValue());
+            } else {
+                achievementDefinitionPacket.setCanProgress(true);
+            }
+
+            for (AchievementRankPacket rankTemplate : template.getAchievementRanks().getAchievementRankPacket()) {
+                AchievementRankPacket rankPacket = copyRank(rankTemplate);
+                PersonaAchievementRankEntity personaAchievementRankEntity =
+                        snapshot.getRank((long) rankTemplate.getAchievementRankId());
+
+                if (personaAchievementRankEntity != null) {
+                    rankPacket.setState(AchievementState.fromValue(personaAchievementRankEntity.getState()));
+
+                    if (personaAchievementRankEntity.getAchievedOn() != null) {
+                        rankPacket.setAchievedOn(personaAchievementRankEntity.getAchievedOn().format(RANK_COMPLETED_AT_FORMATTER));
+                    }
+                }
+
+                achievementDefinitionPacket.getAchievementRanks().getAchievementRankPacket().add(rankPacket);
+            }
+
+            achievementsPacket.getDefinitions().getAchievementDefinitionPacket().add(achievementDefinitionPacket);
+        }
+
+        return achievementsPacket;
+    }
+
+    /**
+     * Loads every achievement and achievement rank row of the given persona in two queries.
+     *
+     * @param personaId the persona ID
+     * @return new {@link PersonaAchievementSnapshot} instance
+     */
+    public PersonaAchievementSnapshot getSnapshot(Long personaId) {
+        return new PersonaAchievementSnapshot(personaId, personaAchievementDAO.findAllByPersonaId(personaId),
+                personaAchievementRankDAO.findAllByPersonaId(personaId));
+    }
+
+    /**
+     * Drops the cached achievement and badge definition packets. Called when definition rows are changed.
+     */
+    public void invalidateDefinitions() {
+        definitionCache = null;
+    }
+
+    private DefinitionCache getDefinitions() {
+        DefinitionCache cache = definitionCache;
+
+        if (cache == null) {
+            // Two threads may build the cache at once; the result is the same either way.
+            cache = new DefinitionCache(buildDefinitionPackets(), buildBadgePackets());
+            definitionCache = cache;
+        }
+
+        return cache;
+    }
+
+    private List<AchievementDefinitionPacket> buildDefinitionPackets() {
+        List<AchievementDefinitionPacket> definitionPackets = new ArrayList<>();
+
         for (AchievementEntity achievementEntity : achievementDAO.findAll()) {
             AchievementDefinitionPacket achievementDefinitionPacket = new AchievementDefinitionPacket();
 
@@ -191,21 +328,9 @@ public class AchievementBO {
             achievementDefinitionPacket.setProgressText(achievementEntity.getProgressText());
             achievementDefinitionPacket.setStatConversion(StatConversion.fromValue(achievementEntity.getStatConversion()));
 
-            PersonaAchievementEntity personaAchievementEntity =
-                    personaAchievementDAO.findByPersonaIdAndAchievementId(personaId, achievementEntity.getId());
-
-            if (personaAchievementEntity != null) {
-                achievementDefinitionPacket.setCanProgress(personaAchievementEntity.isCanProgress());
-                achievementDefinitionPacket.setCurrentValue(personaAchievementEntity.getCurrentValue());
-            } else {
-                achievementDefinitionPacket.setCanProgress(true);
-            }
-
             for (AchievementRankEntity achievementRankEntity : achievementEntity.getRanks()) {
                 AchievementRankPacket rankPacket = new AchievementRankPacket();
                 rankPacket.setAchievedOn("0001-01-01T00:00:00");
-                rankPacket.setIsRare(achievementRankEntity.isRare());
-                rankPacket.setRarity(achievementRankEntity.getRarity());
                 rankPacket.setRank(achievementRankEntity.getRank().shortValue());
                 rankPacket.setRewardDescription(achievementRankEntity.getRewardDescription());
                 rankPacket.setRewardType(achievementRankEntity.getRewardType());
@@ -220,24 +345,18 @@ public class AchievementBO {
                 }
                 rankPacket.setThresholdValue(achievementRankEntity.getThresholdValue());
 
-                PersonaAchievementRankEntity personaAchievementRankEntity =
-                        personaAchievementRankDAO.findByPersonaIdAndAchievementRankId(personaId,
-                                achievementRankEntity.getId());
-
-                if (personaAchievementRankEntity != null) {
-                    rankPacket.setState(AchievementState.fromValue(personaAchievementRankEntity.getState()));
-
-                    if (personaAchievementRankEntity.getAchievedOn() != null) {
-                        rankPacket.setAchievedOn(personaAchievementRankEntity.getAchievedOn().format(RANK_COMPLETED_AT_FORMATTER));
-                    }
-                }
-
                 achievementDefinitionPacket.getAchievementRanks().getAchievementRankPacket().add(rankPacket);
             }
 
-            achievementsPacket.getDefinitions().getAchievementDefinitionPacket().add(achievementDefinitionPacket);
+            definitionPackets.add(achievementDefinitionPacket);
         }
 
+        return definitionPackets;
+    }
+
+    private ArrayOfBadgeDefinitionPacket buildBadgePackets() {
+        ArrayOfBadgeDefinitionPacket badgePackets = new ArrayOfBadgeDefinitionPacket();
+
         for (BadgeDefinitionEntity badgeDefinitionEntity : badgeDefinitionDAO.findAll()) {
             BadgeDefinitionPacket badgeDefinitionPacket = new BadgeDefinitionPacket();
             badgeDefinitionPacket.setBackground(badgeDefinitionEntity.getBackground());
@@ -246,20 +365,49 @@ public class AchievementBO {
             badgeDefinitionPacket.setIcon(badgeDefinitionEntity.getIcon());
             badgeDefinitionPacket.setName(badgeDefinitionEntity.getName());
             badgeDefinitionPacket.setBadgeDefinitionId(badgeDefinitionEntity.getId().intValue());
-            achievementsPacket.getBadges().getBadgeDefinitionPacket().add(badgeDefinitionPacket);
+            badgePackets.getBadgeDefinitionPacket().add(badgeDefinitionPacket);
         }
 
-        return achievementsPacket;
+        return badgePackets;
+    }
+
+    private AchievementDefinitionPacket copyDefinition(AchievementDefinitionPacket template) {
+        AchievementDefinitionPacket achievementDefinitionPacket = new AchievementDefinitionPacket();
+        achievementDefinitionPacket.setAchievementDefinitionId(template.getAchievementDefinitionId());
+        achievementDefinitionPacket.setAchievementRanks(new ArrayOfAchievementRankPacket());
+        achievementDefinitionPacket.setBadgeDefinitionId(template.getBadgeDefinitionId());
+        achievementDefinitionPacket.setIsVisible(template.isIsVisible());
+        achievementDefinitionPacket.setProgressText(template.getProgressText());
+        achievementDefinitionPacket.setStatConversion(template.getStatConversion());
+        return achievementDefinitionPacket;
+    }
+
+    private AchievementRankPacket copyRank(AchievementRankPacket template) {
+        AchievementRankPacket rankPacket = new AchievementRankPacket();
+        rankPacket.setAchievedOn(template.getAchievedOn());
+        rankPacket.setIsRare(achievementRarityBO.isRare((long) template.getAchievementRankId()));
+        rankPacket.setRarity(achievementRarityBO.getRarity((long) template.getAchievementRankId()));
+        rankPacket.setRank(template.getRank());
+        rankPacket.setRewardDescription(template.getRewardDescription());
+        rankPacket.setRewardType(template.getRewardType());
+        rankPacket.setRewardVisualStyle(template.getRewardVisualStyle());
+        rankPacket.setPoints(template.getPoints());
+        rankPacket.setAchievementRankId(template.getAchievementRankId());
+        rankPacket.setState(template.getState());
+        rankPacket.setThresholdValue(template.getThresholdValue());
+        return rankPacket;
     }
 
     /**
      * Update all appropriate achievements in the given category for the persona by the given ID
      *
      * @param personaEntity       The {@link PersonaEntity} instance to be updated
+     * @param snapshot            The achievement progress of the persona
      * @param achievementCategory The category of achievements to evaluate
      * @param properties          Relevant contextual information for achievements.
      */
-    private List<AchievementUpdateInfo> updateAchievements(PersonaEntity personaEntity, String achievementCategory,
+    private List<AchievementUpdateInfo> updateAchievements(PersonaEntity personaEntity, PersonaAchievementSnapshot snapshot,
+                                                           String achievementCategory,
                                                            Map<String, Object> properties) {
         int originalScore = personaEntity.getScore();
         int newScore = originalScore;
@@ -274,8 +422,7 @@ public class AchievementBO {
             }
 
             // Locate persona-specific achievement data. Create it if it does not exist
-            PersonaAchievementEntity personaAchievementEntity = personaAchievementDAO.findByPersonaIdAndAchievementId(
-                    personaEntity.getPersonaId(), achievementEntity.getId());
+            PersonaAchievementEntity personaAchievementEntity = snapshot.getAchievement(achievementEntity.getId());
             boolean insert = false;
 
             if (personaAchievementEntity == null) {
@@ -293,9 +440,11 @@ public class AchievementBO {
                 Boolean shouldUpdate = (Boolean) scriptingBO.eval(achievementEntity.getUpdateTrigger(),
                         properties);
                 if (shouldUpdate) {
-                    if (insert)
+                    if (insert) {
                         personaAchievementDAO.insert(personaAchievementEntity);
-                    AchievementUpdateInfo achievementUpdateInfo = updateAchievement(personaEntity, achievementEntity, properties, personaAchievementEntity);
+                        snapshot.put(personaAchievementEntity);
+                    }
+                    AchievementUpdateInfo achievementUpdateInfo = updateAchievement(snapshot, achievementEntity, properties, personaAchievementEntity);
                     newScore += achievementUpdateInfo.getPointsGiven();
                     achievementUpdateInfoList.add(achievementUpdateInfo);
                 }
@@ -311,14 +460,14 @@ public class AchievementBO {
                     personaEntity.getLevel(), personaEntity.getScore(), 0, false, true,
                     false, false);
 
-            achievementUpdateInfoList.addAll(updateAchievements(personaEntity, "PROGRESSION",
+            achievementUpdateInfoList.addAll(updateAchievements(personaEntity, snapshot, "PROGRESSION",
                     Map.of("persona", personaEntity, "progression", progressionContext)));
         }
 
         return achievementUpdateInfoList;
     }
 
-    private AchievementUpdateInfo updateAchievement(PersonaEntity personaEntity, AchievementEntity achievementEntity, Map<String, Object> bindings,
+    private AchievementUpdateInfo updateAchievement(PersonaAchievementSnapshot snapshot, AchievementEntity achievementEntity, Map<String, Object> bindings,
                                                     PersonaAchievementEntity personaAchievementEntity) {
         // If no progression can be made, there's nothing to do.
         if (!personaAchievementEntity.isCanProgress()) {
@@ -371,23 +520,19 @@ public class AchievementBO {
                         AchievementRankEntity previous = null;
                         AchievementRankEntity current = achievementEntity.getRanks().get(i);
                         PersonaAchievementRankEntity previousRank = null;
-                        PersonaAchievementRankEntity currentRank =
-                                personaAchievementRankDAO.findByPersonaIdAndAchievementRankId(personaEntity.getPersonaId(),
-                                        current.getId());
+                        PersonaAchievementRankEntity currentRank = snapshot.getRank(current.getId());
 
                         if (i > 0) {
                             previous = achievementEntity.getRanks().get(i - 1);
-                            previousRank =
-                                    personaAchievementRankDAO.findByPersonaIdAndAchievementRankId(personaEntity.getPersonaId(),
-                                            previous.getId());
+                            previousRank = snapshot.getRank(previous.getId());
 
                             if (previousRank == null) {
-                                previousRank = createPersonaAchievementRank(personaAchievementEntity, previous);
+                                previousRank = createPersonaAchievementRank(snapshot, personaAchievementEntity, previous);
                             }
                         }
 
                         if (currentRank == null) {
-                            currentRank = createPersonaAchievementRank(personaAchievementEntity, current);
+                            currentRank = createPersonaAchievementRank(snapshot, personaAchievementEntity, current);
                         }
 
                         long threshold = current.getThresholdValue();
@@ -399,6 +544,8 @@ public class AchievementBO {
                             currentRank.setState("RewardWaiting");
                             currentRank.setAchievedOn(LocalDateTime.now());
                             personaAchievementRankDAO.update(currentRank);
+                            achievementRarityBO.rankAchieved(current.getId());
+                            badgeViewBO.invalidate(snapshot.getPersonaId());
                             pointsAdded += current.getPoints();
 
                             achievementUpdateInfo.getCompletedAchievementRanks().add(new AchievementUpdateInfo.CompletedAchievementRank(
@@ -428,12 +575,37 @@ public class AchievementBO {
         }
     }
 
-    private PersonaAchievementRankEntity createPersonaAchievementRank(PersonaAchievementEntity personaAchievementEntity, AchievementRankEntity achievementRankEntity) {
+    private void precompile(String script) {
+        if (script == null || script.trim().isEmpty()) {
+            return;
+        }
+
+        try {
+            scriptingBO.compile(script);
+        } catch (ScriptException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private PersonaAchievementRankEntity createPersonaAchievementRank(PersonaAchievementSnapshot snapshot, PersonaAchievementEntity personaAchievementEntity,
+                                                                      AchievementRankEntity achievementRankEntity) {
         PersonaAchievementRankEntity rankEntity = new PersonaAchievementRankEntity();
         rankEntity.setState("Locked");
         rankEntity.setPersonaAchievementEntity(personaAchievementEntity);
         rankEntity.setAchievementRankEntity(achievementRankEntity);
         personaAchievementRankDAO.insert(rankEntity);
+        snapshot.put(rankEntity);
         return rankEntity;
     }
+
+    private static class DefinitionCache {
+        private final List<AchievementDefinitionPacket> definitions;
+
+        private final ArrayOfBadgeDefinitionPacket badges;
+
+        private DefinitionCache(List<AchievementDefinitionPacket> definitions, ArrayOfBadgeDefinitionPacket badges) {
+            this.definitions = definitions;
+            this.badges = badges;
+        }
+    }
 }
@@ -0,0 +1,247 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo;
+
+import com.soapboxrace.core.bo.util.LatencyHistogram;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.*;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Processes committed {@link AchievementTransaction}s in the background.
+ * <p>
+ * Transactions are queued per persona once the request that produced them has committed. A persona is
+ * handled by at most one worker at a time, so its transactions are applied in the order they were committed,
+ * and everything that queued up for a persona while it waited is applied in one go (e.g. the powerups used
+ * during a race). A batch that fails is put back in front of the persona's queue and tried again, up to
+ * {@code ACHIEVEMENT_MAX_ATTEMPTS} times.
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
+public class AchievementPipelineBO {
+
+    @EJB
+    private AchievementBO achievementBO;
+
+    @EJB
+    private ParameterBO parameterBO;
+
+    @Resource
+    private ManagedThreadFactory managedThreadFactory;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    private final ConcurrentMap<Long, ArrayDeque<AchievementTransaction>> pending = new ConcurrentHashMap<>();
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final LongAdder processedCount = new LongAdder();
+
+    private final LongAdder batchCount = new LongAdder();
+
+    private final LongAdder retriedCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final LatencyHistogram lag = new LatencyHistogram();
+
+    private ThreadPoolExecutor executor;
+
+    private int maxAttempts;
+
+    @PostConstruct
+    public void init() {
+        int threads = parameterBO.getIntParam("ACHIEVEMENT_WORKER_THREADS", 4);
+        maxAttempts = parameterBO.getIntParam("ACHIEVEMENT_MAX_ATTEMPTS", 3);
+        // Each persona is queued at most once, so the work queue can't grow past the number of active personas.
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                managedThreadFactory);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        System.out.println("AchievementPipelineBO shutdown (" + pendingCount.get() + " transaction(s) pending)");
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues the given transaction. If a JTA transaction is active, the achievement transaction is queued
+     * once it has been committed, and dropped if it is rolled back.
+     *
+     * @param transaction the committed {@link AchievementTransaction} instance
+     */
+    public void submit(AchievementTransaction transaction) {
+        if (transactionSynchronizationRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            enqueue(transaction);
+            return;
+        }
+
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    enqueue(transaction);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the number of transactions waiting to be processed
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    public long getProcessedCount() {
+        return processedCount.sum();
+    }
+
+    /**
+     * @return the number of batches processed; {@link #getProcessedCount()} divided by this is the coalescing rate
+     */
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    /**
+     * @return the number of transactions put back in the queue after a failed attempt
+     */
+    public long getRetriedCount() {
+        return retriedCount.sum();
+    }
+
+    /**
+     * @return the number of transactions dropped after {@code ACHIEVEMENT_MAX_ATTEMPTS} failed attempts
+     */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * @return the time between a transaction being committed and being processed
+     */
+    public LatencyHistogram getLag() {
+        return lag;
+    }
+
+    private void enqueue(AchievementTransaction transaction) {
+        Long personaId = transaction.getPersonaId();
+        pendingCount.incrementAndGet();
+        pending.compute(personaId, (k, queue) -> {
+            if (queue == null) {
+                // No worker owns this persona yet
+                queue = new ArrayDeque<>();
+                executor.execute(() -> process(personaId));
+            }
+
+            queue.add(transaction);
+            return queue;
+        });
+    }
+
+    private void process(Long personaId) {
+        List<AchievementTransaction> batch = new ArrayList<>();
+        pending.computeIfPresent(personaId, (k, queue) -> {
+            batch.addAll(queue);
+            queue.clear();
+            return queue;
+        });
+
+        if (!batch.isEmpty()) {
+            pendingCount.addAndGet(-batch.size());
+            batchCount.increment();
+
+            try {
+                achievementBO.processTransactions(personaId, batch);
+                long now = System.nanoTime();
+
+                for (AchievementTransaction transaction : batch) {
+                    lag.record(now - transaction.getCommittedAt());
+                    transaction.clear();
+                }
+
+                processedCount.add(batch.size());
+            } catch (Exception e) {
+                System.err.println("Failed to process " + batch.size() + " achievement transaction(s) for persona "
+                        + personaId);
+                e.printStackTrace();
+                retryOrDrop(personaId, batch);
+            }
+        }
+
+        // Hand the persona back, or go around again if more transactions came in while this batch ran
+        pending.compute(personaId, (k, queue) -> {
+            if (queue == null || queue.isEmpty()) {
+                return null;
+            }
+
+            executor.execute(() -> process(personaId));
+            return queue;
+        });
+    }
+
+    /**
+     * Puts a failed batch back in front of the persona's queue, so it is tried again before anything that was
+     * committed after it. The processing transaction was rolled back, so nothing of the batch has been applied.
+     */
+    private void retryOrDrop(Long personaId, List<AchievementTransaction> batch) {
+        int attempts = 0;
+
+        for (AchievementTransaction transaction : batch) {
+            attempts = Math.max(attempts, transaction.recordFailedAttempt());
+        }
+
+        if (attempts >= maxAttempts) {
+            failedCount.add(batch.size());
+            System.err.println("Dropping " + batch.size() + " achievement transaction(s) for persona " + personaId
+                    + " after " + attempts + " attempt(s)");
+            return;
+        }
+
+        retriedCount.add(batch.size());
+        pendingCount.addAndGet(batch.size());
+        pending.compute(personaId, (k, queue) -> {
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                queue.addFirst(batch.get(i));
+            }
+
+            return queue;
+        });
+    }
+}
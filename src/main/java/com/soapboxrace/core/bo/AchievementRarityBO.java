@@ -0,0 +1,186 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo;
+
+import com.soapboxrace.core.dao.AchievementDAO;
+import com.soapboxrace.core.dao.AchievementRankDAO;
+import com.soapboxrace.core.dao.PersonaAchievementRankDAO;
+import com.soapboxrace.core.dao.PersonaDAO;
+import com.soapboxrace.core.jpa.AchievementEntity;
+import com.soapboxrace.core.jpa.AchievementRankEntity;
+import com.soapboxrace.core.jpa.PersonaAchievementRankEntity;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.*;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps achievement rank rarities in memory. The number of personas that achieved each rank, and the number
+ * of personas overall, are counted as ranks are achieved and personas are created or deleted.
+ * {@link #reconcile()} periodically checks the counters against the database with a single grouped query.
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
+public class AchievementRarityBO {
+
+    private static final float RARE_THRESHOLD = 0.05f;
+
+    @EJB
+    private PersonaDAO personaDAO;
+
+    @EJB
+    private PersonaAchievementRankDAO personaAchievementRankDAO;
+
+    @EJB
+    private AchievementDAO achievementDAO;
+
+    @EJB
+    private AchievementRankDAO achievementRankDAO;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    private final ConcurrentMap<Long, AtomicLong> rankCounts = new ConcurrentHashMap<>();
+
+    private final AtomicLong personaCount = new AtomicLong();
+
+    private volatile long lastDrift;
+
+    @PostConstruct
+    public void init() {
+        reconcile();
+    }
+
+    /**
+     * Recounts the personas and rank completions, replaces the counters and stores the rarities of the ranks
+     * that changed.
+     */
+    @Schedule(minute = "*/30", hour = "*")
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        Map<Long, Long> counts = personaAchievementRankDAO.countPersonasByRank();
+        long personas = personaDAO.countPersonas();
+        long drift = Math.abs(personaCount.getAndSet(personas) - personas);
+        int updated = 0;
+
+        for (AchievementEntity achievementEntity : achievementDAO.findAll()) {
+            for (AchievementRankEntity achievementRankEntity : achievementEntity.getRanks()) {
+                long count = counts.getOrDefault(achievementRankEntity.getId(), 0L);
+                drift += Math.abs(getCounter(achievementRankEntity.getId()).getAndSet(count) - count);
+
+                float rarity = getRarity(achievementRankEntity.getId());
+
+                if (achievementRankEntity.getRarity() == null || Math.abs(achievementRankEntity.getRarity() - rarity) > 0.0001f) {
+                    achievementRankEntity.setRarity(rarity);
+                    achievementRankDAO.update(achievementRankEntity);
+                    updated++;
+                }
+            }
+        }
+
+        lastDrift = drift;
+        System.out.println("AchievementRarityBO: reconciled " + rankCounts.size() + " rank(s) in "
+                + (System.currentTimeMillis() - start) + "ms (drift " + drift + ", " + updated + " updated)");
+    }
+
+    /**
+     * Counts a rank as achieved by one more persona. Inside a transaction, the rank is counted once the
+     * transaction commits.
+     *
+     * @param achievementRankId the achievement rank ID
+     */
+    public void rankAchieved(Long achievementRankId) {
+        afterCommit(() -> getCounter(achievementRankId).incrementAndGet());
+    }
+
+    /**
+     * Counts one more persona. Inside a transaction, the persona is counted once the transaction commits.
+     */
+    public void personaCreated() {
+        afterCommit(personaCount::incrementAndGet);
+    }
+
+    /**
+     * Removes a deleted persona and the ranks it had achieved from the counters. Inside a transaction, the
+     * counters are changed once the transaction commits.
+     *
+     * @param personaAchievementRankEntities the persona's rank rows
+     */
+    public void personaDeleted(List<PersonaAchievementRankEntity> personaAchievementRankEntities) {
+        List<Long> achievedRankIds = new ArrayList<>();
+
+        for (PersonaAchievementRankEntity personaAchievementRankEntity : personaAchievementRankEntities) {
+            if (personaAchievementRankEntity.getAchievedOn() != null) {
+                achievedRankIds.add(personaAchievementRankEntity.getAchievementRankEntity().getId());
+            }
+        }
+
+        afterCommit(() -> {
+            personaCount.decrementAndGet();
+            achievedRankIds.forEach(achievementRankId -> getCounter(achievementRankId).decrementAndGet());
+        });
+    }
+
+    /**
+     * @param achievementRankId the achievement rank ID
+     * @return the share of personas that achieved the rank, between 0 and 1
+     */
+    public float getRarity(Long achievementRankId) {
+        long personas = personaCount.get();
+
+        if (personas <= 0) {
+            return 0f;
+        }
+
+        return Math.max(0f, Math.min(1f, ((float) getCounter(achievementRankId).get()) / personas));
+    }
+
+    public boolean isRare(Long achievementRankId) {
+        return getRarity(achievementRankId) <= RARE_THRESHOLD;
+    }
+
+    /**
+     * @return how far the counters were off at the last reconciliation, summed over all counters
+     */
+    public long getLastDrift() {
+        return lastDrift;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (transactionSynchronizationRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            action.run();
+            return;
+        }
+
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private AtomicLong getCounter(Long achievementRankId) {
+        return rankCounts.computeIfAbsent(achievementRankId, k -> new AtomicLong());
+    }
+}
@@ -26,6 +26,16 @@ public class AchievementTransaction {
      */
     private boolean committed = false;
 
+    /**
+     * The value of {@link System#nanoTime()} when the transaction was committed
+     */
+    private long committedAt;
+
+    /**
+     * The number of times processing the transaction has failed
+     */
+    private int failedAttempts;
+
     /**
      * Initializes a new instance of the {@link AchievementTransaction} class.
      *
@@ -69,6 +79,20 @@ public class AchievementTransaction {
         }
 
         this.committed = true;
+        this.committedAt = System.nanoTime();
+    }
+
+    public long getCommittedAt() {
+        return committedAt;
+    }
+
+    /**
+     * Records a failed attempt at processing the transaction.
+     *
+     * @return the number of failed attempts so far
+     */
+    public int recordFailedAttempt() {
+        return ++this.failedAttempts;
     }
 
     public void clear() {
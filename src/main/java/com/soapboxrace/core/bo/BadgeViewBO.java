@@ -0,0 +1,202 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.soapboxrace.core.dao.PersonaBadgeDAO;
+import com.soapboxrace.jaxb.http.ArrayOfBadgePacket;
+import com.soapboxrace.jaxb.http.BadgePacket;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.*;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the resolved badges of each persona: for every equipped badge, the highest completed rank of its
+ * achievement. Views are loaded for any number of personas with a single query, and stay cached until
+ * {@link #invalidate(Long)} is called, which happens when the persona changes its badges or completes a rank.
+ * Rarity is not part of the view, since it changes as other personas complete ranks.
+ */
+@Singleton
+@Lock(LockType.READ)
+public class BadgeViewBO {
+
+    @EJB
+    private ParameterBO parameterBO;
+
+    @EJB
+    private PersonaBadgeDAO personaBadgeDAO;
+
+    @EJB
+    private AchievementRarityBO achievementRarityBO;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    private final AtomicLong versionCounter = new AtomicLong();
+
+    private final ConcurrentMap<Long, Long> versions = new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private Cache<Long, BadgeView> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(parameterBO.getIntParam("BADGE_VIEW_CACHE_SIZE", 100000))
+                .build();
+    }
+
+    /**
+     * Drops the badge view of the given persona. Inside a transaction, it is dropped again once the transaction
+     * completes, so a view built from data that was not committed yet doesn't stay cached.
+     *
+     * @param personaId the persona ID
+     */
+    public void invalidate(Long personaId) {
+        invalidateNow(personaId);
+
+        if (transactionSynchronizationRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    invalidateNow(personaId);
+                }
+            });
+        }
+    }
+
+    public ArrayOfBadgePacket getBadges(Long personaId) {
+        return getBadges(Collections.singletonList(personaId)).get(personaId);
+    }
+
+    /**
+     * Gets the badges of the given personas. Views that aren't cached are loaded with one query.
+     *
+     * @param personaIds the persona IDs
+     * @return the badges of each persona, in slot order
+     */
+    public Map<Long, ArrayOfBadgePacket> getBadges(Collection<Long> personaIds) {
+        Map<Long, ArrayOfBadgePacket> badges = new HashMap<>();
+        Map<Long, Long> missing = new HashMap<>();
+
+        for (Long personaId : personaIds) {
+            // the version has to be read before the view is loaded, so that a concurrent invalidation is never missed
+            long version = versions.getOrDefault(personaId, 0L);
+            BadgeView badgeView = cache.getIfPresent(personaId);
+
+            if (badgeView != null && badgeView.version == version) {
+                hitCount.increment();
+                badges.put(personaId, toPackets(badgeView));
+            } else {
+                missCount.increment();
+                missing.put(personaId, version);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return badges;
+        }
+
+        Map<Long, Map<Integer, ResolvedBadge>> resolved = new HashMap<>();
+
+        for (Object[] row : personaBadgeDAO.findCompletedBadgeRanks(missing.keySet())) {
+            ResolvedBadge resolvedBadge = new ResolvedBadge((Integer) row[1], (Long) row[2], (Long) row[3],
+                    (Integer) row[4]);
+            // only the highest completed rank of each badge is shown
+            resolved.computeIfAbsent((Long) row[0], k -> new HashMap<>())
+                    .merge(resolvedBadge.slot, resolvedBadge, (a, b) -> a.rank >= b.rank ? a : b);
+        }
+
+        for (Map.Entry<Long, Long> entry : missing.entrySet()) {
+            List<ResolvedBadge> resolvedBadges = new ArrayList<>(
+                    resolved.getOrDefault(entry.getKey(), Collections.emptyMap()).values());
+            resolvedBadges.sort(Comparator.comparingInt(b -> b.slot));
+
+            BadgeView badgeView = new BadgeView(entry.getValue(), resolvedBadges);
+            cache.put(entry.getKey(), badgeView);
+            badges.put(entry.getKey(), toPackets(badgeView));
+        }
+
+        return badges;
+    }
+
+    public double getHitRatio() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total == 0 ? 1.0 : (double) hits / total;
+    }
+
+    public long getSize() {
+        return cache.size();
+    }
+
+    private void invalidateNow(Long personaId) {
+        versions.put(personaId, versionCounter.incrementAndGet());
+        cache.invalidate(personaId);
+    }
+
+    private ArrayOfBadgePacket toPackets(BadgeView badgeView) {
+        ArrayOfBadgePacket arrayOfBadgePacket = new ArrayOfBadgePacket();
+
+        for (ResolvedBadge resolvedBadge : badgeView.badges) {
+            BadgePacket badgePacket = new BadgePacket();
+            badgePacket.setAchievementRankId(resolvedBadge.achievementRankId.intValue());
+            badgePacket.setBadgeDefinitionId(resolvedBadge.badgeDefinitionId.intValue());
+            badgePacket.setIsRare(achievementRarityBO.isRare(resolvedBadge.achievementRankId));
+            badgePacket.setRarity(achievementRarityBO.getRarity(resolvedBadge.achievementRankId));
+            badgePacket.setSlotId(resolvedBadge.slot.shortValue());
+            arrayOfBadgePacket.getBadgePacket().add(badgePacket);
+        }
+
+        return arrayOfBadgePacket;
+    }
+
+    private static final class BadgeView {
+        private final long version;
+
+        private final List<ResolvedBadge> badges;
+
+        private BadgeView(long version, List<ResolvedBadge> badges) {
+            this.version = version;
+            this.badges = badges;
+        }
+    }
+
+    private static final class ResolvedBadge {
+        private final Integer slot;
+
+        private final Long badgeDefinitionId;
+
+        private final Long achievementRankId;
+
+        private final int rank;
+
+        private ResolvedBadge(Integer slot, Long badgeDefinitionId, Long achievementRankId, Integer rank) {
+            this.slot = slot;
+            this.badgeDefinitionId = badgeDefinitionId;
+            this.achievementRankId = achievementRankId;
+            this.rank = rank;
+        }
+    }
+}
@@ -88,6 +88,9 @@ public class BasketBO {
     @EJB
     private AmplifierDAO amplifierDAO;
 
+    @EJB
+    private GarageCacheBO garageCacheBO;
+
     public ProductEntity findProduct(String productId) {
         return productDao.findByProductId(productId);
     }
@@ -272,6 +275,7 @@ public class BasketBO {
         }
 
         carSlotDAO.insert(carSlotEntity);
+        garageCacheBO.bump(personaEntity.getPersonaId());
 
         performanceBO.calcNewCarClass(carSlotEntity.getOwnedCar().getCustomCar());
 
@@ -318,6 +322,7 @@ public class BasketBO {
 
         double cashTotal = personaEntity.getCash() + ownedCarEntity.getCustomCar().getResalePrice();
         driverPersonaBO.updateCash(personaEntity, cashTotal);
+        garageCacheBO.bump(personaId);
 
         return true;
     }
@@ -363,6 +368,7 @@ public class BasketBO {
         carSlotDAO.delete(carSlotEntity);
         personaEntity.setCurCarIndex(curCarIndex);
         personaDao.update(personaEntity);
+        garageCacheBO.bump(personaEntity.getPersonaId());
 
         return true;
     }
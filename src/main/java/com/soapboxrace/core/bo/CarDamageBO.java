@@ -36,6 +36,9 @@ public class CarDamageBO {
     @EJB
     private InventoryItemDAO inventoryItemDAO;
 
+    @EJB
+    private GarageCacheBO garageCacheBO;
+
     public Integer induceCarDamage(Long personaId, ArbitrationPacket arbitrationPacket, EventEntity eventEntity) {
         if (!parameterBO.getBoolParam("ENABLE_CAR_DAMAGE")) {
             return 100;
@@ -69,5 +72,13 @@ public class CarDamageBO {
 
         ownedCarDAO.update(ownedCarEntity);
         customCarDAO.update(customCarEntity);
+        garageCacheBO.bump(ownedCarEntity.getCarSlot().getPersona().getPersonaId());
+    }
+
+    public void updateHeat(OwnedCarEntity ownedCarEntity, float heat) {
+        ownedCarEntity.setHeat(heat);
+
+        ownedCarDAO.update(ownedCarEntity);
+        garageCacheBO.bump(ownedCarEntity.getCarSlot().getPersona().getPersonaId());
     }
 }
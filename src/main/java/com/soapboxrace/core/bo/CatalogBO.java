@@ -0,0 +1,108 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo;
+
+import com.soapboxrace.core.bo.util.CatalogSnapshot;
+import com.soapboxrace.core.dao.CarClassesDAO;
+import com.soapboxrace.core.dao.CategoryDAO;
+import com.soapboxrace.core.dao.ProductDAO;
+import com.soapboxrace.core.dao.VinylProductDAO;
+import com.soapboxrace.core.jpa.ProductEntity;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the static catalog (products, vinyls, categories and car classes) in memory.
+ * The catalog is loaded at startup and replaced as a whole by {@link #reload()}, so readers always see
+ * a consistent {@link CatalogSnapshot}.
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
+public class CatalogBO {
+
+    @EJB
+    private ProductDAO productDAO;
+
+    @EJB
+    private VinylProductDAO vinylProductDAO;
+
+    @EJB
+    private CategoryDAO categoryDAO;
+
+    @EJB
+    private CarClassesDAO carClassesDAO;
+
+    @EJB
+    private CatalogResponseCacheBO catalogResponseCacheBO;
+
+    private final AtomicLong versionCounter = new AtomicLong();
+
+    private volatile CatalogSnapshot snapshot;
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * Loads the catalog from the database and swaps it in.
+     *
+     * @return the new snapshot
+     */
+    public CatalogSnapshot reload() {
+        long start = System.currentTimeMillis();
+        CatalogSnapshot newSnapshot = new CatalogSnapshot(versionCounter.incrementAndGet(), productDAO.findAll(),
+                vinylProductDAO.findAll(), categoryDAO.getAll(), carClassesDAO.findAll());
+        this.snapshot = newSnapshot;
+        catalogResponseCacheBO.invalidate();
+
+        System.out.println("Loaded catalog v" + newSnapshot.getVersion() + " (" + newSnapshot.getProductCount()
+                + " products) in " + (System.currentTimeMillis() - start) + "ms");
+        return newSnapshot;
+    }
+
+    public CatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Gets the product with the given hash.
+     *
+     * @param hash the product hash
+     * @return the product
+     * @throws RuntimeException if there is no such product
+     */
+    public ProductEntity findProductByHash(Integer hash) {
+        ProductEntity productEntity = snapshot.getProductByHash(hash);
+
+        if (productEntity == null) {
+            throw new RuntimeException("Could not find product with hash: " + hash);
+        }
+
+        return productEntity;
+    }
+
+    /**
+     * Gets the product with the given entitlement tag.
+     *
+     * @param entitlementTag the entitlement tag
+     * @return the product
+     * @throws RuntimeException if there is no such product
+     */
+    public ProductEntity findProductByEntitlementTag(String entitlementTag) {
+        ProductEntity productEntity = snapshot.getProductByEntitlementTag(entitlementTag);
+
+        if (productEntity == null) {
+            throw new RuntimeException("Could not find product with tag: " + entitlementTag);
+        }
+
+        return productEntity;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.io.ByteStreams;
+import com.soapboxrace.core.api.util.MarshallerInterceptor;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.*;
+import java.io.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Caches catalog responses as gzipped XML, ready to be written to clients.
+ * The cache is bounded by the total size of the stored responses ({@code CATALOG_RESPONSE_CACHE_BYTES})
+ * and is cleared whenever the catalog is reloaded.
+ *
+ * @see CatalogBO
+ */
+@Singleton
+@Lock(LockType.READ)
+public class CatalogResponseCacheBO {
+
+    @EJB
+    private ParameterBO parameterBO;
+
+    private final LongAdder bytesServed = new LongAdder();
+
+    private Cache<String, byte[]> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(parameterBO.getIntParam("CATALOG_RESPONSE_CACHE_BYTES", 32 * 1024 * 1024))
+                .weigher((String key, byte[] value) -> value.length)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Gets the gzipped XML response for the given key, building it if it isn't cached.
+     *
+     * @param key    the cache key; it must include everything the response depends on
+     * @param loader builds the response object
+     * @return the gzipped XML
+     */
+    public byte[] getGzipped(String key, Supplier<Object> loader) {
+        boolean[] built = new boolean[1];
+
+        try {
+            byte[] response = cache.get(key, () -> {
+                built[0] = true;
+                return gzip(loader.get());
+            });
+
+            if (!built[0]) {
+                bytesServed.add(response.length);
+            }
+
+            return response;
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to build catalog response " + key, e.getCause());
+        }
+    }
+
+    public void invalidate() {
+        cache.invalidateAll();
+    }
+
+    public double getHitRatio() {
+        return cache.stats().hitRate();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return the number of gzipped bytes served from the cache since startup, not counting responses that had to
+     * be built first
+     */
+    public long getBytesServed() {
+        return bytesServed.sum();
+    }
+
+    public long getSize() {
+        return cache.size();
+    }
+
+    /**
+     * Decompresses a response for clients that don't accept gzip.
+     *
+     * @param gzipped the gzipped response
+     * @return the plain XML
+     */
+    public static byte[] gunzip(byte[] gzipped) {
+        try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return ByteStreams.toByteArray(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static byte[] gzip(Object response) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(outputStream),
+                MarshallerInterceptor.CHARSET))) {
+            MarshallerInterceptor.marshal(response, null, writer);
+        }
+
+        return outputStream.toByteArray();
+    }
+}
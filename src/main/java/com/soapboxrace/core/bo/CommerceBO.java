@@ -34,10 +34,7 @@ public class CommerceBO {
     private PersonaDAO personaDAO;
 
     @EJB
-    private ProductDAO productDAO;
-
-    @EJB
-    private VinylProductDAO vinylProductDAO;
+    private CatalogBO catalogBO;
 
     @EJB
     private InventoryItemDAO inventoryItemDAO;
@@ -54,6 +51,9 @@ public class CommerceBO {
     @EJB
     private AchievementBO achievementBO;
 
+    @EJB
+    private GarageCacheBO garageCacheBO;
+
     public CommerceSessionResultTrans doCommerce(CommerceSessionTrans commerceSessionTrans, Long personaId) {
         List<BasketItemTrans> basketItems = commerceSessionTrans.getBasket().getItems().getBasketItemTrans();
         PersonaEntity personaEntity = personaDAO.findById(personaId);
@@ -117,7 +117,7 @@ public class CommerceBO {
 
         for (Map.Entry<Integer, Object> addedItem : addedItems.entrySet()) {
             if (addedItem.getValue() instanceof CustomVinylTrans) {
-                VinylProductEntity vinylProductEntity = vinylProductDAO.findByHash(addedItem.getKey());
+                VinylProductEntity vinylProductEntity = catalogBO.getSnapshot().getVinylByHash(addedItem.getKey());
 
                 if (vinylProductEntity != null) {
                     if (vinylProductEntity.getCurrency().equals("CASH"))
@@ -129,7 +129,7 @@ public class CommerceBO {
                     return commerceSessionResultTrans;
                 }
             } else {
-                ProductEntity productEntity = productDAO.findByHash(addedItem.getKey());
+                ProductEntity productEntity = catalogBO.findProductByHash(addedItem.getKey());
 
                 if (productEntity != null) {
                     if (basketItems.stream().anyMatch(p -> p.getProductId().equalsIgnoreCase(productEntity.getProductId()))) {
@@ -149,7 +149,7 @@ public class CommerceBO {
 
         for (Map.Entry<Integer, Object> removedItem : removedItems.entrySet()) {
             if (!(removedItem.getValue() instanceof CustomVinylTrans)) {
-                ProductEntity productEntity = productDAO.findByHash(removedItem.getKey());
+                ProductEntity productEntity = catalogBO.findProductByHash(removedItem.getKey());
 
                 if (productEntity != null) {
                     if (productEntity.getCurrency().equals("CASH"))
@@ -192,6 +192,7 @@ public class CommerceBO {
         customCarDAO.update(customCar);
         personaEntity.setBoost(finalBoost);
         driverPersonaBO.updateCash(personaEntity, finalCash);
+        garageCacheBO.bump(personaId);
 
         commerceSessionResultTrans.setUpdatedCar(personaBO.getDefaultCar(personaId));
         commerceSessionResultTrans.setInvalidBasket(new InvalidBasketTrans());
@@ -220,14 +221,14 @@ public class CommerceBO {
             customizationContext = new AchievementCustomizationContext(AchievementCustomizationContext.Type.PERF);
             customizationContext.setPerformancePartsAdded(perfPartsAdded.stream()
                     .map(p -> {
-                        ProductEntity product = productDAO.findByHash(p.getPerformancePartAttribHash());
+                        ProductEntity product = catalogBO.findProductByHash(p.getPerformancePartAttribHash());
                         return new AchievementCustomizationContext.WrappedPart<>(p, product);
                     }).collect(Collectors.toList()));
         } else if (!skillModsAdded.isEmpty()) {
             customizationContext = new AchievementCustomizationContext(AchievementCustomizationContext.Type.SKILLS);
             customizationContext.setSkillModPartsAdded(skillModsAdded.stream()
                     .map(p -> {
-                        ProductEntity product = productDAO.findByHash(p.getSkillModPartAttribHash());
+                        ProductEntity product = catalogBO.findProductByHash(p.getSkillModPartAttribHash());
                         return new AchievementCustomizationContext.WrappedPart<>(p, product);
                     }).collect(Collectors.toList()));
         } else if (!visualPartsAdded.isEmpty()) {
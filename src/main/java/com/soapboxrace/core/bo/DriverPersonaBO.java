@@ -16,8 +16,8 @@ import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Random;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Stateless
 public class DriverPersonaBO {
@@ -67,6 +67,18 @@ public class DriverPersonaBO {
     @EJB
     private SocialRelationshipDAO socialRelationshipDAO;
 
+    @EJB
+    private AchievementRarityBO achievementRarityBO;
+
+    @EJB
+    private BadgeViewBO badgeViewBO;
+
+    @EJB
+    private FriendGraphBO friendGraphBO;
+
+    @EJB
+    private GarageCacheBO garageCacheBO;
+
     public ProfileData createPersona(Long userId, PersonaEntity personaEntity) {
         UserEntity userEntity = userDao.findById(userId);
 
@@ -86,6 +98,7 @@ public class DriverPersonaBO {
         personaEntity.setFirstLogin(personaEntity.getCreated());
         personaEntity.setLastLogin(personaEntity.getCreated());
         personaDao.insert(personaEntity);
+        achievementRarityBO.personaCreated();
 
         inventoryBO.createInventory(personaEntity);
         createThInformation(personaEntity);
@@ -134,48 +147,71 @@ public class DriverPersonaBO {
     }
 
     public ArrayOfBadgePacket getBadges(Long personaId) {
-        ArrayOfBadgePacket arrayOfBadgePacket = new ArrayOfBadgePacket();
-
-        for (PersonaBadgeEntity personaBadgeEntity : personaBadgeDAO.findAllBadgesForPersona(personaId)) {
-            PersonaAchievementRankEntity personaAchievementRankEntity =
-                    personaAchievementRankDAO.findHighestCompletedRankOfAchievementByPersona(
-                            personaId, personaBadgeEntity.getBadgeDefinitionEntity().getAchievementEntity().getId());
-            if (personaAchievementRankEntity != null) {
-                BadgePacket badgePacket = new BadgePacket();
-                badgePacket.setAchievementRankId(personaAchievementRankEntity.getAchievementRankEntity().getId().intValue());
-                badgePacket.setBadgeDefinitionId(personaBadgeEntity.getBadgeDefinitionEntity().getId().intValue());
-                badgePacket.setIsRare(personaAchievementRankEntity.getAchievementRankEntity().isRare());
-                badgePacket.setRarity(personaAchievementRankEntity.getAchievementRankEntity().getRarity());
-                badgePacket.setSlotId(personaBadgeEntity.getSlot().shortValue());
-                arrayOfBadgePacket.getBadgePacket().add(badgePacket);
-            }
-        }
-
-        return arrayOfBadgePacket;
+        return badgeViewBO.getBadges(personaId);
     }
 
+    /**
+     * Gets the {@link PersonaBase} of every persona in the list, up to the first one that doesn't exist.
+     * Personas, badges and presences are each loaded in bulk.
+     *
+     * @param personaIdList the persona IDs
+     * @return the persona bases, in list order
+     */
     public ArrayOfPersonaBase getPersonaBaseFromList(List<Long> personaIdList) {
         ArrayOfPersonaBase arrayOfPersonaBase = new ArrayOfPersonaBase();
+
+        if (personaIdList.isEmpty()) {
+            return arrayOfPersonaBase;
+        }
+
+        Map<Long, PersonaEntity> personas = new HashMap<>();
+
+        for (PersonaEntity personaEntity : personaDao.findByIds(new HashSet<>(personaIdList))) {
+            personas.put(personaEntity.getPersonaId(), personaEntity);
+        }
+
+        // like before, the list ends at the first persona that doesn't exist
+        List<PersonaEntity> found = new ArrayList<>(personaIdList.size());
+
         for (Long personaId : personaIdList) {
-            PersonaEntity personaEntity = personaDao.findById(personaId);
+            PersonaEntity personaEntity = personas.get(personaId);
             if (personaEntity == null) {
-                return arrayOfPersonaBase;
+                break;
             }
-            arrayOfPersonaBase.getPersonaBase().add(getPersonaBase(personaEntity));
+            found.add(personaEntity);
+        }
+
+        if (found.isEmpty()) {
+            return arrayOfPersonaBase;
         }
+
+        Set<Long> foundIds = found.stream().map(PersonaEntity::getPersonaId).collect(Collectors.toSet());
+        Map<Long, ArrayOfBadgePacket> badges = badgeViewBO.getBadges(foundIds);
+        Map<Long, Long> presences = presenceBO.getPresences(foundIds);
+
+        for (PersonaEntity personaEntity : found) {
+            arrayOfPersonaBase.getPersonaBase().add(getPersonaBase(personaEntity,
+                    badges.get(personaEntity.getPersonaId()), presences.get(personaEntity.getPersonaId())));
+        }
+
         return arrayOfPersonaBase;
     }
 
     public PersonaBase getPersonaBase(PersonaEntity personaEntity) {
+        return getPersonaBase(personaEntity, getBadges(personaEntity.getPersonaId()),
+                presenceBO.getPresence(personaEntity.getPersonaId()));
+    }
+
+    private PersonaBase getPersonaBase(PersonaEntity personaEntity, ArrayOfBadgePacket arrayOfBadgePacket,
+                                       Long presence) {
         PersonaBase personaBase = new PersonaBase();
-        ArrayOfBadgePacket arrayOfBadgePacket = getBadges(personaEntity.getPersonaId());
 
         personaBase.setBadges(arrayOfBadgePacket);
         personaBase.setIconIndex(personaEntity.getIconIndex());
         personaBase.setLevel(personaEntity.getLevel());
         personaBase.setMotto(personaEntity.getMotto());
         personaBase.setName(personaEntity.getName());
-        personaBase.setPresence(presenceBO.getPresence(personaEntity.getPersonaId()));
+        personaBase.setPresence(presence);
         personaBase.setPersonaId(personaEntity.getPersonaId());
         personaBase.setScore(personaEntity.getScore());
         personaBase.setUserId(personaEntity.getUser().getId());
@@ -190,14 +226,17 @@ public class DriverPersonaBO {
             carSlotDAO.delete(carSlotEntity);
         }
         carSlotDAO.deleteByPersona(personaEntity);
+        garageCacheBO.bump(personaId);
         lobbyEntrantDAO.deleteByPersona(personaEntity);
         treasureHuntDAO.deleteByPersona(personaEntity);
         inventoryItemDAO.deleteByPersona(personaEntity);
         inventoryDAO.deleteByPersona(personaEntity);
-        personaAchievementRankDAO.deleteByPersona(personaEntity);
+        achievementRarityBO.personaDeleted(personaAchievementRankDAO.deleteByPersona(personaEntity));
         personaAchievementDAO.deleteByPersona(personaEntity);
         personaBadgeDAO.deleteAllBadgesForPersona(personaId);
+        badgeViewBO.invalidate(personaId);
         socialRelationshipDAO.deleteAllByPersonaId(personaId);
+        friendGraphBO.removePersona(personaId);
 
         personaDao.delete(personaEntity);
         user.setSelectedPersonaIndex(Math.max(0, user.getSelectedPersonaIndex() - 1));
@@ -8,7 +8,6 @@ package com.soapboxrace.core.bo;
 
 import com.soapboxrace.core.dao.EventDataDAO;
 import com.soapboxrace.core.dao.EventSessionDAO;
-import com.soapboxrace.core.dao.OwnedCarDAO;
 import com.soapboxrace.core.dao.PersonaDAO;
 import com.soapboxrace.core.engine.EngineException;
 import com.soapboxrace.core.engine.EngineExceptionCode;
@@ -44,9 +43,6 @@ public class EventResultPursuitBO extends EventResultBO<PursuitArbitrationPacket
     @EJB
     private AchievementBO achievementBO;
 
-    @EJB
-    private OwnedCarDAO ownedCarDAO;
-
     @EJB
     private PersonaBO personaBO;
 
@@ -100,8 +96,7 @@ public class EventResultPursuitBO extends EventResultBO<PursuitArbitrationPacket
         achievementBO.commitTransaction(personaEntity, transaction);
 
         OwnedCarEntity ownedCarEntity = personaBO.getDefaultCarEntity(activePersonaId).getOwnedCar();
-        ownedCarEntity.setHeat(isBusted ? 1 : pursuitArbitrationPacket.getHeat());
-        ownedCarDAO.update(ownedCarEntity);
+        carDamageBO.updateHeat(ownedCarEntity, isBusted ? 1 : pursuitArbitrationPacket.getHeat());
         eventDataDao.update(eventDataEntity);
         eventSessionDao.update(eventSessionEntity);
 
@@ -0,0 +1,133 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.soapboxrace.core.dao.SocialRelationshipDAO;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.*;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index of accepted friendships: for each user, the personas their presence updates go to.
+ * <p>
+ * A user's entry is loaded from the database the first time it is needed, and evicted when the user goes
+ * offline. Users whose session ends without an offline presence are dropped once the index is full or their
+ * entry hasn't been used for a while. {@link SocialRelationshipBO} keeps loaded entries in sync; changes made
+ * inside a transaction are applied once it commits.
+ */
+@Singleton
+@Lock(LockType.READ)
+public class FriendGraphBO {
+
+    private static final long STATUS_FRIENDS = 1L;
+
+    @EJB
+    private ParameterBO parameterBO;
+
+    @EJB
+    private SocialRelationshipDAO socialRelationshipDAO;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    private Cache<Long, Set<Long>> cache;
+
+    private ConcurrentMap<Long, Set<Long>> friendsByUser;
+
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(parameterBO.getIntParam("FRIEND_GRAPH_MAX_USERS", 50000))
+                .expireAfterAccess(parameterBO.getIntParam("FRIEND_GRAPH_EXPIRY_MINUTES", 60), TimeUnit.MINUTES)
+                .build();
+        friendsByUser = cache.asMap();
+    }
+
+    /**
+     * @param userId the user ID
+     * @return the IDs of the personas the user is friends with
+     */
+    public Set<Long> getFriendPersonaIds(Long userId) {
+        return Collections.unmodifiableSet(friendsByUser.computeIfAbsent(userId, this::load));
+    }
+
+    public void addFriendship(Long userId, Long friendPersonaId) {
+        afterCommit(() -> friendsByUser.computeIfPresent(userId, (k, friends) -> {
+            friends.add(friendPersonaId);
+            return friends;
+        }));
+    }
+
+    public void removeFriendship(Long userId, Long friendPersonaId) {
+        afterCommit(() -> friendsByUser.computeIfPresent(userId, (k, friends) -> {
+            friends.remove(friendPersonaId);
+            return friends;
+        }));
+    }
+
+    /**
+     * Removes a deleted persona from every friend list.
+     *
+     * @param personaId the persona ID
+     */
+    public void removePersona(Long personaId) {
+        afterCommit(() -> friendsByUser.values().forEach(friends -> friends.remove(personaId)));
+    }
+
+    /**
+     * Drops the entry of a user that went offline.
+     *
+     * @param userId the user ID
+     */
+    public void evict(Long userId) {
+        friendsByUser.remove(userId);
+    }
+
+    /**
+     * @return the number of users in the index
+     */
+    public long getSize() {
+        return cache.size();
+    }
+
+    private Set<Long> load(Long userId) {
+        Set<Long> friends = ConcurrentHashMap.newKeySet();
+        friends.addAll(socialRelationshipDAO.findRemotePersonaIdsByUserIdAndStatus(userId, STATUS_FRIENDS));
+        return friends;
+    }
+
+    private void afterCommit(Runnable change) {
+        if (transactionSynchronizationRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            change.run();
+            return;
+        }
+
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    change.run();
+                }
+            }
+        });
+    }
+}
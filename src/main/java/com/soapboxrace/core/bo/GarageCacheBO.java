@@ -0,0 +1,173 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.*;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a version number for each persona's garage, and caches the gzipped garage responses
+ * ({@code /personas/{id}/carslots} and {@code /personas/{id}/cars}) until the version changes.
+ * <p>
+ * Anything that changes a garage must call {@link #bump(Long)}. Inside a transaction, the version is bumped once
+ * the transaction commits, so a response built from uncommitted data is never cached under the new version.
+ * The cache is bounded by the total size of the stored responses ({@code GARAGE_CACHE_BYTES}), and the personas
+ * whose garages were least recently requested are evicted first.
+ */
+@Singleton
+@Lock(LockType.READ)
+public class GarageCacheBO {
+
+    public static final String CARSLOTS = "carslots";
+
+    public static final String CARS = "cars";
+
+    @EJB
+    private ParameterBO parameterBO;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    private final AtomicLong versionCounter = new AtomicLong();
+
+    private final ConcurrentMap<Long, Long> versions = new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder cachedBytes = new LongAdder();
+
+    private Cache<String, CachedGarage> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(parameterBO.getIntParam("GARAGE_CACHE_BYTES", 16 * 1024 * 1024))
+                .weigher((String key, CachedGarage value) -> value.gzipped.length)
+                .removalListener((RemovalListener<String, CachedGarage>) notification ->
+                        cachedBytes.add(-notification.getValue().gzipped.length))
+                .build();
+    }
+
+    /**
+     * Marks the garage of the given persona as changed.
+     *
+     * @param personaId the ID of the persona whose garage changed
+     */
+    public void bump(Long personaId) {
+        if (transactionSynchronizationRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            bumpNow(personaId);
+            return;
+        }
+
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    bumpNow(personaId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets a gzipped garage response, building it if the cached one is missing or out of date.
+     *
+     * @param resource  {@link #CARSLOTS} or {@link #CARS}
+     * @param personaId the ID of the persona
+     * @param variant   anything else the response depends on, such as the car slot limit
+     * @param loader    builds the response object
+     * @return the gzipped XML
+     */
+    public byte[] getGzipped(String resource, Long personaId, int variant, Supplier<Object> loader) {
+        // the version has to be read before the garage is loaded, so that a concurrent bump is never missed
+        long version = versions.getOrDefault(personaId, 0L);
+        String key = resource + "/" + personaId;
+        CachedGarage cachedGarage = cache.getIfPresent(key);
+
+        if (cachedGarage != null && cachedGarage.version == version && cachedGarage.variant == variant) {
+            hitCount.increment();
+            return cachedGarage.gzipped;
+        }
+
+        missCount.increment();
+        byte[] gzipped;
+
+        try {
+            gzipped = CatalogResponseCacheBO.gzip(loader.get());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to build garage response " + key, e);
+        }
+
+        cachedBytes.add(gzipped.length);
+        cache.put(key, new CachedGarage(version, variant, gzipped));
+        return gzipped;
+    }
+
+    public double getHitRatio() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total == 0 ? 1.0 : (double) hits / total;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return the total size of the cached responses, in bytes
+     */
+    public long getCachedBytes() {
+        return cachedBytes.sum();
+    }
+
+    public long getSize() {
+        return cache.size();
+    }
+
+    private void bumpNow(Long personaId) {
+        versions.put(personaId, versionCounter.incrementAndGet());
+        cache.invalidate(CARSLOTS + "/" + personaId);
+        cache.invalidate(CARS + "/" + personaId);
+    }
+
+    private static final class CachedGarage {
+        private final long version;
+
+        private final int variant;
+
+        private final byte[] gzipped;
+
+        private CachedGarage(long version, int variant, byte[] gzipped) {
+            this.version = version;
+            this.variant = variant;
+            this.gzipped = gzipped;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.common.net.InetAddresses;
+import com.maxmind.db.Reader;
+import com.maxmind.geoip2.DatabaseReader;
+import com.maxmind.geoip2.exception.AddressNotFoundException;
+import com.soapboxrace.core.bo.util.LatencyHistogram;
+import com.soapboxrace.core.bo.util.MetricsRegistry;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves IP addresses to countries with the MaxMind database at {@code GEOIP2_DB_FILE_PATH}.
+ * <p>
+ * The database is memory-mapped once, and results are kept in an LRU cache of {@code GEOIP_CACHE_SIZE}
+ * addresses. Both are reset by {@link #reload()} when the parameters are reloaded.
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
+public class GeoIpBO {
+
+    private static final LatencyHistogram LOOKUP_TIMER = MetricsRegistry.timer("geoip_lookup");
+
+    @EJB
+    private ParameterBO parameterBO;
+
+    private volatile Database database;
+
+    private volatile AllowList allowList = new AllowList("", Set.of());
+
+    @PostConstruct
+    public void init() {
+        database = openDatabase();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closeReader(database.reader);
+    }
+
+    /**
+     * Reopens the database if its path changed, and clears the cache.
+     * <p>
+     * The old reader is not closed, since lookups that started before the swap may still be using it. It is
+     * released once it is no longer reachable.
+     */
+    public void reload() {
+        database = openDatabase();
+    }
+
+    /**
+     * @param ip an IP address
+     * @return the ISO code of the country of the address, or an empty string if it is unknown
+     */
+    public String getCountryIso(String ip) {
+        long start = System.nanoTime();
+        Database database = this.database;
+
+        try {
+            return database.cache.get(ip, () -> database.lookup(ip));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            // e.g. a malformed address, which InetAddresses rejects with an IllegalArgumentException
+            System.err.println("error inside geoip lookup [" + e.getCause().getMessage() + "]");
+            return "";
+        } finally {
+            LOOKUP_TIMER.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @param ip               an IP address
+     * @param allowedCountries the allowed country codes, separated by semicolons
+     * @return whether the address is in one of the allowed countries
+     */
+    public boolean isCountryAllowed(String ip, String allowedCountries) {
+        AllowList allowList = this.allowList;
+
+        if (!allowList.source.equals(allowedCountries)) {
+            allowList = new AllowList(allowedCountries,
+                    Arrays.stream(allowedCountries.split(";")).map(String::trim).collect(Collectors.toSet()));
+            this.allowList = allowList;
+        }
+
+        return allowList.countries.contains(getCountryIso(ip));
+    }
+
+    public double getCacheHitRatio() {
+        return database.cache.stats().hitRate();
+    }
+
+    private static void closeReader(DatabaseReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                System.err.println("error inside geoip class [" + e.getMessage() + "]");
+            }
+        }
+    }
+
+    private Database openDatabase() {
+        String path = parameterBO.getStrParam("GEOIP2_DB_FILE_PATH");
+        Database current = database;
+        DatabaseReader reader = null;
+
+        if (current != null && current.reader != null && Objects.equals(current.path, path)) {
+            // same file; keep the mapping and only start over with an empty cache
+            return new Database(path, current.reader, parameterBO.getIntParam("GEOIP_CACHE_SIZE", 10000));
+        }
+
+        if (path != null) {
+            try {
+                reader = new DatabaseReader.Builder(new File(path)).fileMode(Reader.FileMode.MEMORY_MAPPED).build();
+            } catch (IOException e) {
+                System.err.println("error inside geoip class [" + e.getMessage() + "]");
+            }
+        }
+
+        return new Database(path, reader, parameterBO.getIntParam("GEOIP_CACHE_SIZE", 10000));
+    }
+
+    private static class Database {
+        private final String path;
+
+        private final DatabaseReader reader;
+
+        private final Cache<String, String> cache;
+
+        private Database(String path, DatabaseReader reader, int cacheSize) {
+            this.path = path;
+            this.reader = reader;
+            this.cache = CacheBuilder.newBuilder().maximumSize(cacheSize).recordStats().build();
+        }
+
+        private String lookup(String ip) throws Exception {
+            if (reader == null) {
+                return "";
+            }
+
+            try {
+                // parse the address without any name resolution
+                String isoCode = reader.country(InetAddresses.forString(ip)).getCountry().getIsoCode();
+                return isoCode != null ? isoCode : "";
+            } catch (AddressNotFoundException e) {
+                return "";
+            }
+        }
+    }
+
+    private static class AllowList {
+        private final String source;
+
+        private final Set<String> countries;
+
+        private AllowList(String source, Set<String> countries) {
+            this.source = source;
+            this.countries = countries;
+        }
+    }
+}
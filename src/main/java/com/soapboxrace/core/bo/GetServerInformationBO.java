@@ -6,13 +6,24 @@
 
 package com.soapboxrace.core.bo;
 
+import com.google.common.hash.Hashing;
 import com.soapboxrace.core.dao.ServerInfoDAO;
 import com.soapboxrace.core.jpa.ServerInfoEntity;
 
-import javax.ejb.EJB;
-import javax.ejb.Stateless;
+import javax.annotation.PostConstruct;
+import javax.ejb.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
-@Stateless
+/**
+ * Holds the server information polled by launchers. A snapshot is rebuilt every 5 seconds in the background,
+ * and its rendered response is kept until the next snapshot, so polls never touch the database.
+ * <p>
+ * The returned {@link ServerInfoEntity} is shared and must not be modified.
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
 public class GetServerInformationBO {
 
     @EJB
@@ -24,14 +35,119 @@ public class GetServerInformationBO {
     @EJB
     private ParameterBO parameterBO;
 
-    public ServerInfoEntity getServerInformation() {
+    private final LongAdder pollCount = new LongAdder();
+
+    private final LongAdder renderedCount = new LongAdder();
+
+    private final LongAdder notModifiedCount = new LongAdder();
+
+    private volatile ServerInfoEntity serverInfoEntity;
+
+    private volatile RenderedServerInformation rendered;
+
+    @PostConstruct
+    public void init() {
+        refresh();
+    }
+
+    @Schedule(second = "*/5", minute = "*", hour = "*", persistent = false)
+    public void refresh() {
         ServerInfoEntity serverInfoEntity = serverInfoDAO.findInfo();
+
+        if (serverInfoEntity == null) {
+            // keep serving the previous snapshot, if there is one
+            System.err.println("SERVER_INFO is empty, the server information was not refreshed");
+            return;
+        }
+
         serverInfoEntity.setOnlineNumber(onlineUsersBO.getNumberOfUsersOnlineNow());
         String ticketToken = parameterBO.getStrParam("TICKET_TOKEN");
         serverInfoEntity.setRequireTicket(ticketToken != null);
         serverInfoEntity.setServerVersion("1.0.2");
 
+        this.serverInfoEntity = serverInfoEntity;
+    }
+
+    /**
+     * @return the current snapshot, or {@code null} if SERVER_INFO has been empty since startup
+     */
+    public ServerInfoEntity getServerInformation() {
         return serverInfoEntity;
     }
 
+    /**
+     * Gets the rendered response for the current snapshot, rendering it if this is the first request since the
+     * last refresh.
+     *
+     * @param renderer renders the snapshot; it is called at most once per snapshot, save for concurrent requests
+     * @return the rendered response, or {@code null} if there is no snapshot yet
+     */
+    public RenderedServerInformation getRendered(Function<ServerInfoEntity, byte[]> renderer) {
+        ServerInfoEntity serverInfoEntity = this.serverInfoEntity;
+        RenderedServerInformation rendered = this.rendered;
+        pollCount.increment();
+
+        if (serverInfoEntity == null) {
+            return null;
+        }
+
+        if (rendered != null && rendered.source == serverInfoEntity) {
+            return rendered;
+        }
+
+        byte[] body = renderer.apply(serverInfoEntity);
+        // an unchanged body keeps its ETag, so launchers polling with If-None-Match are not affected by refreshes
+        rendered = new RenderedServerInformation(serverInfoEntity, body,
+                Hashing.murmur3_128().hashBytes(body).toString());
+        this.rendered = rendered;
+        renderedCount.increment();
+        return rendered;
+    }
+
+    public void notModified() {
+        notModifiedCount.increment();
+    }
+
+    /**
+     * @return the number of polls
+     */
+    public long getPollCount() {
+        return pollCount.sum();
+    }
+
+    /**
+     * @return the number of polls that had to render the response; the others were served from the cache
+     */
+    public long getRenderedCount() {
+        return renderedCount.sum();
+    }
+
+    /**
+     * @return the number of polls answered with 304 Not Modified
+     */
+    public long getNotModifiedCount() {
+        return notModifiedCount.sum();
+    }
+
+    public static class RenderedServerInformation {
+        private final ServerInfoEntity source;
+
+        private final byte[] body;
+
+        private final String etag;
+
+        private RenderedServerInformation(ServerInfoEntity source, byte[] body, String etag) {
+            this.source = source;
+            this.body = body;
+            this.etag = etag;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
 }
@@ -0,0 +1,73 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo;
+
+import com.soapboxrace.core.dao.UserDAO;
+
+import javax.annotation.PreDestroy;
+import javax.ejb.*;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes the hardware IDs sent by launchers in the background. Only the latest HWID of each email is kept
+ * until the next flush, and a flush writes all of them in one transaction.
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
+public class HwidWriterBO {
+
+    @EJB
+    private UserDAO userDAO;
+
+    private final ConcurrentMap<String, String> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder writtenCount = new LongAdder();
+
+    /**
+     * Queues the HWID of the user with the given email. Requests without an email or HWID are ignored.
+     *
+     * @param email the user's email
+     * @param hwid  the HWID
+     */
+    public void submit(String email, String hwid) {
+        if (email != null && hwid != null) {
+            pending.put(email, hwid);
+        }
+    }
+
+    @Schedule(second = "*/10", minute = "*", hour = "*", persistent = false)
+    public void flush() {
+        Iterator<Map.Entry<String, String>> iterator = pending.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<String, String> entry = iterator.next();
+            // a HWID submitted after this point stays queued for the next flush
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                userDAO.updateHwidByEmail(entry.getKey(), entry.getValue());
+                writtenCount.increment();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.sum();
+    }
+}
@@ -9,7 +9,6 @@ package com.soapboxrace.core.bo;
 import com.soapboxrace.core.bo.util.*;
 import com.soapboxrace.core.dao.CardPackDAO;
 import com.soapboxrace.core.dao.PersonaDAO;
-import com.soapboxrace.core.dao.ProductDAO;
 import com.soapboxrace.core.dao.RewardTableDAO;
 import com.soapboxrace.core.engine.EngineException;
 import com.soapboxrace.core.engine.EngineExceptionCode;
@@ -35,7 +34,7 @@ public class ItemRewardBO {
     private PersonaDAO personaDAO;
 
     @EJB
-    private ProductDAO productDAO;
+    private CatalogBO catalogBO;
 
     @EJB
     private RewardTableDAO rewardTableDAO;
@@ -338,7 +337,7 @@ public class ItemRewardBO {
         }
 
         public ItemRewardProduct generateSingleItem(String entitlementTag) {
-            ProductEntity byEntitlementTag = productDAO.findByEntitlementTag(entitlementTag);
+            ProductEntity byEntitlementTag = catalogBO.findProductByEntitlementTag(entitlementTag);
 
             if (byEntitlementTag == null) {
                 throw new IllegalArgumentException("Invalid entitlementTag: " + entitlementTag);
@@ -463,11 +462,11 @@ public class ItemRewardBO {
         @Override
         public ItemRewardQuantityProduct build() {
             if (this.entitlementTag != null && !this.entitlementTag.isEmpty()) {
-                return new ItemRewardQuantityProduct(productDAO.findByEntitlementTag(this.entitlementTag),
+                return new ItemRewardQuantityProduct(catalogBO.findProductByEntitlementTag(this.entitlementTag),
                         this.quantity);
             }
 
-            List<ProductEntity> productEntities = productDAO.findByTraits(
+            List<ProductEntity> productEntities = catalogBO.getSnapshot().getProductsByTraits(
                     this.category,
                     this.productType,
                     this.subType,
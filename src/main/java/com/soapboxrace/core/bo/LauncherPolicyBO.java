@@ -0,0 +1,44 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo;
+
+import com.soapboxrace.core.bo.util.LauncherPolicy;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.*;
+
+/**
+ * Holds the {@link LauncherPolicy} compiled from the current parameters.
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
+public class LauncherPolicyBO {
+
+    @EJB
+    private ParameterBO parameterBO;
+
+    private volatile LauncherPolicy policy;
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * Compiles the policy again, after the parameters have been reloaded.
+     */
+    public void reload() {
+        policy = new LauncherPolicy(parameterBO.getBoolParam("ENABLE_WHITELISTED_LAUNCHERS_ONLY"),
+                parameterBO.getStrParam("WHITELISTED_LAUNCHERS_ONLY", null),
+                parameterBO.getBoolParam("ENABLE_METONATOR_LAUNCHER_PROTECTION"));
+    }
+
+    public LauncherPolicy getPolicy() {
+        return policy;
+    }
+}
@@ -45,6 +45,9 @@ public class LobbyBO {
     @EJB
     private TokenSessionDAO tokenDAO;
 
+    @EJB
+    private TokenSessionStoreBO tokenSessionStoreBO;
+
     @EJB
     private LobbyDAO lobbyDao;
 
@@ -60,6 +63,9 @@ public class LobbyBO {
     @EJB
     private OpenFireSoapBoxCli openFireSoapBoxCli;
 
+    @EJB
+    private LobbyCountdownBO lobbyCountdownBO;
+
     public void joinFastLobby(Long personaId, int carClassHash) {
         List<LobbyEntity> lobbys = lobbyDao.findAllOpen(carClassHash);
 
@@ -142,21 +148,17 @@ public class LobbyBO {
             lobbyInviteType.setPrivate(false);
             lobbyInviteType.setLobbyInviteId(lobbyEntity.getId());
 
-            for (int i = 1; i <= lobbyEntity.getEvent().getMaxPlayers() - 1; i++) {
-                if (lobbyEntity.getEntrants().size() >= lobbyEntity.getEvent().getMaxPlayers()) break;
+            int maxPlayers = lobbyEntity.getEvent().getMaxPlayers();
 
-                Long queuePersona = matchmakingBO.getPlayerFromQueue(carClassHash);
+            for (Long queuePersona : matchmakingBO.getPlayersFromQueue(carClassHash, eventId, maxPlayers - 1)) {
+                if (lobbyEntity.getEntrants().size() >= maxPlayers) break;
 
-                if (!queuePersona.equals(-1L) && !matchmakingBO.isEventIgnored(queuePersona, eventId)) {
-                    if (lobbyEntity.getEntrants().size() < lobbyEntity.getEvent().getMaxPlayers()) {
-                        XmppLobby xmppLobby = new XmppLobby(queuePersona, openFireSoapBoxCli);
-                        xmppLobby.sendLobbyInvite(lobbyInviteType);
-                    }
-                }
+                XmppLobby xmppLobby = new XmppLobby(queuePersona, openFireSoapBoxCli);
+                xmppLobby.sendLobbyInvite(lobbyInviteType);
             }
         }
 
-        new LobbyCountDown(lobbyEntity.getId(), lobbyDao, eventSessionDao, tokenDAO, parameterBO, openFireSoapBoxCli, lobbyEntity.getEvent()).start();
+        lobbyCountdownBO.scheduleLaunch(lobbyEntity.getId(), eventEntity.getLobbyCountdownTime());
 
         return lobbyEntity;
     }
@@ -253,6 +255,8 @@ public class LobbyBO {
         }
 
         matchmakingBO.removePlayerFromQueue(personaId);
+        // the countdown is cancelled when everyone leaves, so bring it back if needed
+        lobbyCountdownBO.scheduleLaunchIfAbsent(lobbyInviteId, lobbyCountdown.getLobbyCountdownInMilliseconds());
         sendJoinMsg(personaId, entrants);
         boolean personaInside = false;
         for (LobbyEntrantEntity lobbyEntrantEntity : entrants) {
@@ -313,6 +317,7 @@ public class LobbyBO {
     private void updateLobby(Long personaId, Long lobbyId) {
         LobbyEntity lobbyEntity = lobbyDao.findById(lobbyId);
         List<LobbyEntrantEntity> listLobbyEntrantEntity = lobbyEntity.getEntrants();
+        int remainingEntrants = 0;
         for (LobbyEntrantEntity entity : listLobbyEntrantEntity) {
             LobbyEntrantRemoved lobbyEntrantRemoved = new LobbyEntrantRemoved();
             if (!Objects.equals(entity.getPersona().getPersonaId(), personaId)) {
@@ -320,113 +325,96 @@ public class LobbyBO {
                 lobbyEntrantRemoved.setLobbyId(lobbyId);
                 XmppLobby xmppLobby = new XmppLobby(entity.getPersona().getPersonaId(), openFireSoapBoxCli);
                 xmppLobby.sendExitMsg(lobbyEntrantRemoved);
+                remainingEntrants++;
             }
         }
-    }
-
-    private class LobbyCountDown extends Thread {
-        private final LobbyDAO lobbyDao;
-
-        private final EventSessionDAO eventSessionDao;
-
-        private final Long lobbyId;
-
-        private final TokenSessionDAO tokenDAO;
-
-        private final ParameterBO parameterBO;
-
-        private final OpenFireSoapBoxCli openFireSoapBoxCli;
-        private final EventEntity eventEntity;
 
-        public LobbyCountDown(Long lobbyId, LobbyDAO lobbyDao, EventSessionDAO eventSessionDao,
-                              TokenSessionDAO tokenDAO, ParameterBO parameterBO,
-                              OpenFireSoapBoxCli openFireSoapBoxCli, EventEntity eventEntity) {
-            this.lobbyId = lobbyId;
-            this.lobbyDao = lobbyDao;
-            this.eventSessionDao = eventSessionDao;
-            this.tokenDAO = tokenDAO;
-            this.parameterBO = parameterBO;
-            this.openFireSoapBoxCli = openFireSoapBoxCli;
-            this.eventEntity = eventEntity;
+        // nobody is left to race, so don't bother launching
+        if (remainingEntrants == 0) {
+            lobbyCountdownBO.cancelLaunch(lobbyId);
         }
+    }
 
-        public void run() {
-            try {
-                Thread.sleep(eventEntity.getLobbyCountdownTime());
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            LobbyEntity lobbyEntity = lobbyDao.findById(lobbyId);
-            List<LobbyEntrantEntity> entrants = lobbyEntity.getEntrants();
-            if (entrants.size() < 2) {
-                return;
-            }
-            entrants.sort(Comparator.<LobbyEntrantEntity>comparingLong(e -> e.getPersona().getPersonaId()).reversed());
-            XMPP_LobbyLaunchedType lobbyLaunched = new XMPP_LobbyLaunchedType();
-            Entrants entrantsType = new Entrants();
-            List<LobbyEntrantInfo> lobbyEntrantInfo = entrantsType.getLobbyEntrantInfo();
-            XMPP_CryptoTicketsType xMPP_CryptoTicketsType = new XMPP_CryptoTicketsType();
-            List<XMPP_P2PCryptoTicketType> p2pCryptoTicket = xMPP_CryptoTicketsType.getP2PCryptoTicket();
-            int i = 0;
-            byte numOfRacers = (byte) entrants.size();
-            EventSessionEntity eventSessionEntity = new EventSessionEntity();
-            eventSessionEntity.setStarted(System.currentTimeMillis());
-            eventSessionEntity.setEvent(lobbyEntity.getEvent());
-            eventSessionEntity.setLobby(lobbyEntity);
-            eventSessionDao.insert(eventSessionEntity);
-            String udpRaceIp = parameterBO.getStrParam("UDP_RACE_IP");
-            for (LobbyEntrantEntity lobbyEntrantEntity : entrants) {
-                // eventDataEntity.setIsSinglePlayer(false);
-                Long personaId = lobbyEntrantEntity.getPersona().getPersonaId();
-                // eventDataEntity.setPersonaId(personaId);
-                byte gridIndex = (byte) i;
-                byte[] helloPacket = {10, 11, 12, 13};
-                ByteBuffer byteBuffer = ByteBuffer.allocate(48);
-                byteBuffer.put(gridIndex);
-                byteBuffer.put(helloPacket);
-                byteBuffer.putInt(eventSessionEntity.getId().intValue());
-                byteBuffer.put(numOfRacers);
-                byteBuffer.putInt(personaId.intValue());
-                byte[] cryptoTicketBytes = byteBuffer.array();
-                String relayCrypotTicket = Base64.getEncoder().encodeToString(cryptoTicketBytes);
-                tokenDAO.updateRelayCrytoTicketByPersonaId(personaId, relayCrypotTicket);
-
-                XMPP_P2PCryptoTicketType p2pCryptoTicketType = new XMPP_P2PCryptoTicketType();
-                p2pCryptoTicketType.setPersonaId(personaId);
-                p2pCryptoTicketType.setSessionKey("AAAAAAAAAAAAAAAAAAAAAA==");
-                p2pCryptoTicket.add(p2pCryptoTicketType);
-
-                LobbyEntrantInfo lobbyEntrantInfoType = new LobbyEntrantInfo();
-                lobbyEntrantInfoType.setPersonaId(personaId);
-                lobbyEntrantInfoType.setLevel(lobbyEntrantEntity.getPersona().getLevel());
-                lobbyEntrantInfoType.setHeat(1);
-                lobbyEntrantInfoType.setGridIndex(i++);
-                lobbyEntrantInfoType.setState(LobbyEntrantState.UNKNOWN);
-
-                lobbyEntrantInfo.add(lobbyEntrantInfoType);
-            }
-            XMPP_EventSessionType xMPP_EventSessionType = new XMPP_EventSessionType();
-            ChallengeType challengeType = new ChallengeType();
-            challengeType.setChallengeId("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa");
-            challengeType.setPattern("FFFFFFFFFFFFFFFF");
-            challengeType.setLeftSize(14);
-            challengeType.setRightSize(50);
-
-            xMPP_EventSessionType.setEventId(lobbyEntity.getEvent().getId());
-            xMPP_EventSessionType.setChallenge(challengeType);
-            xMPP_EventSessionType.setSessionId(eventSessionEntity.getId());
-            lobbyLaunched.setNewRelayServer(true);
-            lobbyLaunched.setLobbyId(lobbyEntity.getId());
-            lobbyLaunched.setUdpRelayHost(udpRaceIp);
-            lobbyLaunched.setUdpRelayPort(parameterBO.getIntParam("UDP_RACE_PORT"));
-
-            lobbyLaunched.setEntrants(entrantsType);
-
-            lobbyLaunched.setEventSession(xMPP_EventSessionType);
-
-            XmppLobby xmppLobby = new XmppLobby(0L, openFireSoapBoxCli);
-            xmppLobby.sendRelay(lobbyLaunched, xMPP_CryptoTicketsType);
+    /**
+     * Launches a lobby once its countdown has ended. Called by {@link LobbyCountdownBO}.
+     * Nothing happens if fewer than two players are left in the lobby.
+     *
+     * @param lobbyId the ID of the lobby to launch
+     */
+    public void launchLobby(Long lobbyId) {
+        LobbyEntity lobbyEntity = lobbyDao.findById(lobbyId);
+        if (lobbyEntity == null) {
+            return;
         }
+        List<LobbyEntrantEntity> entrants = lobbyEntity.getEntrants();
+        if (entrants.size() < 2) {
+            return;
+        }
+        entrants.sort(Comparator.<LobbyEntrantEntity>comparingLong(e -> e.getPersona().getPersonaId()).reversed());
+        XMPP_LobbyLaunchedType lobbyLaunched = new XMPP_LobbyLaunchedType();
+        Entrants entrantsType = new Entrants();
+        List<LobbyEntrantInfo> lobbyEntrantInfo = entrantsType.getLobbyEntrantInfo();
+        XMPP_CryptoTicketsType xMPP_CryptoTicketsType = new XMPP_CryptoTicketsType();
+        List<XMPP_P2PCryptoTicketType> p2pCryptoTicket = xMPP_CryptoTicketsType.getP2PCryptoTicket();
+        int i = 0;
+        byte numOfRacers = (byte) entrants.size();
+        EventSessionEntity eventSessionEntity = new EventSessionEntity();
+        eventSessionEntity.setStarted(System.currentTimeMillis());
+        eventSessionEntity.setEvent(lobbyEntity.getEvent());
+        eventSessionEntity.setLobby(lobbyEntity);
+        eventSessionDao.insert(eventSessionEntity);
+        String udpRaceIp = parameterBO.getStrParam("UDP_RACE_IP");
+        for (LobbyEntrantEntity lobbyEntrantEntity : entrants) {
+            // eventDataEntity.setIsSinglePlayer(false);
+            Long personaId = lobbyEntrantEntity.getPersona().getPersonaId();
+            // eventDataEntity.setPersonaId(personaId);
+            byte gridIndex = (byte) i;
+            byte[] helloPacket = {10, 11, 12, 13};
+            ByteBuffer byteBuffer = ByteBuffer.allocate(48);
+            byteBuffer.put(gridIndex);
+            byteBuffer.put(helloPacket);
+            byteBuffer.putInt(eventSessionEntity.getId().intValue());
+            byteBuffer.put(numOfRacers);
+            byteBuffer.putInt(personaId.intValue());
+            byte[] cryptoTicketBytes = byteBuffer.array();
+            String relayCrypotTicket = Base64.getEncoder().encodeToString(cryptoTicketBytes);
+            tokenDAO.updateRelayCrytoTicketByPersonaId(personaId, relayCrypotTicket);
+            tokenSessionStoreBO.updateRelayCryptoTicketByPersonaId(personaId, relayCrypotTicket);
+
+            XMPP_P2PCryptoTicketType p2pCryptoTicketType = new XMPP_P2PCryptoTicketType();
+            p2pCryptoTicketType.setPersonaId(personaId);
+            p2pCryptoTicketType.setSessionKey("AAAAAAAAAAAAAAAAAAAAAA==");
+            p2pCryptoTicket.add(p2pCryptoTicketType);
+
+            LobbyEntrantInfo lobbyEntrantInfoType = new LobbyEntrantInfo();
+            lobbyEntrantInfoType.setPersonaId(personaId);
+            lobbyEntrantInfoType.setLevel(lobbyEntrantEntity.getPersona().getLevel());
+            lobbyEntrantInfoType.setHeat(1);
+            lobbyEntrantInfoType.setGridIndex(i++);
+            lobbyEntrantInfoType.setState(LobbyEntrantState.UNKNOWN);
+
+            lobbyEntrantInfo.add(lobbyEntrantInfoType);
+        }
+        XMPP_EventSessionType xMPP_EventSessionType = new XMPP_EventSessionType();
+        ChallengeType challengeType = new ChallengeType();
+        challengeType.setChallengeId("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa");
+        challengeType.setPattern("FFFFFFFFFFFFFFFF");
+        challengeType.setLeftSize(14);
+        challengeType.setRightSize(50);
+
+        xMPP_EventSessionType.setEventId(lobbyEntity.getEvent().getId());
+        xMPP_EventSessionType.setChallenge(challengeType);
+        xMPP_EventSessionType.setSessionId(eventSessionEntity.getId());
+        lobbyLaunched.setNewRelayServer(true);
+        lobbyLaunched.setLobbyId(lobbyEntity.getId());
+        lobbyLaunched.setUdpRelayHost(udpRaceIp);
+        lobbyLaunched.setUdpRelayPort(parameterBO.getIntParam("UDP_RACE_PORT"));
+
+        lobbyLaunched.setEntrants(entrantsType);
+
+        lobbyLaunched.setEventSession(xMPP_EventSessionType);
+
+        XmppLobby xmppLobby = new XmppLobby(0L, openFireSoapBoxCli);
+        xmppLobby.sendRelay(lobbyLaunched, xMPP_CryptoTicketsType);
     }
-
 }
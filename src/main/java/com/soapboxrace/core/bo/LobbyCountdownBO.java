@@ -0,0 +1,153 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.*;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs lobby countdowns. Every lobby gets a timer on a single shared scheduler, and lobbies are launched
+ * on a small, fixed pool of container-managed threads once their timer fires.
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
+public class LobbyCountdownBO {
+
+    @EJB
+    private LobbyBO lobbyBO;
+
+    @EJB
+    private ParameterBO parameterBO;
+
+    @Resource
+    private ManagedThreadFactory managedThreadFactory;
+
+    private final ConcurrentMap<Long, ScheduledFuture<?>> countdowns = new ConcurrentHashMap<>();
+
+    private final LongAdder launchCount = new LongAdder();
+
+    private final LongAdder failedLaunchCount = new LongAdder();
+
+    private final LongAdder cancelCount = new LongAdder();
+
+    private final LongAdder launchLatencyNanos = new LongAdder();
+
+    private final AtomicLong maxLaunchLatencyNanos = new AtomicLong();
+
+    private ScheduledThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        executor = new ScheduledThreadPoolExecutor(parameterBO.getIntParam("LOBBY_LAUNCH_THREADS", 4),
+                managedThreadFactory);
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        System.out.println("LobbyCountdownBO shutdown (" + countdowns.size() + " countdown(s) pending)");
+        executor.shutdownNow();
+    }
+
+    /**
+     * Starts the countdown for a lobby, replacing any countdown the lobby already has.
+     *
+     * @param lobbyId     the ID of the lobby
+     * @param delayMillis the countdown time, in milliseconds
+     */
+    public void scheduleLaunch(Long lobbyId, long delayMillis) {
+        ScheduledFuture<?> previous = countdowns.put(lobbyId, createCountdown(lobbyId, delayMillis));
+
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /**
+     * Starts the countdown for a lobby, unless one is already running.
+     *
+     * @param lobbyId     the ID of the lobby
+     * @param delayMillis the countdown time, in milliseconds
+     */
+    public void scheduleLaunchIfAbsent(Long lobbyId, long delayMillis) {
+        countdowns.computeIfAbsent(lobbyId, k -> createCountdown(lobbyId, delayMillis));
+    }
+
+    /**
+     * Stops the countdown for a lobby. A launch that has already started is not interrupted.
+     *
+     * @param lobbyId the ID of the lobby
+     */
+    public void cancelLaunch(Long lobbyId) {
+        ScheduledFuture<?> countdown = countdowns.remove(lobbyId);
+
+        if (countdown != null && countdown.cancel(false)) {
+            cancelCount.increment();
+        }
+    }
+
+    public int getActiveLobbyCount() {
+        return countdowns.size();
+    }
+
+    public long getLaunchCount() {
+        return launchCount.sum();
+    }
+
+    public long getFailedLaunchCount() {
+        return failedLaunchCount.sum();
+    }
+
+    public long getCancelCount() {
+        return cancelCount.sum();
+    }
+
+    /**
+     * @return the total time between countdowns ending and their lobbies being launched, in nanoseconds
+     */
+    public long getLaunchLatencyNanos() {
+        return launchLatencyNanos.sum();
+    }
+
+    public long getMaxLaunchLatencyNanos() {
+        return maxLaunchLatencyNanos.get();
+    }
+
+    private ScheduledFuture<?> createCountdown(Long lobbyId, long delayMillis) {
+        long dueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        return executor.schedule(() -> launch(lobbyId, dueNanos), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void launch(Long lobbyId, long dueNanos) {
+        // keep the entry if the lobby was rescheduled while this countdown was firing
+        countdowns.computeIfPresent(lobbyId, (k, countdown) -> countdown.getDelay(TimeUnit.NANOSECONDS) > 0 ? countdown : null);
+
+        try {
+            lobbyBO.launchLobby(lobbyId);
+            launchCount.increment();
+        } catch (Exception e) {
+            failedLaunchCount.increment();
+            System.err.println("Failed to launch lobby " + lobbyId);
+            e.printStackTrace();
+        } finally {
+            long latency = Math.max(0, System.nanoTime() - dueNanos);
+            launchLatencyNanos.add(latency);
+            maxLaunchLatencyNanos.accumulateAndGet(latency, Math::max);
+        }
+    }
+}
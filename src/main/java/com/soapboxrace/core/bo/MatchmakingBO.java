@@ -6,13 +6,14 @@
 
 package com.soapboxrace.core.bo;
 
-import io.lettuce.core.KeyValue;
-import io.lettuce.core.ScanIterator;
-import io.lettuce.core.api.StatefulRedisConnection;
+import com.soapboxrace.core.bo.util.LocalMatchmakingQueue;
+import com.soapboxrace.core.bo.util.MatchmakingQueue;
+import com.soapboxrace.core.bo.util.RedisMatchmakingQueue;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.ejb.*;
+import java.util.List;
 
 /**
  * Responsible for managing the multiplayer matchmaking system.
@@ -21,6 +22,9 @@ import javax.ejb.*;
  * will check if that class is open or restricted. Open events will receive
  * players of any class, while restricted events will only receive players of
  * the required class.
+ * <p>
+ * The queue is kept in memory, or in Redis when the {@code MATCHMAKING_QUEUE} parameter is set to {@code redis}
+ * (the default when {@code ENABLE_REDIS} is on), so that several core instances can share it.
  *
  * @author heyitsleo
  */
@@ -35,24 +39,27 @@ public class MatchmakingBO {
     @EJB
     private ParameterBO parameterBO;
 
-    private boolean enabled;
-    private StatefulRedisConnection<String, String> redisConnection;
+    private MatchmakingQueue queue;
 
     @PostConstruct
     public void initialize() {
-        this.enabled = parameterBO.getBoolParam("ENABLE_REDIS");
-        if (this.enabled) {
-            this.redisConnection = this.redisBO.getConnection();
+        boolean redisEnabled = parameterBO.getBoolParam("ENABLE_REDIS");
+        String queueType = parameterBO.getStrParam("MATCHMAKING_QUEUE", redisEnabled ? "redis" : "local");
+
+        if ("redis".equalsIgnoreCase(queueType) && redisEnabled) {
+            this.queue = new RedisMatchmakingQueue(this.redisBO.getConnection());
+        } else {
+            this.queue = new LocalMatchmakingQueue();
         }
+
+        System.out.println("MatchmakingBO using " + this.queue.getClass().getSimpleName());
     }
 
     @PreDestroy
     public void shutdown() {
         System.out.println("MatchmakingBO shutdown");
 
-        if (this.enabled) {
-            this.redisConnection.sync().del("matchmaking_queue");
-        }
+        this.queue.clear();
     }
 
     /**
@@ -62,9 +69,7 @@ public class MatchmakingBO {
      * @param carClass  The class of the persona's current car.
      */
     public void addPlayerToQueue(Long personaId, Integer carClass) {
-        if (this.enabled) {
-            this.redisConnection.sync().hset("matchmaking_queue", personaId.toString(), carClass.toString());
-        }
+        this.queue.add(personaId, carClass);
     }
 
     /**
@@ -73,9 +78,7 @@ public class MatchmakingBO {
      * @param personaId The ID of the persona to remove from the queue.
      */
     public void removePlayerFromQueue(Long personaId) {
-        if (this.enabled) {
-            this.redisConnection.sync().hdel("matchmaking_queue", personaId.toString());
-        }
+        this.queue.remove(personaId);
     }
 
     /**
@@ -85,22 +88,22 @@ public class MatchmakingBO {
      * @return The ID of the persona, or {@literal -1} if no persona was found.
      */
     public Long getPlayerFromQueue(Integer carClass) {
-        if (!this.enabled)
-            return -1L;
-
-        ScanIterator<KeyValue<String, String>> iterator = ScanIterator.hscan(this.redisConnection.sync(), "matchmaking_queue");
-        long personaId = -1L;
+        List<Long> personaIds = this.queue.find(carClass, -1L, 1);
 
-        while (iterator.hasNext()) {
-            KeyValue<String, String> keyValue = iterator.next();
-
-            if (carClass == 607077938 || Integer.parseInt(keyValue.getValue()) == carClass) {
-                personaId = Long.parseLong(keyValue.getKey());
-                break;
-            }
-        }
+        return personaIds.isEmpty() ? -1L : personaIds.get(0);
+    }
 
-        return personaId;
+    /**
+     * Gets the IDs of the personas that have been waiting the longest for an event, skipping those who ignored it.
+     * The personas stay in the queue.
+     *
+     * @param carClass The car class hash of the event.
+     * @param eventId  The ID of the event.
+     * @param limit    The maximum number of personas to return.
+     * @return The IDs of the personas, oldest first.
+     */
+    public List<Long> getPlayersFromQueue(Integer carClass, long eventId, int limit) {
+        return this.queue.find(carClass, eventId, limit);
     }
 
     /**
@@ -110,9 +113,7 @@ public class MatchmakingBO {
      * @param eventId   the event ID
      */
     public void ignoreEvent(long personaId, long eventId) {
-        if (this.enabled) {
-            this.redisConnection.sync().sadd("ignored_events." + personaId, Long.toString(eventId));
-        }
+        this.queue.ignoreEvent(personaId, eventId);
     }
 
     /**
@@ -121,9 +122,7 @@ public class MatchmakingBO {
      * @param personaId the persona ID
      */
     public void resetIgnoredEvents(long personaId) {
-        if (this.enabled) {
-            this.redisConnection.sync().del("ignored_events." + personaId);
-        }
+        this.queue.resetIgnoredEvents(personaId);
     }
 
     /**
@@ -134,10 +133,6 @@ public class MatchmakingBO {
      * @return {@code true} if the given event ID is in the list of ignored events for the given persona ID
      */
     public boolean isEventIgnored(long personaId, long eventId) {
-        if (this.enabled) {
-            return this.redisConnection.sync().sismember("ignored_events." + personaId, Long.toString(eventId));
-        }
-
-        return false;
+        return this.queue.isEventIgnored(personaId, eventId);
     }
 }
@@ -10,38 +10,109 @@ import com.soapboxrace.core.dao.OnlineUsersDAO;
 import com.soapboxrace.core.jpa.OnlineUsersEntity;
 import com.soapboxrace.core.xmpp.OpenFireRestApiCli;
 
-import javax.ejb.EJB;
-import javax.ejb.Schedule;
-import javax.ejb.Stateless;
+import javax.annotation.PostConstruct;
+import javax.ejb.*;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
-@Stateless
+/**
+ * Keeps the number of online users in memory, so that logins and launcher polls don't query the database.
+ * <p>
+ * The count is sampled every minute, from OpenFire or (with ONLINE_USERS_FROM_PRESENCE) from the presence
+ * set in Redis. The ONLINE_USERS table only receives the peak of every ONLINE_USERS_HISTORY_INTERVAL minutes,
+ * and rows older than ONLINE_USERS_RETENTION_DAYS are deleted.
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
 public class OnlineUsersBO {
 
+    private static final long MAX_SAMPLE_AGE = TimeUnit.SECONDS.toMillis(90);
+
     @EJB
     OpenFireRestApiCli openFireRestApiCli;
+
     @EJB
     private OnlineUsersDAO onlineUsersDAO;
 
+    @EJB
+    private PresenceBO presenceBO;
+
+    @EJB
+    private ParameterBO parameterBO;
+
+    private volatile int numberOfUsers;
+
+    private volatile long sampledAt;
+
+    private int intervalPeak;
+
+    private int intervalSamples;
+
+    @PostConstruct
+    public void init() {
+        // sample right away, so that a restart doesn't report an empty server for a minute
+        try {
+            numberOfUsers = sampleNumberOfUsers();
+            sampledAt = System.currentTimeMillis();
+        } catch (RuntimeException e) {
+            System.err.println("Could not sample the number of online users: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of users online, as of the last sample (0 if there is no recent sample)
+     */
     public int getNumberOfUsersOnlineNow() {
-        Date lastMinutes = getLastMinutes(1);
-        OnlineUsersEntity onlineUsersEntity = onlineUsersDAO.findByTime(lastMinutes);
-        return onlineUsersEntity != null ? onlineUsersEntity.getNumberOfUsers() : 0;
+        return System.currentTimeMillis() - sampledAt <= MAX_SAMPLE_AGE ? numberOfUsers : 0;
     }
 
     @Schedule(minute = "*", hour = "*", persistent = false)
     public void insertNumberOfUsesOnlineNow() {
-        long timeLong = new Date().getTime() / 1000L;
+        int count = sampleNumberOfUsers();
+        long now = System.currentTimeMillis();
+        int peak;
+
+        numberOfUsers = count;
+        sampledAt = now;
+
+        synchronized (this) {
+            intervalPeak = Math.max(intervalPeak, count);
+
+            if (++intervalSamples < parameterBO.getIntParam("ONLINE_USERS_HISTORY_INTERVAL", 5)) {
+                return;
+            }
+
+            peak = intervalPeak;
+            intervalPeak = 0;
+            intervalSamples = 0;
+        }
+
         OnlineUsersEntity onlineUsersEntity = new OnlineUsersEntity();
-        onlineUsersEntity.setNumberOfUsers(openFireRestApiCli.getTotalOnlineUsers());
-        onlineUsersEntity.setTimeRecord((int) timeLong);
+        onlineUsersEntity.setNumberOfUsers(peak);
+        onlineUsersEntity.setTimeRecord((int) (now / 1000L));
         onlineUsersDAO.insert(onlineUsersEntity);
     }
 
-    private Date getLastMinutes(int minutes) {
-        long time = new Date().getTime();
-        time = time - (minutes * 90000);
+    @Schedule(minute = "17", hour = "*", persistent = false)
+    public void deleteOldHistory() {
+        int retentionDays = parameterBO.getIntParam("ONLINE_USERS_RETENTION_DAYS", 30);
+        int deleted = onlineUsersDAO.deleteOlderThan(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays)));
+
+        if (deleted > 0) {
+            System.out.println("Deleted " + deleted + " online user record(s) older than " + retentionDays + " days");
+        }
+    }
+
+    private int sampleNumberOfUsers() {
+        if (parameterBO.getBoolParam("ONLINE_USERS_FROM_PRESENCE")) {
+            long onlinePersonas = presenceBO.getOnlinePersonaCount();
+
+            if (onlinePersonas >= 0) {
+                return (int) onlinePersonas;
+            }
+        }
 
-        return new Date(time);
+        return openFireRestApiCli.getTotalOnlineUsers();
     }
 }
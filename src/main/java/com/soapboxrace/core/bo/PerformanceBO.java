@@ -6,8 +6,7 @@
 
 package com.soapboxrace.core.bo;
 
-import com.soapboxrace.core.dao.CarClassesDAO;
-import com.soapboxrace.core.dao.ProductDAO;
+import com.soapboxrace.core.bo.util.CatalogSnapshot;
 import com.soapboxrace.core.jpa.CarClassesEntity;
 import com.soapboxrace.core.jpa.CustomCarEntity;
 import com.soapboxrace.core.jpa.PerformancePartEntity;
@@ -21,10 +20,7 @@ import java.util.Set;
 public class PerformanceBO {
 
     @EJB
-    private CarClassesDAO carClassesDAO;
-
-    @EJB
-    private ProductDAO productDAO;
+    private CatalogBO catalogBO;
 
     public void calcNewCarClass(CustomCarEntity customCarEntity) {
         calcNewCarClass(customCarEntity, customCarEntity.getOwnedCar().getDurability() == 0);
@@ -32,7 +28,8 @@ public class PerformanceBO {
 
     public void calcNewCarClass(CustomCarEntity customCarEntity, boolean ignoreParts) {
         int physicsProfileHash = customCarEntity.getPhysicsProfileHash();
-        CarClassesEntity carClassesEntity = carClassesDAO.findByHash(physicsProfileHash);
+        CatalogSnapshot catalog = catalogBO.getSnapshot();
+        CarClassesEntity carClassesEntity = catalog.getCarClassByHash(physicsProfileHash);
         if (carClassesEntity == null) {
             return;
         }
@@ -43,7 +40,12 @@ public class PerformanceBO {
             Set<PerformancePartEntity> performanceParts = customCarEntity.getPerformanceParts();
             for (PerformancePartEntity performancePartEntity : performanceParts) {
                 int perfHash = performancePartEntity.getPerformancePartAttribHash();
-                ProductEntity productEntity = productDAO.findByHash(perfHash);
+                ProductEntity productEntity = catalog.getProductByHash(perfHash);
+
+                if (productEntity == null) {
+                    throw new RuntimeException("Could not find product with hash: " + perfHash);
+                }
+
                 topSpeed = productEntity.getTopSpeed() + topSpeed;
                 accel = productEntity.getAccel() + accel;
                 handling = productEntity.getHandling() + handling;
@@ -38,6 +38,12 @@ public class PersonaBO {
     @EJB
     private BadgeDefinitionDAO badgeDefinitionDAO;
 
+    @EJB
+    private GarageCacheBO garageCacheBO;
+
+    @EJB
+    private BadgeViewBO badgeViewBO;
+
     public void updateBadges(Long personaId, BadgeBundle badgeBundle) {
         PersonaEntity personaEntity = personaDAO.findById(personaId);
 
@@ -65,6 +71,8 @@ public class PersonaBO {
                 personaBadgeDAO.update(personaBadgeEntity);
             }
         }
+
+        badgeViewBO.invalidate(personaId);
     }
 
     public void changeDefaultCar(Long personaId, Long defaultCarId) {
@@ -83,6 +91,7 @@ public class PersonaBO {
             i++;
         }
         personaEntity.setCurCarIndex(i);
+        garageCacheBO.bump(personaEntity.getPersonaId());
 //        System.out.println("changeDefaultCar: curCarIndex=" + i);
     }
 
@@ -122,6 +131,8 @@ public class PersonaBO {
             ownedCarEntity.setDurability(100);
             ownedCarDAO.update(ownedCarEntity);
         }
+
+        garageCacheBO.bump(personaEntity.getPersonaId());
     }
 
     public List<CarSlotEntity> getPersonasCar(Long personaId) {
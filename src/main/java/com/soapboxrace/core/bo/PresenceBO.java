@@ -6,14 +6,21 @@
 
 package com.soapboxrace.core.bo;
 
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.api.StatefulRedisConnection;
-import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import io.lettuce.core.api.sync.RedisCommands;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.ejb.*;
-import java.util.List;
+import java.util.*;
 
+/**
+ * Keeps track of the presence of every online persona in Redis, and publishes presence changes
+ * to the {@code game_presence_updates} channel.
+ */
 @Singleton
 @Startup
 @Lock(LockType.READ)
@@ -24,16 +31,37 @@ public class PresenceBO {
     @EJB
     private ParameterBO parameterBO;
 
+    private static final String PRESENCE_KEYS_KEY = "game_presence_keys";
+
+    /**
+     * Sets the presence of a persona and publishes the change, unless the presence is unchanged.
+     * A presence of 0 (offline) removes the key. Returns 1 if the presence changed.
+     * KEYS: presence key, tracked key set. ARGV: new presence, persona ID, channel.
+     */
+    private static final String UPDATE_PRESENCE_SCRIPT =
+            "local current = redis.call('GET', KEYS[1])\n" +
+            "if not current or current == '' then current = '0' end\n" +
+            "if ARGV[1] == '0' then\n" +
+            "  redis.call('DEL', KEYS[1])\n" +
+            "  redis.call('SREM', KEYS[2], KEYS[1])\n" +
+            "elseif current ~= ARGV[1] then\n" +
+            "  redis.call('SET', KEYS[1], ARGV[1])\n" +
+            "  redis.call('SADD', KEYS[2], KEYS[1])\n" +
+            "end\n" +
+            "if current == ARGV[1] then return 0 end\n" +
+            "redis.call('PUBLISH', ARGV[3], ARGV[2] .. '|' .. ARGV[1])\n" +
+            "return 1";
+
     private boolean enabled;
-    private StatefulRedisPubSubConnection<String, String> pubSubConnection;
+    private String updatePresenceSha;
     private StatefulRedisConnection<String, String> connection;
 
     @PostConstruct
     public void init() {
         this.enabled = parameterBO.getBoolParam("ENABLE_REDIS");
         if (this.enabled) {
-            this.pubSubConnection = this.redisBO.createPubSub();
             this.connection = this.redisBO.getConnection();
+            this.updatePresenceSha = this.connection.sync().scriptLoad(UPDATE_PRESENCE_SCRIPT);
         }
     }
 
@@ -42,21 +70,28 @@ public class PresenceBO {
         System.out.println("PresenceBO shutdown");
 
         if (this.enabled) {
-            List<String> keys = this.connection.sync().keys("game_presence.*");
-            if (!keys.isEmpty())
-                this.connection.sync().del(keys.toArray(new String[0]));
-            this.pubSubConnection.close();
+            // presence keys are tracked in a set, so there is no need for KEYS (which blocks the server)
+            RedisCommands<String, String> commands = this.connection.sync();
+            List<String> keys = new ArrayList<>(commands.smembers(PRESENCE_KEYS_KEY));
+            keys.add(PRESENCE_KEYS_KEY);
+
+            for (int i = 0; i < keys.size(); i += 500) {
+                commands.del(keys.subList(i, Math.min(i + 500, keys.size())).toArray(new String[0]));
+            }
         }
     }
 
     public void updatePresence(Long personaId, Long presence) {
         if (this.enabled) {
             if (personaId != 0L) {
-                Long currentPresence = this.getPresence(personaId);
-
-                if (!currentPresence.equals(presence)) {
-                    this.connection.sync().set(getPresenceKey(personaId), presence.toString());
-                    this.pubSubConnection.sync().publish("game_presence_updates", personaId + "|" + presence);
+                String[] keys = {getPresenceKey(personaId), PRESENCE_KEYS_KEY};
+                String[] args = {presence.toString(), personaId.toString(), "game_presence_updates"};
+
+                try {
+                    this.connection.sync().evalsha(this.updatePresenceSha, ScriptOutputType.INTEGER, keys, args);
+                } catch (RedisNoScriptException e) {
+                    // the script cache was flushed (e.g. Redis restarted)
+                    this.connection.sync().eval(UPDATE_PRESENCE_SCRIPT, ScriptOutputType.INTEGER, keys, args);
                 }
             }
         }
@@ -66,7 +101,6 @@ public class PresenceBO {
         if (this.enabled) {
             if (personaId != 0L) {
                 updatePresence(personaId, 0L);
-                this.connection.sync().del(getPresenceKey(personaId));
             }
         }
     }
@@ -83,6 +117,47 @@ public class PresenceBO {
         return Long.parseLong(value);
     }
 
+    /**
+     * Gets the presences of the given personas with a single MGET.
+     *
+     * @param personaIds the persona IDs
+     * @return the presence of each persona, 0 if offline
+     */
+    public Map<Long, Long> getPresences(Collection<Long> personaIds) {
+        Map<Long, Long> presences = new HashMap<>();
+
+        if (!this.enabled || personaIds.isEmpty()) {
+            personaIds.forEach(personaId -> presences.put(personaId, 0L));
+            return presences;
+        }
+
+        List<Long> idList = new ArrayList<>(personaIds);
+        String[] keys = new String[idList.size()];
+
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = getPresenceKey(idList.get(i));
+        }
+
+        List<KeyValue<String, String>> values = this.connection.sync().mget(keys);
+
+        for (int i = 0; i < keys.length; i++) {
+            String value = values.get(i).getValueOrElse(null);
+            presences.put(idList.get(i), value == null || value.trim().isEmpty() ? 0L : Long.parseLong(value));
+        }
+
+        return presences;
+    }
+
+    /**
+     * @return the number of personas with a presence, or -1 if presence tracking is disabled
+     */
+    public long getOnlinePersonaCount() {
+        if (!this.enabled)
+            return -1L;
+
+        return this.connection.sync().scard(PRESENCE_KEYS_KEY);
+    }
+
     private String getPresenceKey(Long personaId) {
         return "game_presence." + personaId;
     }
@@ -0,0 +1,252 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo;
+
+import com.soapboxrace.core.bo.util.LatencyHistogram;
+import com.soapboxrace.core.dao.PersonaDAO;
+import com.soapboxrace.core.jpa.PersonaEntity;
+import com.soapboxrace.core.xmpp.XmppMessageScheduler;
+import com.soapboxrace.jaxb.http.PersonaBase;
+import com.soapboxrace.jaxb.util.MarshalXML;
+import com.soapboxrace.jaxb.xmpp.XMPP_ResponseTypePersonaBase;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.*;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends presence updates to the friends of a persona, on a pool of worker threads.
+ * <p>
+ * A persona is handled by at most one worker at a time, and only its latest presence is sent: updates that
+ * arrive while an older one is waiting replace it. The presence packet is marshalled once and handed to the
+ * {@link XmppMessageScheduler} for every friend in the {@link FriendGraphBO}.
+ */
+@Singleton
+@Lock(LockType.READ)
+public class PresenceFanoutBO {
+
+    @EJB
+    private ParameterBO parameterBO;
+
+    @EJB
+    private PersonaDAO personaDAO;
+
+    @EJB
+    private DriverPersonaBO driverPersonaBO;
+
+    @EJB
+    private FriendGraphBO friendGraphBO;
+
+    @EJB
+    private XmppMessageScheduler xmppMessageScheduler;
+
+    @Resource
+    private ManagedThreadFactory managedThreadFactory;
+
+    private final ConcurrentMap<Long, PendingPresence> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder processedCount = new LongAdder();
+
+    private final LongAdder coalescedCount = new LongAdder();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final LongAdder laggingCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final LongAdder messageCount = new LongAdder();
+
+    private final LatencyHistogram lag = new LatencyHistogram();
+
+    private ThreadPoolExecutor executor;
+
+    private int maxPending;
+
+    private long lagThresholdNanos;
+
+    @PostConstruct
+    public void init() {
+        int threads = parameterBO.getIntParam("PRESENCE_FANOUT_THREADS", 4);
+        maxPending = parameterBO.getIntParam("PRESENCE_FANOUT_MAX_PENDING", 10000);
+        lagThresholdNanos = TimeUnit.MILLISECONDS.toNanos(parameterBO.getIntParam("PRESENCE_FANOUT_LAG_THRESHOLD_MS", 2000));
+        // Each persona is queued at most once, so the work queue can't grow past maxPending.
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                managedThreadFactory);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        System.out.println("PresenceFanoutBO shutdown (" + pending.size() + " update(s) pending)");
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a presence update. The update is dropped if too many personas are already waiting.
+     *
+     * @param personaId the ID of the persona whose presence changed
+     * @param presence  the new presence
+     */
+    public void submit(Long personaId, Long presence) {
+        long receivedAt = System.nanoTime();
+
+        if (pending.size() >= maxPending && !pending.containsKey(personaId)) {
+            droppedCount.increment();
+            return;
+        }
+
+        pending.compute(personaId, (k, pendingPresence) -> {
+            if (pendingPresence == null) {
+                // No worker owns this persona yet
+                pendingPresence = new PendingPresence();
+                executor.execute(() -> process(personaId));
+            } else if (pendingPresence.presence != null) {
+                coalescedCount.increment();
+            }
+
+            pendingPresence.presence = presence;
+            pendingPresence.receivedAt = receivedAt;
+            return pendingPresence;
+        });
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getProcessedCount() {
+        return processedCount.sum();
+    }
+
+    /**
+     * @return the number of updates that were replaced by a newer one before being sent
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * @return the number of updates that waited longer than {@code PRESENCE_FANOUT_LAG_THRESHOLD_MS}
+     */
+    public long getLaggingCount() {
+        return laggingCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * @return the number of presence packets handed to the XMPP sender
+     */
+    public long getMessageCount() {
+        return messageCount.sum();
+    }
+
+    /**
+     * @return the time between an update being received and being sent out
+     */
+    public LatencyHistogram getLag() {
+        return lag;
+    }
+
+    private void process(Long personaId) {
+        long[] receivedAt = new long[1];
+        Long[] presence = new Long[1];
+        pending.computeIfPresent(personaId, (k, pendingPresence) -> {
+            presence[0] = pendingPresence.presence;
+            receivedAt[0] = pendingPresence.receivedAt;
+            pendingPresence.presence = null;
+            return pendingPresence;
+        });
+
+        if (presence[0] != null) {
+            long waited = System.nanoTime() - receivedAt[0];
+            lag.record(waited);
+
+            if (waited > lagThresholdNanos) {
+                laggingCount.increment();
+            }
+
+            try {
+                fanOut(personaId, presence[0]);
+                processedCount.increment();
+            } catch (Exception e) {
+                failedCount.increment();
+                System.err.println("Failed to send presence of persona " + personaId);
+                e.printStackTrace();
+            }
+        }
+
+        // Hand the persona back, or go around again if a newer presence came in while this one was sent
+        pending.compute(personaId, (k, pendingPresence) -> {
+            if (pendingPresence == null || pendingPresence.presence == null) {
+                return null;
+            }
+
+            executor.execute(() -> process(personaId));
+            return pendingPresence;
+        });
+    }
+
+    private void fanOut(Long personaId, Long presence) {
+        PersonaEntity personaEntity = personaDAO.findById(personaId);
+
+        if (personaEntity == null) {
+            return;
+        }
+
+        Long userId = personaEntity.getUser().getId();
+        Set<Long> friendPersonaIds = friendGraphBO.getFriendPersonaIds(userId);
+
+        if (!friendPersonaIds.isEmpty()) {
+            PersonaBase personaBase = driverPersonaBO.getPersonaBase(personaEntity);
+            personaBase.setPresence(presence);
+            XMPP_ResponseTypePersonaBase personaPacket = new XMPP_ResponseTypePersonaBase();
+            personaPacket.setPersonaBase(personaBase);
+            String message = MarshalXML.marshal(personaPacket);
+
+            for (Long friendPersonaId : friendPersonaIds) {
+                xmppMessageScheduler.schedule(message, friendPersonaId, 0);
+            }
+
+            messageCount.add(friendPersonaIds.size());
+        }
+
+        if (presence == 0L) {
+            friendGraphBO.evict(userId);
+        }
+    }
+
+    private static final class PendingPresence {
+        private Long presence;
+
+        private long receivedAt;
+    }
+}
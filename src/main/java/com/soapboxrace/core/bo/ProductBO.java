@@ -6,10 +6,7 @@
 
 package com.soapboxrace.core.bo;
 
-import com.soapboxrace.core.dao.CategoryDAO;
 import com.soapboxrace.core.dao.PersonaDAO;
-import com.soapboxrace.core.dao.ProductDAO;
-import com.soapboxrace.core.dao.VinylProductDAO;
 import com.soapboxrace.core.jpa.CategoryEntity;
 import com.soapboxrace.core.jpa.PersonaEntity;
 import com.soapboxrace.core.jpa.ProductEntity;
@@ -26,13 +23,7 @@ import java.util.List;
 public class ProductBO {
 
     @EJB
-    private ProductDAO productDAO;
-
-    @EJB
-    private CategoryDAO categoryDao;
-
-    @EJB
-    private VinylProductDAO vinylProductDao;
+    private CatalogBO catalogBO;
 
     @EJB
     private PersonaDAO personaDao;
@@ -84,11 +75,16 @@ public class ProductBO {
             premium = personaEntity.getUser().isPremium();
             level = personaEntity.getLevel();
         }
-        return productDAO.findByLevelEnabled(categoryName, productType, level, true, premium);
+        return productsInCategory(categoryName, productType, level, premium);
+    }
+
+    public List<ProductEntity> productsInCategory(String categoryName, String productType, int level,
+                                                  boolean premium) {
+        return catalogBO.getSnapshot().getProductsByLevelEnabled(categoryName, productType, level, true, premium);
     }
 
     public ProductEntity getRandomDrop(String productType) {
-        List<ProductEntity> productEntities = productDAO.findDropsByType(productType);
+        List<ProductEntity> productEntities = catalogBO.getSnapshot().getDropsByType(productType);
 
         if (productEntities.isEmpty()) {
             throw new RuntimeException("No droppable products of type '" + productType + "' to work with!");
@@ -116,7 +112,7 @@ public class ProductBO {
     }
 
     public List<CategoryEntity> categories() {
-        return categoryDao.getAll();
+        return catalogBO.getSnapshot().getCategories();
     }
 
     public ArrayOfProductTrans getVinylByCategory(CategoryEntity categoryEntity, Long personaId) {
@@ -127,9 +123,13 @@ public class ProductBO {
             premium = personaEntity.getUser().isPremium();
             level = personaEntity.getLevel();
         }
+        return getVinylByCategory(categoryEntity, level, premium);
+    }
+
+    public ArrayOfProductTrans getVinylByCategory(CategoryEntity categoryEntity, int level, boolean premium) {
         ArrayOfProductTrans arrayOfProductTrans = new ArrayOfProductTrans();
-        List<VinylProductEntity> vinylProductEntity = vinylProductDao.findByCategoryLevelEnabled(categoryEntity,
-                level, true, premium);
+        List<VinylProductEntity> vinylProductEntity =
+                catalogBO.getSnapshot().getVinylsByCategoryLevelEnabled(categoryEntity, level, true, premium);
         for (VinylProductEntity entity : vinylProductEntity) {
             ProductTrans productTrans = new ProductTrans();
             productTrans.setCurrency(entity.getCurrency());
@@ -6,16 +6,21 @@
 
 package com.soapboxrace.core.bo;
 
+import com.soapboxrace.core.bo.util.LatencyHistogram;
+import com.soapboxrace.core.bo.util.RedisLatencyCollector;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisException;
 import io.lettuce.core.RedisURI;
 import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.event.DefaultEventPublisherOptions;
 import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import io.lettuce.core.resource.DefaultClientResources;
 
 import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
+import java.util.Map;
 
 @Startup
 @Singleton
@@ -27,6 +32,7 @@ public class RedisBO {
     private ParameterBO parameterBO;
     private StatefulRedisConnection<String, String> connection;
     private RedisURI redisURI;
+    private final RedisLatencyCollector latencyCollector = new RedisLatencyCollector();
 
     @PostConstruct
     public void init() {
@@ -36,7 +42,10 @@ public class RedisBO {
             String redisPassword = parameterBO.getStrParam("REDIS_PASSWORD", "");
 
             this.redisURI = RedisURI.builder().withHost(redisHost).withPort(redisPort).withPassword(redisPassword).build();
-            this.redisClient = RedisClient.create();
+            this.redisClient = RedisClient.create(DefaultClientResources.builder()
+                    .commandLatencyCollector(latencyCollector)
+                    .commandLatencyPublisherOptions(DefaultEventPublisherOptions.disabled())
+                    .build());
 
             try {
                 this.connection = this.redisClient.connect(redisURI);
@@ -61,6 +70,13 @@ public class RedisBO {
         return redisClient;
     }
 
+    /**
+     * @return the latency histograms of every Redis command type used so far
+     */
+    public Map<String, LatencyHistogram> getCommandLatencies() {
+        return latencyCollector.getHistograms();
+    }
+
     public StatefulRedisConnection<String, String> getConnection() {
         if (this.redisClient == null) {
             throw new RuntimeException("Redis is disabled!");
@@ -41,7 +41,7 @@ public class RewardBO {
     private InventoryItemDAO inventoryItemDao;
 
     @EJB
-    private ProductDAO productDAO;
+    private CatalogBO catalogBO;
 
     @EJB
     private AchievementBO achievementBO;
@@ -154,7 +154,7 @@ public class RewardBO {
             maxSkillMultiplier = 50f;
         }
         for (SkillModPartEntity skillModPartEntity : skillModParts) {
-            ProductEntity productEntity = productDAO.findByHash(skillModPartEntity.getSkillModPartAttribHash());
+            ProductEntity productEntity = catalogBO.findProductByHash(skillModPartEntity.getSkillModPartAttribHash());
             if (productEntity != null && productEntity.getProductTitle().equals(skillModRewardType.toString())) {
                 float skillValue = productEntity.getSkillValue();
                 skillMultiplier += skillValue;
@@ -1,5 +1,7 @@
 package com.soapboxrace.core.bo;
 
+import com.soapboxrace.core.bo.util.LatencyHistogram;
+import com.soapboxrace.core.bo.util.MetricsRegistry;
 import jdk.nashorn.api.scripting.NashornScriptEngine;
 
 import javax.annotation.PostConstruct;
@@ -7,20 +9,33 @@ import javax.ejb.Lock;
 import javax.ejb.LockType;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 import javax.script.SimpleBindings;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * ScriptingBO is a bean that allows for the execution of JavaScript code using the Nashorn engine.
+ * Scripts are compiled once and cached by their source text.
  */
 @Singleton
 @Startup
+@Lock(LockType.READ)
 public class ScriptingBO {
 
+    private static final LatencyHistogram EVAL_TIMER = MetricsRegistry.timer("script_eval");
+
     private NashornScriptEngine scriptEngine;
 
+    private final ConcurrentMap<String, CompiledScript> compiledScripts = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, ScriptStatistics> scriptStatistics = new ConcurrentHashMap<>();
+
     @PostConstruct
     public void init() {
         System.out.println("ScriptingBO is starting");
@@ -37,8 +52,84 @@ public class ScriptingBO {
      * @return The result of the evaluation.
      * @throws ScriptException if an error occurs.
      */
-    @Lock(LockType.READ)
     public Object eval(String script, Map<String, Object> bindings) throws ScriptException {
-        return scriptEngine.eval(script, new SimpleBindings(bindings));
+        CompiledScript compiledScript = compile(script);
+        ScriptStatistics statistics = getStatistics(script);
+        long start = System.nanoTime();
+
+        try {
+            return compiledScript.eval(new SimpleBindings(bindings));
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            statistics.evalCount.increment();
+            statistics.evalNanos.add(elapsed);
+            EVAL_TIMER.record(elapsed);
+        }
+    }
+
+    /**
+     * Compiles the given JavaScript code, or returns the cached compilation result.
+     *
+     * @param script The JavaScript code to compile.
+     * @return The compiled script.
+     * @throws ScriptException if the script cannot be compiled.
+     */
+    public CompiledScript compile(String script) throws ScriptException {
+        CompiledScript compiledScript = compiledScripts.get(script);
+
+        if (compiledScript == null) {
+            // Two threads may compile the same script at once; the result is the same either way.
+            compiledScript = scriptEngine.compile(script);
+            getStatistics(script).compileCount.increment();
+            compiledScripts.putIfAbsent(script, compiledScript);
+        }
+
+        return compiledScript;
+    }
+
+    /**
+     * Drops every compiled script and its statistics. Called when rows holding scripts are changed, so the
+     * sources of replaced scripts aren't kept.
+     */
+    public void invalidateCache() {
+        compiledScripts.clear();
+        scriptStatistics.clear();
+    }
+
+    public int getCacheSize() {
+        return compiledScripts.size();
+    }
+
+    /**
+     * Gets evaluation statistics for every script that has been compiled since the cache was last invalidated.
+     *
+     * @return the statistics, keyed by script source
+     */
+    public Map<String, ScriptStatistics> getScriptStatistics() {
+        return new HashMap<>(scriptStatistics);
+    }
+
+    private ScriptStatistics getStatistics(String script) {
+        return scriptStatistics.computeIfAbsent(script, k -> new ScriptStatistics());
+    }
+
+    public static class ScriptStatistics {
+        private final LongAdder evalCount = new LongAdder();
+
+        private final LongAdder evalNanos = new LongAdder();
+
+        private final LongAdder compileCount = new LongAdder();
+
+        public long getEvalCount() {
+            return evalCount.sum();
+        }
+
+        public long getEvalNanos() {
+            return evalNanos.sum();
+        }
+
+        public long getCompileCount() {
+            return compileCount.sum();
+        }
     }
 }
@@ -45,6 +45,10 @@ public class SocialRelationshipBO {
     private PresenceBO presenceBO;
     @EJB
     private ParameterBO parameterBO;
+    @EJB
+    private FriendGraphBO friendGraphBO;
+    @EJB
+    private PresenceFanoutBO presenceFanoutBO;
     private StatefulRedisPubSubConnection<String, String> pubSubConnection;
     private SocialRelationshipListener listener;
     private boolean enabled;
@@ -226,6 +230,10 @@ public class SocialRelationshipBO {
             case 0: // reject
                 socialRelationshipDAO.delete(socialRelationshipEntity);
                 socialRelationshipDAO.delete(pendingSocialRelationshipEntity);
+                friendGraphBO.removeFriendship(activePersonaEntity.getUser().getId(),
+                        socialRelationshipEntity.getRemotePersonaId());
+                friendGraphBO.removeFriendship(friendPersonaEntity.getUser().getId(),
+                        pendingSocialRelationshipEntity.getRemotePersonaId());
                 this.sendPresencePacket(activePersonaEntity, 0L, friendPersonaId);
                 return null;
             case 1: // accept
@@ -235,6 +243,10 @@ public class SocialRelationshipBO {
 
                 socialRelationshipDAO.update(pendingSocialRelationshipEntity);
                 socialRelationshipDAO.update(socialRelationshipEntity);
+                friendGraphBO.addFriendship(activePersonaEntity.getUser().getId(),
+                        socialRelationshipEntity.getRemotePersonaId());
+                friendGraphBO.addFriendship(friendPersonaEntity.getUser().getId(),
+                        pendingSocialRelationshipEntity.getRemotePersonaId());
 
                 return driverPersonaBO.getPersonaBase(friendPersonaEntity);
             default:
@@ -278,6 +290,8 @@ public class SocialRelationshipBO {
 
         socialRelationshipDAO.delete(activeSide);
         socialRelationshipDAO.delete(remoteSide);
+        friendGraphBO.removeFriendship(activePersonaEntity.getUser().getId(), activeSide.getRemotePersonaId());
+        friendGraphBO.removeFriendship(friendPersonaEntity.getUser().getId(), remoteSide.getRemotePersonaId());
 
         return driverPersonaBO.getPersonaBase(activePersonaEntity);
     }
@@ -306,10 +320,12 @@ public class SocialRelationshipBO {
         } else {
             localSide.setStatus(2L);
             socialRelationshipDAO.update(localSide);
+            friendGraphBO.removeFriendship(userId, localSide.getRemotePersonaId());
         }
 
         if (remoteSide != null) {
             socialRelationshipDAO.delete(remoteSide);
+            friendGraphBO.removeFriendship(otherPersonaEntity.getUser().getId(), remoteSide.getRemotePersonaId());
             sendPresencePacket(activePersonaEntity, 0L, otherPersonaId);
         }
 
@@ -390,14 +406,6 @@ public class SocialRelationshipBO {
         return friendPersona;
     }
 
-    private void sendPresencePackets(PersonaEntity personaEntity, Long presence) {
-        Objects.requireNonNull(personaEntity, "personaEntity is null!");
-        for (SocialRelationshipEntity socialRelationshipEntity :
-                socialRelationshipDAO.findByUserId(personaEntity.getUser().getId())) {
-            sendPresencePacket(personaEntity, presence, socialRelationshipEntity);
-        }
-    }
-
     private void sendPresencePacket(PersonaEntity personaEntity, Long presence,
                                     Long targetPersonaId) {
         XMPP_ResponseTypePersonaBase personaPacket = new XMPP_ResponseTypePersonaBase();
@@ -408,16 +416,6 @@ public class SocialRelationshipBO {
         openFireSoapBoxCli.send(personaPacket, targetPersonaId);
     }
 
-    private void sendPresencePacket(PersonaEntity personaEntity, Long presence,
-                                    SocialRelationshipEntity socialRelationshipEntity) {
-        XMPP_ResponseTypePersonaBase personaPacket = new XMPP_ResponseTypePersonaBase();
-        PersonaBase xmppPersonaBase = driverPersonaBO.getPersonaBase(personaEntity);
-        xmppPersonaBase.setPresence(presence);
-        personaPacket.setPersonaBase(xmppPersonaBase);
-
-        openFireSoapBoxCli.send(personaPacket, socialRelationshipEntity.getRemotePersonaId());
-    }
-
     private void sendFriendPersonaPacket(PersonaEntity personaEntity, Long targetPersonaId) {
         XMPP_FriendPersonaType personaPacket = new XMPP_FriendPersonaType();
         PersonaBase xmppPersonaBase = driverPersonaBO.getPersonaBase(personaEntity);
@@ -444,7 +442,7 @@ public class SocialRelationshipBO {
 
                 Long[] parts = Arrays.stream(message.split("\\|")).map(Long::parseLong).toArray(Long[]::new);
 
-                sendPresencePackets(personaDAO.findById(parts[0]), parts[1]);
+                presenceFanoutBO.submit(parts[0], parts[1]);
             }
         }
 
@@ -7,6 +7,7 @@
 package com.soapboxrace.core.bo;
 
 import com.soapboxrace.core.api.util.BuildInfo;
+import com.soapboxrace.jaxb.util.JAXBContextRegistry;
 
 import javax.annotation.PostConstruct;
 import javax.ejb.Singleton;
@@ -21,5 +22,9 @@ public class StartupBO {
 
         System.out.println(String.format(template, BuildInfo.getCommitID(), BuildInfo.getLongCommitID(),
                 BuildInfo.getBranch()));
+
+        int contexts = JAXBContextRegistry.warmUp("com.soapboxrace.jaxb.http", "com.soapboxrace.jaxb.xmpp",
+                "com.soapboxrace.jaxb.login");
+        System.out.println("StartupBO: Created " + contexts + " JAXB contexts");
     }
 }
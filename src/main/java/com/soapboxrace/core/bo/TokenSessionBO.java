@@ -6,8 +6,8 @@
 
 package com.soapboxrace.core.bo;
 
-import com.soapboxrace.core.api.util.GeoIp2;
 import com.soapboxrace.core.api.util.UUIDGen;
+import com.soapboxrace.core.bo.util.TokenSessionInfo;
 import com.soapboxrace.core.dao.TokenSessionDAO;
 import com.soapboxrace.core.dao.UserDAO;
 import com.soapboxrace.core.engine.EngineException;
@@ -25,6 +25,7 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
 import java.util.Date;
+import java.util.Objects;
 
 @Stateless
 public class TokenSessionBO {
@@ -43,14 +44,18 @@ public class TokenSessionBO {
     @EJB
     private AuthenticationBO authenticationBO;
 
+    @EJB
+    private TokenSessionStoreBO tokenSessionStoreBO;
+
+    @EJB
+    private GeoIpBO geoIpBO;
+
     public boolean verifyToken(Long userId, String securityToken) {
-        TokenSessionEntity tokenSessionEntity = tokenDAO.findById(securityToken);
-        if (tokenSessionEntity == null || !tokenSessionEntity.getUserEntity().getId().equals(userId)) {
+        TokenSessionInfo tokenSessionInfo = getSession(securityToken);
+        if (tokenSessionInfo == null || !tokenSessionInfo.getUserId().equals(userId)) {
             return false;
         }
-        long time = new Date().getTime();
-        long tokenTime = tokenSessionEntity.getExpirationDate().getTime();
-        return time <= tokenTime;
+        return !tokenSessionInfo.isExpired(new Date().getTime());
     }
 
     public String createToken(Long userId, String clientHostName) {
@@ -65,22 +70,24 @@ public class TokenSessionBO {
         tokenSessionEntity.setClientHostIp(clientHostName);
         tokenSessionEntity.setActivePersonaId(0L);
         tokenDAO.insert(tokenSessionEntity);
+        tokenSessionStoreBO.put(TokenSessionInfo.fromEntity(tokenSessionEntity));
         return randomUUID;
     }
 
     public void verifyPersonaOwnership(String securityToken, Long personaId) {
-        TokenSessionEntity tokenSession = tokenDAO.findById(securityToken);
+        TokenSessionInfo tokenSession = getSession(securityToken);
         if (tokenSession == null) {
             throw new EngineException(EngineExceptionCode.NoSuchSessionInSessionStore, true);
         }
 
-        if (!tokenSession.getUserEntity().ownsPersona(personaId)) {
+        if (!userDAO.findById(tokenSession.getUserId()).ownsPersona(personaId)) {
             throw new EngineException(EngineExceptionCode.RemotePersonaDoesNotBelongToUser, true);
         }
     }
 
     public void deleteByUserId(Long userId) {
         tokenDAO.deleteByUserId(userId);
+        tokenSessionStoreBO.removeByUserId(userId);
     }
 
     private Date getMinutes(int minutes) {
@@ -93,9 +100,7 @@ public class TokenSessionBO {
         LoginStatusVO loginStatusVO = new LoginStatusVO(0L, "", false);
         String allowedCountries = serverInfoBO.getServerInformation().getAllowedCountries();
         if (allowedCountries != null && !allowedCountries.isEmpty()) {
-            String geoip2DbFilePath = parameterBO.getStrParam("GEOIP2_DB_FILE_PATH");
-            GeoIp2 geoIp2 = GeoIp2.getInstance(geoip2DbFilePath);
-            if (geoIp2.isCountryAllowed(ip, allowedCountries)) {
+            if (geoIpBO.isCountryAllowed(ip, allowedCountries)) {
                 return new LoginStatusVO(0L, "", true);
             } else {
                 loginStatusVO.setDescription("GEOIP BLOCK ACTIVE IN THIS SERVER, ALLOWED COUNTRIES: [" + allowedCountries + "]");
@@ -150,37 +155,49 @@ public class TokenSessionBO {
     }
 
     public Long getActivePersonaId(String securityToken) {
-        TokenSessionEntity tokenSessionEntity = tokenDAO.findById(securityToken);
-        return tokenSessionEntity.getActivePersonaId();
+        return getSession(securityToken).getActivePersonaId();
     }
 
     public void setActivePersonaId(String securityToken, Long personaId, Boolean isLogout) {
-        TokenSessionEntity tokenSessionEntity = tokenDAO.findById(securityToken);
+        TokenSessionInfo tokenSessionInfo = getSession(securityToken);
 
         if (!isLogout) {
-            if (!tokenSessionEntity.getUserEntity().ownsPersona(personaId)) {
+            if (!userDAO.findById(tokenSessionInfo.getUserId()).ownsPersona(personaId)) {
                 throw new EngineException(EngineExceptionCode.RemotePersonaDoesNotBelongToUser, true);
             }
         }
 
+        if (Objects.equals(tokenSessionInfo.getActivePersonaId(), personaId)) {
+            return;
+        }
+
+        TokenSessionEntity tokenSessionEntity = tokenDAO.findById(securityToken);
         tokenSessionEntity.setActivePersonaId(personaId);
         tokenDAO.update(tokenSessionEntity);
+        tokenSessionInfo.setActivePersonaId(personaId);
+        tokenSessionStoreBO.put(tokenSessionInfo);
     }
 
     public String getActiveRelayCryptoTicket(String securityToken) {
-        TokenSessionEntity tokenSessionEntity = tokenDAO.findById(securityToken);
-        return tokenSessionEntity.getRelayCryptoTicket();
+        return getSession(securityToken).getRelayCryptoTicket();
     }
 
     public Long getActiveLobbyId(String securityToken) {
-        TokenSessionEntity tokenSessionEntity = tokenDAO.findById(securityToken);
-        return tokenSessionEntity.getActiveLobbyId();
+        return getSession(securityToken).getActiveLobbyId();
     }
 
     public void setActiveLobbyId(String securityToken, Long lobbyId) {
+        TokenSessionInfo tokenSessionInfo = getSession(securityToken);
+
+        if (Objects.equals(tokenSessionInfo.getActiveLobbyId(), lobbyId)) {
+            return;
+        }
+
         TokenSessionEntity tokenSessionEntity = tokenDAO.findById(securityToken);
         tokenSessionEntity.setActiveLobbyId(lobbyId);
         tokenDAO.update(tokenSessionEntity);
+        tokenSessionInfo.setActiveLobbyId(lobbyId);
+        tokenSessionStoreBO.put(tokenSessionInfo);
     }
 
     public boolean isAdmin(String securityToken) {
@@ -188,6 +205,29 @@ public class TokenSessionBO {
     }
 
     public UserEntity getUser(String securityToken) {
-        return tokenDAO.findById(securityToken).getUserEntity();
+        return userDAO.findById(getSession(securityToken).getUserId());
+    }
+
+    /**
+     * Looks up the session for the given token, going to the database only if the session store has no entry.
+     *
+     * @param securityToken the security token
+     * @return the session, or {@code null} if the token doesn't exist
+     */
+    private TokenSessionInfo getSession(String securityToken) {
+        TokenSessionInfo tokenSessionInfo = tokenSessionStoreBO.get(securityToken);
+
+        if (tokenSessionInfo == null) {
+            TokenSessionEntity tokenSessionEntity = tokenDAO.findById(securityToken);
+
+            if (tokenSessionEntity == null) {
+                return null;
+            }
+
+            tokenSessionInfo = TokenSessionInfo.fromEntity(tokenSessionEntity);
+            tokenSessionStoreBO.put(tokenSessionInfo);
+        }
+
+        return tokenSessionInfo;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,70 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo;
+
+import com.soapboxrace.core.bo.util.LocalTokenSessionStore;
+import com.soapboxrace.core.bo.util.RedisTokenSessionStore;
+import com.soapboxrace.core.bo.util.TokenSessionInfo;
+import com.soapboxrace.core.bo.util.TokenSessionStore;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.*;
+
+/**
+ * Holds security token sessions in front of the TOKEN_SESSION table.
+ * The backend is chosen with the {@code TOKEN_SESSION_STORE} parameter: {@code local} (default) keeps sessions
+ * in memory, {@code redis} shares them through Redis and requires {@code ENABLE_REDIS}.
+ *
+ * @see TokenSessionBO
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
+public class TokenSessionStoreBO {
+
+    @EJB
+    private ParameterBO parameterBO;
+
+    @EJB
+    private RedisBO redisBO;
+
+    private TokenSessionStore store;
+
+    @PostConstruct
+    public void init() {
+        String storeType = parameterBO.getStrParam("TOKEN_SESSION_STORE", "local");
+
+        if ("redis".equalsIgnoreCase(storeType) && parameterBO.getBoolParam("ENABLE_REDIS")) {
+            this.store = new RedisTokenSessionStore(redisBO.getConnection());
+        } else {
+            this.store = new LocalTokenSessionStore();
+        }
+
+        System.out.println("TokenSessionStoreBO using " + this.store.getClass().getSimpleName());
+    }
+
+    public TokenSessionInfo get(String securityToken) {
+        return store.get(securityToken);
+    }
+
+    public void put(TokenSessionInfo tokenSessionInfo) {
+        store.put(tokenSessionInfo);
+    }
+
+    public void removeByUserId(Long userId) {
+        store.removeByUserId(userId);
+    }
+
+    public void updateRelayCryptoTicketByPersonaId(Long personaId, String relayCryptoTicket) {
+        store.updateRelayCryptoTicketByPersonaId(personaId, relayCryptoTicket);
+    }
+
+    @Schedule(minute = "*", hour = "*", persistent = false)
+    public void evictExpired() {
+        store.evictExpired();
+    }
+}
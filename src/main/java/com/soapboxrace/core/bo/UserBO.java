@@ -52,12 +52,19 @@ public class UserBO {
     @EJB
     private AchievementBO achievementBO;
 
+    /**
+     * Updates the XMPP password of every persona of the user, without waiting for OpenFire.
+     * The client only logs in to XMPP after a persona has been selected, and
+     * {@link #secureLoginPersona(Long, Long)} waits for that persona's update.
+     *
+     * @param userInfo the user, with its new security token
+     */
     public void createXmppUser(UserInfo userInfo) {
         String securityToken = userInfo.getUser().getSecurityToken();
         String xmppPasswd = securityToken.substring(0, 16);
         List<ProfileData> profileData = userInfo.getPersonas().getProfileData();
         for (ProfileData persona : profileData) {
-            createXmppUser(persona.getPersonaId(), xmppPasswd);
+            xmppRestApiCli.createUpdatePersonaAsync(persona.getPersonaId(), xmppPasswd);
         }
     }
 
@@ -194,6 +201,7 @@ public class UserBO {
     }
 
     public void secureLoginPersona(Long userId, Long personaId) {
+        xmppRestApiCli.awaitPersonaUpdate(personaId);
         PersonaEntity personaEntity = personaDAO.findById(personaId);
 
         if (personaEntity != null) {
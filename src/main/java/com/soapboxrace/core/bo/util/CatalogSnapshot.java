@@ -0,0 +1,192 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo.util;
+
+import com.soapboxrace.core.jpa.CarClassesEntity;
+import com.soapboxrace.core.jpa.CategoryEntity;
+import com.soapboxrace.core.jpa.ProductEntity;
+import com.soapboxrace.core.jpa.VinylProductEntity;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * An immutable copy of the static catalog tables (products, vinyls, categories and car classes),
+ * indexed for the lookups done on hot paths. The entities it holds are detached and must not be modified.
+ *
+ * @see com.soapboxrace.core.bo.CatalogBO
+ */
+public class CatalogSnapshot {
+    private final long version;
+
+    private final long loadedAt;
+
+    private final List<ProductEntity> products;
+
+    private final Map<Integer, ProductEntity> productsByHash;
+
+    private final Map<String, ProductEntity> productsByProductId;
+
+    private final Map<String, ProductEntity> productsByEntitlementTag;
+
+    private final Map<String, List<ProductEntity>> productsByType;
+
+    private final Map<String, List<ProductEntity>> productsByCategoryAndType;
+
+    private final Map<String, List<ProductEntity>> dropsByType;
+
+    private final Map<Integer, VinylProductEntity> vinylsByHash;
+
+    private final Map<String, VinylProductEntity> vinylsByProductId;
+
+    private final Map<Long, List<VinylProductEntity>> vinylsByCategory;
+
+    private final List<CategoryEntity> categories;
+
+    private final Map<Integer, CarClassesEntity> carClassesByHash;
+
+    /**
+     * Builds a snapshot. Products and vinyls must be ordered by ID; when several rows share a key,
+     * the first one wins, like the DAO lookups this replaces.
+     */
+    public CatalogSnapshot(long version, List<ProductEntity> products, List<VinylProductEntity> vinyls,
+                           List<CategoryEntity> categories, List<CarClassesEntity> carClasses) {
+        this.version = version;
+        this.loadedAt = System.currentTimeMillis();
+        this.products = Collections.unmodifiableList(new ArrayList<>(products));
+        this.productsByHash = index(products, ProductEntity::getHash);
+        this.productsByProductId = index(products, ProductEntity::getProductId);
+        this.productsByEntitlementTag = index(products, ProductEntity::getEntitlementTag);
+        this.productsByType = group(products, ProductEntity::getProductType);
+        this.productsByCategoryAndType = group(products, p -> getCategoryTypeKey(p.getCategoryName(),
+                p.getProductType()));
+        this.dropsByType = group(products.stream()
+                .filter(p -> p.isEnabled() && p.isDropable() && p.getDropWeight() != null && p.getDropWeight() > 0.0)
+                .collect(Collectors.toList()), ProductEntity::getProductType);
+        this.vinylsByHash = index(vinyls, VinylProductEntity::getHash);
+        this.vinylsByProductId = index(vinyls, VinylProductEntity::getProductId);
+        this.vinylsByCategory = group(vinyls, v -> v.getCategory() == null ? null : v.getCategory().getId());
+        this.categories = Collections.unmodifiableList(new ArrayList<>(categories));
+        this.carClassesByHash = index(carClasses, CarClassesEntity::getHash);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+
+    public int getProductCount() {
+        return products.size();
+    }
+
+    public ProductEntity getProductByHash(Integer hash) {
+        return productsByHash.get(hash);
+    }
+
+    public ProductEntity getProductByProductId(String productId) {
+        return productsByProductId.get(productId);
+    }
+
+    public ProductEntity getProductByEntitlementTag(String entitlementTag) {
+        return productsByEntitlementTag.get(entitlementTag);
+    }
+
+    /**
+     * Same as the {@code ProductEntity.findByLevelEnabled} query.
+     */
+    public List<ProductEntity> getProductsByLevelEnabled(String categoryName, String productType, int level,
+                                                         boolean enabled, boolean premium) {
+        return productsByCategoryAndType.getOrDefault(getCategoryTypeKey(categoryName, productType),
+                Collections.emptyList()).stream()
+                .filter(p -> p.isEnabled() == enabled && p.getMinLevel() <= level && (!p.isPremium() || premium))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Same as the {@code ProductEntity.findDropsByType} query.
+     */
+    public List<ProductEntity> getDropsByType(String productType) {
+        return dropsByType.getOrDefault(productType, Collections.emptyList());
+    }
+
+    /**
+     * Finds products matching every given trait. A {@code null} trait matches anything.
+     */
+    public List<ProductEntity> getProductsByTraits(String category, String type, String subType, Integer rating) {
+        List<ProductEntity> candidates = type == null ? products : productsByType.getOrDefault(type,
+                Collections.emptyList());
+
+        return candidates.stream()
+                .filter(p -> category == null || category.equals(p.getCategoryName()))
+                .filter(p -> subType == null || subType.equals(p.getSubType()))
+                .filter(p -> rating == null || rating.equals(p.getRarity()))
+                .collect(Collectors.toList());
+    }
+
+    public VinylProductEntity getVinylByHash(Integer hash) {
+        return vinylsByHash.get(hash);
+    }
+
+    public VinylProductEntity getVinylByProductId(String productId) {
+        return vinylsByProductId.get(productId);
+    }
+
+    /**
+     * Same as the {@code VinylProductEntity.findByCategoryLevelEnabled} query.
+     */
+    public List<VinylProductEntity> getVinylsByCategoryLevelEnabled(CategoryEntity category, int level,
+                                                                    boolean enabled, boolean premium) {
+        return vinylsByCategory.getOrDefault(category.getId(), Collections.emptyList()).stream()
+                .filter(v -> v.isEnabled() == enabled && v.getMinLevel() <= level && (!v.isPremium() || premium))
+                .collect(Collectors.toList());
+    }
+
+    public List<CategoryEntity> getCategories() {
+        return categories;
+    }
+
+    public CarClassesEntity getCarClassByHash(Integer hash) {
+        return carClassesByHash.get(hash);
+    }
+
+    private static String getCategoryTypeKey(String categoryName, String productType) {
+        return categoryName + "|" + productType;
+    }
+
+    private static <K, V> Map<K, V> index(List<V> values, Function<V, K> keyFunction) {
+        Map<K, V> map = new HashMap<>();
+
+        for (V value : values) {
+            K key = keyFunction.apply(value);
+
+            if (key != null) {
+                map.putIfAbsent(key, value);
+            }
+        }
+
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static <K, V> Map<K, List<V>> group(List<V> values, Function<V, K> keyFunction) {
+        Map<K, List<V>> map = new HashMap<>();
+
+        for (V value : values) {
+            K key = keyFunction.apply(value);
+
+            if (key != null) {
+                map.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+            }
+        }
+
+        map.replaceAll((k, v) -> Collections.unmodifiableList(v));
+        return Collections.unmodifiableMap(map);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo.util;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.function.Function;
+
+/**
+ * The launcher checks done on login and signup, compiled from the {@code ENABLE_WHITELISTED_LAUNCHERS_ONLY},
+ * {@code WHITELISTED_LAUNCHERS_ONLY} and {@code ENABLE_METONATOR_LAUNCHER_PROTECTION} parameters.
+ * Instances are immutable.
+ */
+public class LauncherPolicy {
+
+    public static final String WRONG_LAUNCHER_MESSAGE = "You're using the wrong launcher, please update to the latest one:\n\n" +
+            "    SBRW Launcher: https://worldunited.gg/download\n" +
+            "    Electron Launcher: https://launcher.sparkserver.eu/";
+
+    public static final String METONATOR_LAUNCHER_MESSAGE = "Please use MeTonaTOR's launcher. Or, are you tampering?";
+
+    private static final String METONATOR_USER_AGENT = "GameLauncher (+https://github.com/SoapboxRaceWorld/GameLauncher_NFSW)";
+
+    private final boolean whitelistEnabled;
+
+    /**
+     * The minimum version of each launcher, or null if the launcher is not allowed.
+     */
+    private final int[] minSbrwVersion;
+
+    private final int[] minElectronVersion;
+
+    private final boolean metonatorProtection;
+
+    public LauncherPolicy(boolean whitelistEnabled, String whitelistJson, boolean metonatorProtection) {
+        int[] minSbrwVersion = null;
+        int[] minElectronVersion = null;
+
+        if (whitelistEnabled && whitelistJson != null) {
+            try {
+                JSONObject whitelist = new JSONObject(whitelistJson);
+                minSbrwVersion = whitelist.has("sbrw") ? parseVersion(whitelist.getString("sbrw")) : null;
+                minElectronVersion = whitelist.has("electron") ? parseVersion(whitelist.getString("electron")) : null;
+            } catch (JSONException | NumberFormatException e) {
+                System.err.println("Invalid WHITELISTED_LAUNCHERS_ONLY, no launcher will be allowed: " + e.getMessage());
+            }
+        }
+
+        // as before, the whitelist is only applied when it is set
+        this.whitelistEnabled = whitelistEnabled && whitelistJson != null;
+        this.minSbrwVersion = minSbrwVersion;
+        this.minElectronVersion = minElectronVersion;
+        this.metonatorProtection = metonatorProtection;
+    }
+
+    /**
+     * Checks a request against the policy.
+     *
+     * @param headers gets a request header by name
+     * @param hwid    the X-HWID header
+     * @return null if the request is allowed, or the reason it was rejected
+     */
+    public String check(Function<String, String> headers, String hwid) {
+        if (whitelistEnabled && !isWhitelisted(headers)) {
+            return WRONG_LAUNCHER_MESSAGE;
+        }
+
+        if (metonatorProtection) {
+            String userAgent = headers.apply("User-Agent");
+            String gameLauncherHash = headers.apply("X-GameLauncherHash");
+
+            if (!METONATOR_USER_AGENT.equals(userAgent) || hwid == null || hwid.trim().isEmpty()
+                    || gameLauncherHash == null || gameLauncherHash.trim().isEmpty()) {
+                return METONATOR_LAUNCHER_MESSAGE;
+            }
+
+            //disable electron aswell
+            String electronUserAgent = headers.apply("X-User-Agent");
+
+            if (electronUserAgent != null && electronUserAgent.startsWith("electron")) {
+                return METONATOR_LAUNCHER_MESSAGE;
+            }
+        }
+
+        return null;
+    }
+
+    private boolean isWhitelisted(Function<String, String> headers) {
+        String userAgent = headers.apply("X-User-Agent");
+
+        if (userAgent != null) {
+            // electron/1.2.3
+            return isAtLeast(userAgent, userAgent.indexOf('/'), minElectronVersion);
+        }
+
+        userAgent = headers.apply("X-UserAgent");
+
+        if (userAgent != null) {
+            // GameLauncherReborn 2.1.6.2 WinForms (+https://github.com/worldunitedgg/GameLauncher_NFSW)
+            return isAtLeast(userAgent, userAgent.indexOf(' '), minSbrwVersion);
+        }
+
+        return false;
+    }
+
+    /**
+     * Compares the version that follows the separator in the user agent to the minimum version, without
+     * allocating. A version that is a prefix of another is lower, and a malformed version is rejected.
+     */
+    private static boolean isAtLeast(String userAgent, int separator, int[] minVersion) {
+        if (minVersion == null || separator == -1) {
+            return false;
+        }
+
+        int end = userAgent.indexOf(' ', separator + 1);
+        end = end == -1 ? userAgent.length() : end;
+        int position = separator + 1;
+        int component = 0;
+
+        while (position < end) {
+            int value = 0;
+            int start = position;
+
+            while (position < end && userAgent.charAt(position) != '.') {
+                char c = userAgent.charAt(position++);
+
+                if (c < '0' || c > '9' || position - start > 9) {
+                    return false;
+                }
+
+                value = value * 10 + (c - '0');
+            }
+
+            if (position == start) {
+                return false;
+            }
+
+            if (component == minVersion.length) {
+                return true;
+            }
+
+            if (value != minVersion[component]) {
+                return value > minVersion[component];
+            }
+
+            component++;
+            position++;
+        }
+
+        return component >= minVersion.length;
+    }
+
+    private static int[] parseVersion(String version) {
+        String[] components = version.split("\\.");
+        int[] parsed = new int[components.length];
+
+        for (int i = 0; i < components.length; i++) {
+            parsed[i] = Integer.parseInt(components[i].trim());
+        }
+
+        return parsed;
+    }
+}
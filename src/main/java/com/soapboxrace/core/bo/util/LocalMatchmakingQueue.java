@@ -0,0 +1,86 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo.util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Matchmaking queue kept in memory. Every car class has its own FIFO bucket, and open events
+ * read from a bucket holding every queued persona.
+ */
+public class LocalMatchmakingQueue implements MatchmakingQueue {
+    private final Map<Long, Integer> carClasses = new HashMap<>();
+
+    private final Map<Integer, LinkedHashSet<Long>> buckets = new HashMap<>();
+
+    private final LinkedHashSet<Long> openBucket = new LinkedHashSet<>();
+
+    private final ConcurrentMap<Long, Set<Long>> ignoredEvents = new ConcurrentHashMap<>();
+
+    @Override
+    public synchronized void add(Long personaId, int carClass) {
+        remove(personaId);
+        carClasses.put(personaId, carClass);
+        buckets.computeIfAbsent(carClass, k -> new LinkedHashSet<>()).add(personaId);
+        openBucket.add(personaId);
+    }
+
+    @Override
+    public synchronized void remove(Long personaId) {
+        Integer carClass = carClasses.remove(personaId);
+
+        if (carClass != null) {
+            buckets.get(carClass).remove(personaId);
+            openBucket.remove(personaId);
+        }
+    }
+
+    @Override
+    public synchronized List<Long> find(int carClass, long eventId, int limit) {
+        Set<Long> bucket = carClass == OPEN_CAR_CLASS ? openBucket : buckets.get(carClass);
+        List<Long> personaIds = new ArrayList<>();
+
+        if (bucket != null) {
+            for (Long personaId : bucket) {
+                if (personaIds.size() >= limit) {
+                    break;
+                }
+
+                if (!isEventIgnored(personaId, eventId)) {
+                    personaIds.add(personaId);
+                }
+            }
+        }
+
+        return personaIds;
+    }
+
+    @Override
+    public void ignoreEvent(long personaId, long eventId) {
+        ignoredEvents.computeIfAbsent(personaId, k -> ConcurrentHashMap.newKeySet()).add(eventId);
+    }
+
+    @Override
+    public void resetIgnoredEvents(long personaId) {
+        ignoredEvents.remove(personaId);
+    }
+
+    @Override
+    public boolean isEventIgnored(long personaId, long eventId) {
+        Set<Long> events = ignoredEvents.get(personaId);
+        return events != null && events.contains(eventId);
+    }
+
+    @Override
+    public synchronized void clear() {
+        carClasses.clear();
+        buckets.clear();
+        openBucket.clear();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo.util;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-process session store. Only suitable when a single core instance is serving the database.
+ */
+public class LocalTokenSessionStore implements TokenSessionStore {
+    private final ConcurrentMap<String, TokenSessionInfo> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, String> tokensByUser = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, String> tokensByPersona = new ConcurrentHashMap<>();
+    // the persona each token was indexed under; the session itself is changed in place before it is put again
+    private final ConcurrentMap<String, Long> personasByToken = new ConcurrentHashMap<>();
+
+    @Override
+    public TokenSessionInfo get(String securityToken) {
+        TokenSessionInfo tokenSessionInfo = sessions.get(securityToken);
+
+        if (tokenSessionInfo != null && tokenSessionInfo.isExpired(System.currentTimeMillis())) {
+            remove(tokenSessionInfo);
+            return null;
+        }
+
+        return tokenSessionInfo;
+    }
+
+    @Override
+    public void put(TokenSessionInfo tokenSessionInfo) {
+        sessions.put(tokenSessionInfo.getSecurityToken(), tokenSessionInfo);
+        tokensByUser.put(tokenSessionInfo.getUserId(), tokenSessionInfo.getSecurityToken());
+
+        String securityToken = tokenSessionInfo.getSecurityToken();
+        Long activePersonaId = tokenSessionInfo.getActivePersonaId();
+        Long previousPersonaId;
+
+        if (activePersonaId != null && activePersonaId != 0L) {
+            tokensByPersona.put(activePersonaId, securityToken);
+            previousPersonaId = personasByToken.put(securityToken, activePersonaId);
+        } else {
+            previousPersonaId = personasByToken.remove(securityToken);
+        }
+
+        if (previousPersonaId != null && !previousPersonaId.equals(activePersonaId)) {
+            tokensByPersona.remove(previousPersonaId, securityToken);
+        }
+    }
+
+    @Override
+    public void removeByUserId(Long userId) {
+        String securityToken = tokensByUser.remove(userId);
+
+        if (securityToken != null) {
+            sessions.remove(securityToken);
+            removePersona(securityToken);
+        }
+    }
+
+    @Override
+    public void updateRelayCryptoTicketByPersonaId(Long personaId, String relayCryptoTicket) {
+        String securityToken = tokensByPersona.get(personaId);
+
+        if (securityToken != null) {
+            TokenSessionInfo tokenSessionInfo = sessions.get(securityToken);
+
+            if (tokenSessionInfo != null && Objects.equals(tokenSessionInfo.getActivePersonaId(), personaId)) {
+                tokenSessionInfo.setRelayCryptoTicket(relayCryptoTicket);
+            }
+        }
+    }
+
+    @Override
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+
+        for (TokenSessionInfo tokenSessionInfo : sessions.values()) {
+            if (tokenSessionInfo.isExpired(now)) {
+                remove(tokenSessionInfo);
+            }
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private void remove(TokenSessionInfo tokenSessionInfo) {
+        String securityToken = tokenSessionInfo.getSecurityToken();
+        sessions.remove(securityToken, tokenSessionInfo);
+        tokensByUser.remove(tokenSessionInfo.getUserId(), securityToken);
+        removePersona(securityToken);
+    }
+
+    private void removePersona(String securityToken) {
+        Long personaId = personasByToken.remove(securityToken);
+
+        if (personaId != null) {
+            tokensByPersona.remove(personaId, securityToken);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo.util;
+
+import java.util.List;
+
+/**
+ * Holds the personas waiting for a multiplayer event, grouped by the class of their car,
+ * along with the events each persona has declined.
+ *
+ * @see com.soapboxrace.core.bo.MatchmakingBO
+ */
+public interface MatchmakingQueue {
+
+    /**
+     * The car class hash of open events, which accept cars of any class.
+     */
+    int OPEN_CAR_CLASS = 607077938;
+
+    void add(Long personaId, int carClass);
+
+    void remove(Long personaId);
+
+    /**
+     * Finds queued personas for an event, oldest first. Personas are not removed from the queue.
+     *
+     * @param carClass the car class hash of the event; {@link #OPEN_CAR_CLASS} matches every persona
+     * @param eventId  the event ID; personas that ignored it are skipped
+     * @param limit    the maximum number of personas to return
+     * @return the persona IDs
+     */
+    List<Long> find(int carClass, long eventId, int limit);
+
+    void ignoreEvent(long personaId, long eventId);
+
+    void resetIgnoredEvents(long personaId);
+
+    boolean isEventIgnored(long personaId, long eventId);
+
+    /**
+     * Empties the queue. Ignored events are kept.
+     */
+    void clear();
+}
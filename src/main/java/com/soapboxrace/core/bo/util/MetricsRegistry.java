@@ -0,0 +1,159 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo.util;
+
+import com.soapboxrace.core.engine.EngineExceptionCode;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds the server's internal metrics: per-endpoint request statistics, per-method DAO timings and named timers.
+ * Everything is lock-free, and looking up a metric that already exists doesn't allocate.
+ */
+public final class MetricsRegistry {
+
+    private static final ConcurrentMap<Method, EndpointMetrics> ENDPOINTS = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<Method, LatencyHistogram>> DAO_TIMERS =
+            new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<String, LatencyHistogram> TIMERS = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * @param resourceMethod the JAX-RS resource method
+     * @return the metrics of the endpoint served by the method
+     */
+    public static EndpointMetrics endpoint(Method resourceMethod) {
+        EndpointMetrics metrics = ENDPOINTS.get(resourceMethod);
+        return metrics != null ? metrics : ENDPOINTS.computeIfAbsent(resourceMethod, EndpointMetrics::new);
+    }
+
+    /**
+     * @param daoClass the DAO class (methods inherited from a base class are counted per DAO)
+     * @param method   the DAO method
+     * @return the timer of the method
+     */
+    public static LatencyHistogram daoTimer(Class<?> daoClass, Method method) {
+        ConcurrentMap<Method, LatencyHistogram> timers = DAO_TIMERS.get(daoClass);
+
+        if (timers == null) {
+            timers = DAO_TIMERS.computeIfAbsent(daoClass, k -> new ConcurrentHashMap<>());
+        }
+
+        LatencyHistogram timer = timers.get(method);
+        return timer != null ? timer : timers.computeIfAbsent(method, k -> new LatencyHistogram());
+    }
+
+    /**
+     * Gets a named timer. Callers are expected to keep the result in a field.
+     *
+     * @param name the timer name
+     * @return the timer
+     */
+    public static LatencyHistogram timer(String name) {
+        return TIMERS.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    /**
+     * @return the metrics of every endpoint that has been called, keyed by "Resource.method"
+     */
+    public static Map<String, EndpointMetrics> getEndpoints() {
+        Map<String, EndpointMetrics> endpoints = new TreeMap<>();
+        ENDPOINTS.values().forEach(m -> endpoints.put(m.getName(), m));
+        return endpoints;
+    }
+
+    /**
+     * @return the timer of every DAO method that has been called, keyed by "DAO.method"
+     */
+    public static Map<String, LatencyHistogram> getDaoTimers() {
+        Map<String, LatencyHistogram> timers = new TreeMap<>();
+        DAO_TIMERS.forEach((daoClass, methods) -> methods.forEach(
+                (method, timer) -> timers.put(daoClass.getSimpleName() + "." + method.getName(), timer)));
+        return timers;
+    }
+
+    public static Map<String, LatencyHistogram> getTimers() {
+        return new TreeMap<>(TIMERS);
+    }
+
+    public static class EndpointMetrics {
+        private final String name;
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private final LongAdder responseBytes = new LongAdder();
+
+        private final LongAccumulator maxResponseBytes = new LongAccumulator(Math::max, 0);
+
+        private final LongAdder serverErrors = new LongAdder();
+
+        private final ConcurrentMap<EngineExceptionCode, LongAdder> engineErrors = new ConcurrentHashMap<>();
+
+        private EndpointMetrics(Method resourceMethod) {
+            this.name = resourceMethod.getDeclaringClass().getSimpleName() + "." + resourceMethod.getName();
+        }
+
+        public void recordLatency(long nanos) {
+            latency.record(nanos);
+        }
+
+        public void recordResponseSize(long bytes) {
+            responseBytes.add(bytes);
+            maxResponseBytes.accumulate(bytes);
+        }
+
+        public void recordServerError() {
+            serverErrors.increment();
+        }
+
+        public void recordEngineError(EngineExceptionCode code) {
+            engineErrors.computeIfAbsent(code, k -> new LongAdder()).increment();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the request latency; its count is the number of requests
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getResponseBytes() {
+            return responseBytes.sum();
+        }
+
+        public long getMaxResponseBytes() {
+            return maxResponseBytes.get();
+        }
+
+        /**
+         * @return the number of 5xx responses that did not carry an engine error code
+         */
+        public long getServerErrors() {
+            return serverErrors.sum();
+        }
+
+        public Map<EngineExceptionCode, Long> getEngineErrors() {
+            Map<EngineExceptionCode, Long> errors = new TreeMap<>();
+            engineErrors.forEach((code, count) -> errors.put(code, count.sum()));
+            return errors;
+        }
+    }
+}
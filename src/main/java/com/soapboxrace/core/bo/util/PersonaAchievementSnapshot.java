@@ -0,0 +1,69 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo.util;
+
+import com.soapboxrace.core.jpa.PersonaAchievementEntity;
+import com.soapboxrace.core.jpa.PersonaAchievementRankEntity;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The achievement progress of a single persona, loaded in bulk and indexed by achievement ID and
+ * achievement rank ID. Rows created while the snapshot is in use should be added to it with
+ * {@link #put(PersonaAchievementEntity)} and {@link #put(PersonaAchievementRankEntity)}.
+ */
+public class PersonaAchievementSnapshot {
+
+    private final Long personaId;
+
+    private final Map<Long, PersonaAchievementEntity> achievementsById = new HashMap<>();
+
+    private final Map<Long, PersonaAchievementRankEntity> ranksById = new HashMap<>();
+
+    public PersonaAchievementSnapshot(Long personaId, List<PersonaAchievementEntity> achievements,
+                                      List<PersonaAchievementRankEntity> ranks) {
+        this.personaId = personaId;
+
+        for (PersonaAchievementEntity achievement : achievements) {
+            put(achievement);
+        }
+
+        for (PersonaAchievementRankEntity rank : ranks) {
+            put(rank);
+        }
+    }
+
+    public Long getPersonaId() {
+        return personaId;
+    }
+
+    /**
+     * @param achievementId the achievement ID
+     * @return the persona's progress on the achievement, or {@code null} if there is none
+     */
+    public PersonaAchievementEntity getAchievement(Long achievementId) {
+        return achievementsById.get(achievementId);
+    }
+
+    /**
+     * @param achievementRankId the achievement rank ID
+     * @return the persona's state for the rank, or {@code null} if there is none
+     */
+    public PersonaAchievementRankEntity getRank(Long achievementRankId) {
+        return ranksById.get(achievementRankId);
+    }
+
+    public void put(PersonaAchievementEntity achievement) {
+        achievementsById.put(achievement.getAchievementEntity().getId(), achievement);
+    }
+
+    public void put(PersonaAchievementRankEntity rank) {
+        ranksById.put(rank.getAchievementRankEntity().getId(), rank);
+    }
+}
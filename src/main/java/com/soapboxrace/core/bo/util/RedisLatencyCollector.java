@@ -0,0 +1,55 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo.util;
+
+import io.lettuce.core.metrics.CommandLatencyCollector;
+import io.lettuce.core.metrics.CommandLatencyId;
+import io.lettuce.core.metrics.CommandMetrics;
+import io.lettuce.core.protocol.ProtocolKeyword;
+
+import java.net.SocketAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records the completion latency of every Redis command, by command type.
+ * Lettuce reports latencies to this collector for sync, async and pub/sub commands alike.
+ */
+public class RedisLatencyCollector implements CommandLatencyCollector {
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordCommandLatency(SocketAddress local, SocketAddress remote, ProtocolKeyword commandType,
+                                     long firstResponseLatency, long completionLatency) {
+        histograms.computeIfAbsent(commandType.name(), k -> new LatencyHistogram()).record(completionLatency);
+    }
+
+    /**
+     * @return the latency histograms, keyed by command type
+     */
+    public Map<String, LatencyHistogram> getHistograms() {
+        return new HashMap<>(histograms);
+    }
+
+    @Override
+    public Map<CommandLatencyId, CommandMetrics> retrieveMetrics() {
+        // histograms are read through getHistograms instead of Lettuce's event bus
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
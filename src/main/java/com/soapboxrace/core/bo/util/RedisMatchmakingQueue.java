@@ -0,0 +1,145 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo.util;
+
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Matchmaking queue backed by Redis, for setups where several core instances share one database.
+ * Every car class has a sorted set of persona IDs scored by the time they joined the queue,
+ * and the {@code matchmaking_queue} hash maps each queued persona to its car class.
+ */
+public class RedisMatchmakingQueue implements MatchmakingQueue {
+    private static final String CAR_CLASSES_KEY = "matchmaking_queue";
+
+    private static final String OPEN_BUCKET_KEY = "matchmaking_queue.open";
+
+    private static final int PAGE_SIZE = 50;
+
+    private final StatefulRedisConnection<String, String> connection;
+
+    public RedisMatchmakingQueue(StatefulRedisConnection<String, String> connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public void add(Long personaId, int carClass) {
+        String previousCarClass = connection.sync().hget(CAR_CLASSES_KEY, personaId.toString());
+        RedisAsyncCommands<String, String> commands = connection.async();
+        List<RedisFuture<?>> futures = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        if (previousCarClass != null) {
+            futures.add(commands.zrem(getBucketKey(Integer.parseInt(previousCarClass)), personaId.toString()));
+        }
+
+        futures.add(commands.hset(CAR_CLASSES_KEY, personaId.toString(), Integer.toString(carClass)));
+        futures.add(commands.zadd(getBucketKey(carClass), now, personaId.toString()));
+        futures.add(commands.zadd(OPEN_BUCKET_KEY, now, personaId.toString()));
+        await(futures);
+    }
+
+    @Override
+    public void remove(Long personaId) {
+        String carClass = connection.sync().hget(CAR_CLASSES_KEY, personaId.toString());
+
+        if (carClass != null) {
+            RedisAsyncCommands<String, String> commands = connection.async();
+            List<RedisFuture<?>> futures = new ArrayList<>();
+            futures.add(commands.hdel(CAR_CLASSES_KEY, personaId.toString()));
+            futures.add(commands.zrem(getBucketKey(Integer.parseInt(carClass)), personaId.toString()));
+            futures.add(commands.zrem(OPEN_BUCKET_KEY, personaId.toString()));
+            await(futures);
+        }
+    }
+
+    @Override
+    public List<Long> find(int carClass, long eventId, int limit) {
+        String bucketKey = carClass == OPEN_CAR_CLASS ? OPEN_BUCKET_KEY : getBucketKey(carClass);
+        RedisAsyncCommands<String, String> commands = connection.async();
+        List<Long> personaIds = new ArrayList<>();
+
+        for (long start = 0; personaIds.size() < limit; start += PAGE_SIZE) {
+            List<String> page = connection.sync().zrange(bucketKey, start, start + PAGE_SIZE - 1);
+
+            if (page.isEmpty()) {
+                break;
+            }
+
+            // check every candidate of the page in a single round trip
+            List<RedisFuture<Boolean>> ignored = new ArrayList<>(page.size());
+
+            for (String personaId : page) {
+                ignored.add(commands.sismember(getIgnoredEventsKey(Long.parseLong(personaId)), Long.toString(eventId)));
+            }
+
+            await(ignored);
+
+            for (int i = 0; i < page.size() && personaIds.size() < limit; i++) {
+                if (!ignored.get(i).toCompletableFuture().getNow(false)) {
+                    personaIds.add(Long.parseLong(page.get(i)));
+                }
+            }
+
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+        }
+
+        return personaIds;
+    }
+
+    @Override
+    public void ignoreEvent(long personaId, long eventId) {
+        connection.sync().sadd(getIgnoredEventsKey(personaId), Long.toString(eventId));
+    }
+
+    @Override
+    public void resetIgnoredEvents(long personaId) {
+        connection.sync().del(getIgnoredEventsKey(personaId));
+    }
+
+    @Override
+    public boolean isEventIgnored(long personaId, long eventId) {
+        return connection.sync().sismember(getIgnoredEventsKey(personaId), Long.toString(eventId));
+    }
+
+    @Override
+    public void clear() {
+        RedisCommands<String, String> commands = connection.sync();
+        Set<String> keys = new HashSet<>();
+        keys.add(CAR_CLASSES_KEY);
+        keys.add(OPEN_BUCKET_KEY);
+
+        for (String carClass : commands.hvals(CAR_CLASSES_KEY)) {
+            keys.add(getBucketKey(Integer.parseInt(carClass)));
+        }
+
+        commands.del(keys.toArray(new String[0]));
+    }
+
+    private void await(List<? extends RedisFuture<?>> futures) {
+        LettuceFutures.awaitAll(connection.getTimeout(), futures.toArray(new RedisFuture<?>[0]));
+    }
+
+    private static String getBucketKey(int carClass) {
+        return CAR_CLASSES_KEY + "." + carClass;
+    }
+
+    private static String getIgnoredEventsKey(long personaId) {
+        return "ignored_events." + personaId;
+    }
+}
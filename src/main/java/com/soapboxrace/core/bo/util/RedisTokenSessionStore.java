@@ -0,0 +1,138 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo.util;
+
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Session store backed by Redis, for setups where several core instances share one database.
+ * Each session is a hash that expires together with the session itself.
+ */
+public class RedisTokenSessionStore implements TokenSessionStore {
+    private final StatefulRedisConnection<String, String> connection;
+
+    public RedisTokenSessionStore(StatefulRedisConnection<String, String> connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public TokenSessionInfo get(String securityToken) {
+        Map<String, String> fields = connection.sync().hgetall(getSessionKey(securityToken));
+
+        if (fields == null || fields.isEmpty()) {
+            return null;
+        }
+
+        TokenSessionInfo tokenSessionInfo = new TokenSessionInfo();
+        tokenSessionInfo.setSecurityToken(securityToken);
+        tokenSessionInfo.setUserId(parseLong(fields.get("userId")));
+        tokenSessionInfo.setActivePersonaId(parseLong(fields.get("activePersonaId")));
+        tokenSessionInfo.setActiveLobbyId(parseLong(fields.get("activeLobbyId")));
+        tokenSessionInfo.setRelayCryptoTicket(fields.get("relayCryptoTicket"));
+        tokenSessionInfo.setExpirationTime(Long.parseLong(fields.get("expirationTime")));
+
+        if (tokenSessionInfo.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+
+        return tokenSessionInfo;
+    }
+
+    @Override
+    public void put(TokenSessionInfo tokenSessionInfo) {
+        long ttl = tokenSessionInfo.getExpirationTime() - System.currentTimeMillis();
+
+        if (ttl <= 0) {
+            return;
+        }
+
+        String sessionKey = getSessionKey(tokenSessionInfo.getSecurityToken());
+        Map<String, String> fields = new HashMap<>();
+        fields.put("userId", tokenSessionInfo.getUserId().toString());
+        fields.put("expirationTime", Long.toString(tokenSessionInfo.getExpirationTime()));
+        putIfNotNull(fields, "activePersonaId", tokenSessionInfo.getActivePersonaId());
+        putIfNotNull(fields, "activeLobbyId", tokenSessionInfo.getActiveLobbyId());
+        putIfNotNull(fields, "relayCryptoTicket", tokenSessionInfo.getRelayCryptoTicket());
+
+        RedisAsyncCommands<String, String> commands = connection.async();
+        List<RedisFuture<?>> futures = new ArrayList<>();
+        futures.add(commands.del(sessionKey));
+        futures.add(commands.hmset(sessionKey, fields));
+        futures.add(commands.pexpireat(sessionKey, tokenSessionInfo.getExpirationTime()));
+        futures.add(commands.set(getUserKey(tokenSessionInfo.getUserId()), tokenSessionInfo.getSecurityToken(),
+                SetArgs.Builder.px(ttl)));
+
+        Long activePersonaId = tokenSessionInfo.getActivePersonaId();
+        if (activePersonaId != null && activePersonaId != 0L) {
+            futures.add(commands.set(getPersonaKey(activePersonaId), tokenSessionInfo.getSecurityToken(),
+                    SetArgs.Builder.px(ttl)));
+        }
+
+        LettuceFutures.awaitAll(connection.getTimeout(), futures.toArray(new RedisFuture<?>[0]));
+    }
+
+    @Override
+    public void removeByUserId(Long userId) {
+        RedisCommands<String, String> commands = connection.sync();
+        String securityToken = commands.get(getUserKey(userId));
+
+        if (securityToken != null) {
+            commands.del(getSessionKey(securityToken), getUserKey(userId));
+        }
+    }
+
+    @Override
+    public void updateRelayCryptoTicketByPersonaId(Long personaId, String relayCryptoTicket) {
+        RedisCommands<String, String> commands = connection.sync();
+        String securityToken = commands.get(getPersonaKey(personaId));
+
+        if (securityToken != null) {
+            String sessionKey = getSessionKey(securityToken);
+
+            if (personaId.toString().equals(commands.hget(sessionKey, "activePersonaId"))) {
+                commands.hset(sessionKey, "relayCryptoTicket", relayCryptoTicket);
+            }
+        }
+    }
+
+    @Override
+    public void evictExpired() {
+        // keys expire on their own
+    }
+
+    private static void putIfNotNull(Map<String, String> fields, String field, Object value) {
+        if (value != null) {
+            fields.put(field, value.toString());
+        }
+    }
+
+    private static Long parseLong(String value) {
+        return value == null ? null : Long.valueOf(value);
+    }
+
+    private static String getSessionKey(String securityToken) {
+        return "token_session." + securityToken;
+    }
+
+    private static String getUserKey(Long userId) {
+        return "token_session_user." + userId;
+    }
+
+    private static String getPersonaKey(Long personaId) {
+        return "token_session_persona." + personaId;
+    }
+}
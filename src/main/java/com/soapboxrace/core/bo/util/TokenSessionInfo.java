@@ -0,0 +1,85 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo.util;
+
+import com.soapboxrace.core.jpa.TokenSessionEntity;
+
+/**
+ * Lightweight copy of the state held by a {@link TokenSessionEntity}, kept in the session store so that
+ * authenticated requests don't need to go to the database.
+ */
+public class TokenSessionInfo {
+    private String securityToken;
+    private Long userId;
+    private Long activePersonaId;
+    private Long activeLobbyId;
+    private String relayCryptoTicket;
+    private long expirationTime;
+
+    public static TokenSessionInfo fromEntity(TokenSessionEntity tokenSessionEntity) {
+        TokenSessionInfo tokenSessionInfo = new TokenSessionInfo();
+        tokenSessionInfo.setSecurityToken(tokenSessionEntity.getSecurityToken());
+        tokenSessionInfo.setUserId(tokenSessionEntity.getUserEntity().getId());
+        tokenSessionInfo.setActivePersonaId(tokenSessionEntity.getActivePersonaId());
+        tokenSessionInfo.setActiveLobbyId(tokenSessionEntity.getActiveLobbyId());
+        tokenSessionInfo.setRelayCryptoTicket(tokenSessionEntity.getRelayCryptoTicket());
+        tokenSessionInfo.setExpirationTime(tokenSessionEntity.getExpirationDate().getTime());
+        return tokenSessionInfo;
+    }
+
+    public String getSecurityToken() {
+        return securityToken;
+    }
+
+    public void setSecurityToken(String securityToken) {
+        this.securityToken = securityToken;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getActivePersonaId() {
+        return activePersonaId;
+    }
+
+    public void setActivePersonaId(Long activePersonaId) {
+        this.activePersonaId = activePersonaId;
+    }
+
+    public Long getActiveLobbyId() {
+        return activeLobbyId;
+    }
+
+    public void setActiveLobbyId(Long activeLobbyId) {
+        this.activeLobbyId = activeLobbyId;
+    }
+
+    public String getRelayCryptoTicket() {
+        return relayCryptoTicket;
+    }
+
+    public void setRelayCryptoTicket(String relayCryptoTicket) {
+        this.relayCryptoTicket = relayCryptoTicket;
+    }
+
+    public long getExpirationTime() {
+        return expirationTime;
+    }
+
+    public void setExpirationTime(long expirationTime) {
+        this.expirationTime = expirationTime;
+    }
+
+    public boolean isExpired(long now) {
+        return now > expirationTime;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo.util;
+
+/**
+ * Backend for the security token session store.
+ *
+ * @see LocalTokenSessionStore
+ * @see RedisTokenSessionStore
+ */
+public interface TokenSessionStore {
+    /**
+     * Gets the session for the given security token.
+     *
+     * @param securityToken the security token
+     * @return the session, or {@code null} if the store has no (unexpired) entry for the token
+     */
+    TokenSessionInfo get(String securityToken);
+
+    /**
+     * Adds or replaces the given session.
+     *
+     * @param tokenSessionInfo the session
+     */
+    void put(TokenSessionInfo tokenSessionInfo);
+
+    /**
+     * Removes every session belonging to the given user.
+     *
+     * @param userId the user ID
+     */
+    void removeByUserId(Long userId);
+
+    /**
+     * Sets the relay crypto ticket on the session whose active persona is the given persona.
+     *
+     * @param personaId         the persona ID
+     * @param relayCryptoTicket the relay crypto ticket
+     */
+    void updateRelayCryptoTicketByPersonaId(Long personaId, String relayCryptoTicket);
+
+    /**
+     * Removes expired sessions. Backends with native expiry can ignore this.
+     */
+    void evictExpired();
+}
@@ -13,6 +13,7 @@ import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import java.util.List;
 
 @Stateless
 public class CarClassesDAO extends BaseDAO<CarClassesEntity> {
@@ -26,6 +27,11 @@ public class CarClassesDAO extends BaseDAO<CarClassesEntity> {
         return entityManager.find(CarClassesEntity.class, vltName);
     }
 
+    public List<CarClassesEntity> findAll() {
+        return entityManager.createQuery("SELECT obj FROM CarClassesEntity obj", CarClassesEntity.class)
+                .getResultList();
+    }
+
     public CarClassesEntity findByProductId(String productId) {
         TypedQuery<CarClassesEntity> query = entityManager.createQuery("SELECT obj FROM CarClassesEntity obj WHERE " +
                 "obj.productId = :productId", CarClassesEntity.class);
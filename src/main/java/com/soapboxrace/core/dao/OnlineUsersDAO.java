@@ -12,9 +12,8 @@ import com.soapboxrace.core.jpa.OnlineUsersEntity;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.persistence.TypedQuery;
+import javax.persistence.Query;
 import java.util.Date;
-import java.util.List;
 
 @Stateless
 public class OnlineUsersDAO extends BaseDAO<OnlineUsersEntity> {
@@ -28,15 +27,10 @@ public class OnlineUsersDAO extends BaseDAO<OnlineUsersEntity> {
         return entityManager.find(OnlineUsersEntity.class, id);
     }
 
-    public OnlineUsersEntity findByTime(Date time) {
-        Long timeLong = time.getTime() / 1000L;
-
-        TypedQuery<OnlineUsersEntity> query = entityManager.createNamedQuery("OnlineUsersEntity.findByTime",
-                OnlineUsersEntity.class);
-        query.setParameter("time", timeLong.intValue());
-
-        List<OnlineUsersEntity> resultList = query.getResultList();
-        return !resultList.isEmpty() ? resultList.get(0) : null;
+    public int deleteOlderThan(Date time) {
+        Query query = entityManager.createNamedQuery("OnlineUsersEntity.deleteOlderThan");
+        query.setParameter("time", (int) (time.getTime() / 1000L));
+        return query.executeUpdate();
     }
 
 }
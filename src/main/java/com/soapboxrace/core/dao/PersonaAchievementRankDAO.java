@@ -14,7 +14,9 @@ import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Stateless
 public class PersonaAchievementRankDAO extends BaseDAO<PersonaAchievementRankEntity> {
@@ -61,12 +63,30 @@ public class PersonaAchievementRankDAO extends BaseDAO<PersonaAchievementRankEnt
                 .getSingleResult();
     }
 
-    public void deleteByPersona(PersonaEntity personaEntity) {
+    /**
+     * Counts the personas that have achieved each rank, in a single query.
+     *
+     * @return the number of personas, keyed by achievement rank ID. Ranks nobody has achieved are left out.
+     */
+    public Map<Long, Long> countPersonasByRank() {
+        Map<Long, Long> counts = new HashMap<>();
+
+        for (Object[] row : this.entityManager.createNamedQuery("PersonaAchievementRankEntity.countPersonasByRank",
+                Object[].class).getResultList()) {
+            counts.put((Long) row[0], (Long) row[1]);
+        }
+
+        return counts;
+    }
+
+    public List<PersonaAchievementRankEntity> deleteByPersona(PersonaEntity personaEntity) {
         List<PersonaAchievementRankEntity> personaAchievementRankEntities =
                 findAllByPersonaId(personaEntity.getPersonaId());
 
         for (PersonaAchievementRankEntity personaAchievementRankEntity : personaAchievementRankEntities) {
             delete(personaAchievementRankEntity);
         }
+
+        return personaAchievementRankEntities;
     }
 }
@@ -13,6 +13,7 @@ import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import java.util.Collection;
 import java.util.List;
 
 @Stateless
@@ -35,6 +36,18 @@ public class PersonaBadgeDAO extends BaseDAO<PersonaBadgeEntity> {
                 .getResultList();
     }
 
+    /**
+     * Finds every completed rank of the achievements behind the badges equipped by the given personas.
+     *
+     * @param personaIds the persona IDs
+     * @return rows of (persona ID, slot, badge definition ID, achievement rank ID, rank)
+     */
+    public List<Object[]> findCompletedBadgeRanks(Collection<Long> personaIds) {
+        return this.entityManager.createNamedQuery("PersonaBadgeEntity.findCompletedBadgeRanks", Object[].class)
+                .setParameter("personaIds", personaIds)
+                .getResultList();
+    }
+
     public PersonaBadgeEntity findBadgeInSlotForPersona(Long personaId, Integer slot) {
         TypedQuery<PersonaBadgeEntity> query = this.entityManager.createNamedQuery("PersonaBadgeEntity" +
                 ".findBadgeInSlotForPersona", PersonaBadgeEntity.class)
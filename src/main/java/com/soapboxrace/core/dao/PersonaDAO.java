@@ -12,9 +12,11 @@ import com.soapboxrace.core.jpa.PersonaEntity;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import java.util.Collection;
 import java.util.List;
 
 @Stateless
@@ -29,6 +31,31 @@ public class PersonaDAO extends BaseDAO<PersonaEntity> {
         return entityManager.find(PersonaEntity.class, id);
     }
 
+    /**
+     * Finds the given personas, together with their users, in a single query.
+     *
+     * @param personaIds the persona IDs
+     * @return the personas that exist, in no particular order
+     */
+    public List<PersonaEntity> findByIds(Collection<Long> personaIds) {
+        return entityManager.createNamedQuery("PersonaEntity.findByIds", PersonaEntity.class)
+                .setParameter("personaIds", personaIds)
+                .getResultList();
+    }
+
+    /**
+     * Adds to the score of a persona without writing any other column.
+     *
+     * @param personaId the persona ID
+     * @param delta     the points to add
+     */
+    public void addScore(Long personaId, int delta) {
+        Query query = entityManager.createNamedQuery("PersonaEntity.addScore");
+        query.setParameter("personaId", personaId);
+        query.setParameter("delta", delta);
+        query.executeUpdate();
+    }
+
     public PersonaEntity findByName(String name) {
         TypedQuery<PersonaEntity> query = entityManager.createNamedQuery("PersonaEntity.findByName",
                 PersonaEntity.class);
@@ -34,6 +34,10 @@ public class ProductDAO extends BaseDAO<ProductEntity> {
         return entityManager.find(ProductEntity.class, id);
     }
 
+    public List<ProductEntity> findAll() {
+        return entityManager.createNamedQuery("ProductEntity.findAll", ProductEntity.class).getResultList();
+    }
+
     public List<ProductEntity> findByLevelEnabled(String categoryName, String productType, int minLevel,
                                                   boolean enabled, boolean premium) {
         TypedQuery<ProductEntity> query = entityManager.createNamedQuery("ProductEntity.findByLevelEnabled",
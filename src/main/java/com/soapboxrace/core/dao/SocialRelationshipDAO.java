@@ -43,6 +43,14 @@ public class SocialRelationshipDAO extends BaseDAO<SocialRelationshipEntity> {
         return query.getResultList();
     }
 
+    public List<Long> findRemotePersonaIdsByUserIdAndStatus(Long userId, Long status) {
+        TypedQuery<Long> query = entityManager.createNamedQuery(
+                "SocialRelationshipEntity.findRemotePersonaIdsByUserAndStatus", Long.class);
+        query.setParameter("id", userId);
+        query.setParameter("status", status);
+        return query.getResultList();
+    }
+
     public List<SocialRelationshipEntity> findByRemoteUserIdAndStatus(Long remoteUserId, Long status) {
         TypedQuery<SocialRelationshipEntity> query = entityManager.createNamedQuery(
                 "SocialRelationshipEntity.findByRemoteUserAndStatus", SocialRelationshipEntity.class);
@@ -12,6 +12,7 @@ import com.soapboxrace.core.jpa.UserEntity;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import java.util.List;
 
@@ -46,4 +47,11 @@ public class UserDAO extends BaseDAO<UserEntity> {
         List<UserEntity> resultList = query.getResultList();
         return !resultList.isEmpty() ? resultList.get(0) : null;
     }
+
+    public void updateHwidByEmail(String email, String hwid) {
+        Query query = entityManager.createNamedQuery("UserEntity.updateHwidByEmail");
+        query.setParameter("email", email);
+        query.setParameter("hwid", hwid);
+        query.executeUpdate();
+    }
 }
@@ -28,6 +28,10 @@ public class VinylProductDAO extends BaseDAO<VinylProductEntity> {
         return entityManager.find(VinylProductEntity.class, id);
     }
 
+    public List<VinylProductEntity> findAll() {
+        return entityManager.createNamedQuery("VinylProductEntity.findAll", VinylProductEntity.class).getResultList();
+    }
+
     public VinylProductEntity findByHash(Integer hash) {
         TypedQuery<VinylProductEntity> query = entityManager.createNamedQuery("VinylProductEntity.findByHash",
                 VinylProductEntity.class);
@@ -6,6 +6,12 @@
 
 package com.soapboxrace.core.dao.util;
 
+import com.soapboxrace.core.bo.util.MetricsRegistry;
+import org.hibernate.Hibernate;
+
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.InvocationContext;
+import javax.persistence.Entity;
 import javax.persistence.EntityManager;
 
 public abstract class BaseDAO<T> {
@@ -26,4 +32,44 @@ public abstract class BaseDAO<T> {
         entityManager.remove(entityManager.merge(entity));
     }
 
+    /**
+     * Stops tracking the given entity, so that changes made to it are not written back.
+     *
+     * @param entity the entity
+     */
+    public void detach(T entity) {
+        entityManager.detach(entity);
+    }
+
+    /**
+     * Loads the current state of an entity of any type that was read in another persistence context, such as
+     * the request that queued some background work. Values that aren't entities are returned as they are.
+     *
+     * @param value the entity, or any other value
+     * @return the entity as loaded in this persistence context ({@code null} if it was deleted), or the value
+     */
+    @SuppressWarnings("unchecked")
+    public <E> E reload(E value) {
+        if (value == null || !Hibernate.getClass(value).isAnnotationPresent(Entity.class)) {
+            return value;
+        }
+
+        Object id = entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(value);
+        return (E) entityManager.find(Hibernate.getClass(value), id);
+    }
+
+    /**
+     * Times every business method of the DAO.
+     */
+    @AroundInvoke
+    protected Object timeInvocation(InvocationContext context) throws Exception {
+        long start = System.nanoTime();
+
+        try {
+            return context.proceed();
+        } finally {
+            MetricsRegistry.daoTimer(context.getTarget().getClass(), context.getMethod()).record(System.nanoTime() - start);
+        }
+    }
+
 }
@@ -6,6 +6,9 @@
 
 package com.soapboxrace.core.engine;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public enum EngineExceptionCode {
     ArgumentNullOrEmpty(4),
     AuthenticationTokenMissing(-800),
@@ -200,6 +203,14 @@ public enum EngineExceptionCode {
     WrongClientVersion(-799),
     XmlDeserializationError(5);
 
+    private static final Map<Integer, EngineExceptionCode> BY_ERROR_CODE = new HashMap<>();
+
+    static {
+        for (EngineExceptionCode code : values()) {
+            BY_ERROR_CODE.putIfAbsent(code.errorCode, code);
+        }
+    }
+
     private final int errorCode;
 
     EngineExceptionCode(int errorCode) {
@@ -209,4 +220,12 @@ public enum EngineExceptionCode {
     public int getErrorCode() {
         return errorCode;
     }
+
+    /**
+     * @param errorCode the numeric error code
+     * @return the code with the given number, or {@code null} if there is none
+     */
+    public static EngineExceptionCode fromErrorCode(int errorCode) {
+        return BY_ERROR_CODE.get(errorCode);
+    }
 }
@@ -6,11 +6,15 @@
 
 package com.soapboxrace.core.jpa;
 
+import com.soapboxrace.core.jpa.util.AchievementDefinitionListener;
+import com.soapboxrace.core.jpa.util.ScriptCacheListener;
+
 import javax.persistence.*;
 import java.util.List;
 
 @Entity
 @Table(name = "ACHIEVEMENT")
+@EntityListeners({ScriptCacheListener.class, AchievementDefinitionListener.class})
 @NamedQueries({
         @NamedQuery(name = "AchievementEntity.findByName", query = "SELECT a FROM AchievementEntity a WHERE a.name = " +
                 ":name"),
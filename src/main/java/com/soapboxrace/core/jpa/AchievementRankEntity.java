@@ -6,10 +6,13 @@
 
 package com.soapboxrace.core.jpa;
 
+import com.soapboxrace.core.jpa.util.AchievementDefinitionListener;
+
 import javax.persistence.*;
 
 @Entity
 @Table(name = "ACHIEVEMENT_RANK")
+@EntityListeners(AchievementDefinitionListener.class)
 public class AchievementRankEntity {
 
     @Id
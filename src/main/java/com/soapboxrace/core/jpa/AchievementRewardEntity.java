@@ -6,10 +6,13 @@
 
 package com.soapboxrace.core.jpa;
 
+import com.soapboxrace.core.jpa.util.ScriptCacheListener;
+
 import javax.persistence.*;
 
 @Entity
 @Table(name = "ACHIEVEMENT_REWARD")
+@EntityListeners(ScriptCacheListener.class)
 @NamedQueries({
         @NamedQuery(name = "AchievementRewardEntity.findByDescription", query = "SELECT obj FROM " +
                 "AchievementRewardEntity obj WHERE obj.internalRewardDescription = :description")
@@ -6,10 +6,13 @@
 
 package com.soapboxrace.core.jpa;
 
+import com.soapboxrace.core.jpa.util.AchievementDefinitionListener;
+
 import javax.persistence.*;
 
 @Entity
 @Table(name = "BADGE_DEFINITION")
+@EntityListeners(AchievementDefinitionListener.class)
 @NamedQueries({
         @NamedQuery(name = "BadgeDefinitionEntity.findAll", query = "SELECT b FROM BadgeDefinitionEntity b")
 })
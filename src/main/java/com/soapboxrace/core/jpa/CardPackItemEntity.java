@@ -6,10 +6,13 @@
 
 package com.soapboxrace.core.jpa;
 
+import com.soapboxrace.core.jpa.util.ScriptCacheListener;
+
 import javax.persistence.*;
 
 @Entity
 @Table(name = "CARD_PACK_ITEM")
+@EntityListeners(ScriptCacheListener.class)
 public class CardPackItemEntity {
 
     @Id
@@ -6,6 +6,7 @@
 
 package com.soapboxrace.core.jpa;
 
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Fetch;
 import org.hibernate.annotations.FetchMode;
 import org.hibernate.annotations.LazyCollection;
@@ -18,6 +19,13 @@ import java.util.Set;
 @Table(name = "CUSTOMCAR")
 public class CustomCarEntity {
 
+    /**
+     * When cars are loaded by a query (e.g. a whole garage), the JOIN fetch mode doesn't apply and each
+     * collection would be loaded by its own SELECT. Batching loads each collection of up to this many cars
+     * in one SELECT, so a full garage takes 5 queries on top of the car query.
+     */
+    static final int COLLECTION_BATCH_SIZE = 250;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -42,30 +50,35 @@ public class CustomCarEntity {
             orphanRemoval = true, cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REFRESH})
     @LazyCollection(LazyCollectionOption.FALSE)
     @Fetch(FetchMode.JOIN)
+    @BatchSize(size = COLLECTION_BATCH_SIZE)
     private Set<PaintEntity> paints;
 
     @OneToMany(mappedBy = "customCar", targetEntity = PerformancePartEntity.class,
             orphanRemoval = true, cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REFRESH})
     @LazyCollection(LazyCollectionOption.FALSE)
     @Fetch(FetchMode.JOIN)
+    @BatchSize(size = COLLECTION_BATCH_SIZE)
     private Set<PerformancePartEntity> performanceParts;
 
     @OneToMany(mappedBy = "customCar", targetEntity = SkillModPartEntity.class,
             orphanRemoval = true, cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REFRESH})
     @LazyCollection(LazyCollectionOption.FALSE)
     @Fetch(FetchMode.JOIN)
+    @BatchSize(size = COLLECTION_BATCH_SIZE)
     private Set<SkillModPartEntity> skillModParts;
 
     @OneToMany(mappedBy = "customCar", targetEntity = VinylEntity.class,
             orphanRemoval = true, cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REFRESH})
     @LazyCollection(LazyCollectionOption.FALSE)
     @Fetch(FetchMode.JOIN)
+    @BatchSize(size = COLLECTION_BATCH_SIZE)
     private Set<VinylEntity> vinyls;
 
     @OneToMany(mappedBy = "customCar", targetEntity = VisualPartEntity.class,
             orphanRemoval = true, cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REFRESH})
     @LazyCollection(LazyCollectionOption.FALSE)
     @Fetch(FetchMode.JOIN)
+    @BatchSize(size = COLLECTION_BATCH_SIZE)
     private Set<VisualPartEntity> visualParts;
 
     public Long getId() {
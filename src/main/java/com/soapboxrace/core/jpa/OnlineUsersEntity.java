@@ -11,8 +11,8 @@ import javax.persistence.*;
 @Entity
 @Table(name = "ONLINE_USERS")
 @NamedQueries({ //
-        @NamedQuery(name = "OnlineUsersEntity.findByTime", //
-                query = "SELECT obj FROM OnlineUsersEntity obj WHERE obj.timeRecord > :time ORDER BY obj.timeRecord") //
+        @NamedQuery(name = "OnlineUsersEntity.deleteOlderThan", //
+                query = "DELETE FROM OnlineUsersEntity obj WHERE obj.timeRecord < :time") //
 
 })
 public class OnlineUsersEntity {
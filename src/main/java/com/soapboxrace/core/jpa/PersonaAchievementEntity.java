@@ -13,7 +13,8 @@ import java.util.List;
 @Table(name = "PERSONA_ACHIEVEMENT")
 @NamedQueries({
         @NamedQuery(name = "PersonaAchievementEntity.findAllByPersonaId", query = "SELECT p FROM " +
-                "PersonaAchievementEntity p WHERE p.personaEntity.personaId = :personaId"),
+                "PersonaAchievementEntity p JOIN FETCH p.achievementEntity WHERE p.personaEntity.personaId = " +
+                ":personaId"),
         @NamedQuery(name = "PersonaAchievementEntity.findByPersonaIdAndAchievementId", query = "SELECT p FROM " +
                 "PersonaAchievementEntity p WHERE p.personaEntity.personaId = :personaId AND p.achievementEntity.id =" +
                 " :achievementId"),
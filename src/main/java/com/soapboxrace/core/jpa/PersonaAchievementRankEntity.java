@@ -12,14 +12,18 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "PERSONA_ACHIEVEMENT_RANK")
 @NamedQueries({
-        @NamedQuery(name = "PersonaAchievementRankEntity.findAllByPersonaId", query = "SELECT p FROM " +
-                "PersonaAchievementRankEntity p WHERE p.personaAchievementEntity.personaEntity.id = :personaId"),
+        @NamedQuery(name = "PersonaAchievementRankEntity.findAllByPersonaId", query = "SELECT r FROM " +
+                "PersonaAchievementRankEntity r JOIN FETCH r.achievementRankEntity JOIN FETCH r" +
+                ".personaAchievementEntity pa WHERE pa.personaEntity.id = :personaId"),
         @NamedQuery(name = "PersonaAchievementRankEntity.findByPersonaIdAndAchievementRankId", query = "SELECT r FROM" +
                 " PersonaAchievementRankEntity r WHERE r.achievementRankEntity.id = :achievementRankId AND r" +
                 ".personaAchievementEntity.personaEntity.personaId = :personaId"),
         @NamedQuery(name = "PersonaAchievementRankEntity.countPersonasWithRank", query = "SELECT count(*) FROM " +
                 "PersonaAchievementRankEntity r WHERE r.achievementRankEntity.id = :achievementRankId AND r" +
                 ".achievedOn IS NOT NULL"),
+        @NamedQuery(name = "PersonaAchievementRankEntity.countPersonasByRank", query = "SELECT r.achievementRankEntity" +
+                ".id, count(r) FROM PersonaAchievementRankEntity r WHERE r.achievedOn IS NOT NULL GROUP BY r" +
+                ".achievementRankEntity.id"),
         @NamedQuery(name = "PersonaAchievementRankEntity.findHighestCompletedRankOfAchievementByPersona",
                 query = "SELECT obj FROM PersonaAchievementRankEntity obj " +
                         "WHERE obj.personaAchievementEntity.personaEntity.id = :personaId " +
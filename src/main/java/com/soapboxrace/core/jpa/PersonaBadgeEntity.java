@@ -16,7 +16,14 @@ import javax.persistence.*;
         @NamedQuery(name = "PersonaBadgeEntity.findBadgeInSlotForPersona", query = "SELECT obj FROM " +
                 "PersonaBadgeEntity obj WHERE obj.personaEntity.personaId = :personaId AND obj.slot = :slot"),
         @NamedQuery(name = "PersonaBadgeEntity.deleteAllBadgesForPersona", query = "DELETE FROM " +
-                "PersonaBadgeEntity obj WHERE obj.personaEntity.personaId = :personaId")
+                "PersonaBadgeEntity obj WHERE obj.personaEntity.personaId = :personaId"),
+        @NamedQuery(name = "PersonaBadgeEntity.findCompletedBadgeRanks", query = "SELECT b.personaEntity.personaId, " +
+                "b.slot, b.badgeDefinitionEntity.id, r.achievementRankEntity.id, r.achievementRankEntity.rank " +
+                "FROM PersonaBadgeEntity b, PersonaAchievementRankEntity r " +
+                "WHERE b.personaEntity.personaId IN :personaIds " +
+                "AND r.personaAchievementEntity.personaEntity = b.personaEntity " +
+                "AND r.personaAchievementEntity.achievementEntity.badgeDefinitionEntity = b.badgeDefinitionEntity " +
+                "AND (r.state = 'Completed' OR r.state = 'RewardWaiting')")
 })
 public class PersonaBadgeEntity {
 
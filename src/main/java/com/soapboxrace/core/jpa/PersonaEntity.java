@@ -15,7 +15,11 @@ import java.time.temporal.ChronoUnit;
 @NamedQueries({ //
         @NamedQuery(name = "PersonaEntity.findByName", query = "SELECT obj FROM PersonaEntity obj WHERE obj.name = " +
                 ":name"), //
-        @NamedQuery(name = "PersonaEntity.countPersonas", query = "SELECT count(obj) FROM PersonaEntity obj")
+        @NamedQuery(name = "PersonaEntity.countPersonas", query = "SELECT count(obj) FROM PersonaEntity obj"), //
+        @NamedQuery(name = "PersonaEntity.findByIds", query = "SELECT obj FROM PersonaEntity obj JOIN FETCH obj.user " +
+                "WHERE obj.personaId IN :personaIds"), //
+        @NamedQuery(name = "PersonaEntity.addScore", query = "UPDATE PersonaEntity obj SET obj.score = obj.score + " +
+                ":delta WHERE obj.personaId = :personaId")
 })
 public class PersonaEntity {
 
@@ -34,6 +38,8 @@ public class PersonaEntity {
     private double rating;
     private double rep;
     private int repAtCurrentLevel;
+    // only changed with the addScore query, so that saving a persona loaded earlier can't undo a score change
+    @Column(updatable = false)
     private int score;
     private int curCarIndex = 0;
     @ManyToOne
@@ -15,6 +15,7 @@ import java.util.List;
         @Index(name = "prod_id_index", columnList = "productId")
 })
 @NamedQueries({ //
+        @NamedQuery(name = "ProductEntity.findAll", query = "SELECT obj FROM ProductEntity obj ORDER BY obj.id"), //
         @NamedQuery(name = "ProductEntity.findByLevelEnabled", //
                 query = "SELECT obj FROM ProductEntity obj WHERE " //
                         + "obj.enabled = :enabled AND "//
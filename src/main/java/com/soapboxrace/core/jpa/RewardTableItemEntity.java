@@ -6,10 +6,13 @@
 
 package com.soapboxrace.core.jpa;
 
+import com.soapboxrace.core.jpa.util.ScriptCacheListener;
+
 import javax.persistence.*;
 
 @Entity
 @Table(name = "REWARD_TABLE_ITEM")
+@EntityListeners(ScriptCacheListener.class)
 public class RewardTableItemEntity {
 
     @Id
@@ -17,7 +17,9 @@ import java.util.List;
         @NamedQuery(name = "UserEntity.findByEmail", query = "SELECT obj FROM UserEntity obj WHERE obj.email = " +
                 ":email"), //
         @NamedQuery(name = "UserEntity.findByIpAddress", query = "SELECT obj FROM UserEntity obj WHERE obj.ipAddress " +
-                "= :ipAddress") //
+                "= :ipAddress"), //
+        @NamedQuery(name = "UserEntity.updateHwidByEmail", query = "UPDATE UserEntity obj SET obj.hwid = :hwid " +
+                "WHERE obj.email = :email") //
 })
 public class UserEntity {
 
@@ -11,6 +11,7 @@ import javax.persistence.*;
 @Entity
 @Table(name = "VINYLPRODUCT")
 @NamedQueries({ //
+        @NamedQuery(name = "VinylProductEntity.findAll", query = "SELECT obj FROM VinylProductEntity obj ORDER BY obj.id"), //
         @NamedQuery(name = "VinylProductEntity.findByProductId", //
                 query = "SELECT obj FROM VinylProductEntity obj " //
                         + "WHERE obj.productId = :productId"), //
@@ -0,0 +1,28 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.jpa.util;
+
+import com.soapboxrace.core.bo.AchievementBO;
+
+import javax.enterprise.inject.spi.CDI;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Entity listener for achievement and badge definitions. Clears the cached definition packets whenever one of
+ * them changes.
+ */
+public class AchievementDefinitionListener {
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void definitionChanged(Object entity) {
+        CDI.current().select(AchievementBO.class).get().invalidateDefinitions();
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.jpa.util;
+
+import com.soapboxrace.core.bo.ScriptingBO;
+
+import javax.enterprise.inject.spi.CDI;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Entity listener for entities that hold scripts. Clears the compiled script cache whenever one of them changes.
+ */
+public class ScriptCacheListener {
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void scriptChanged(Object entity) {
+        CDI.current().select(ScriptingBO.class).get().invalidateCache();
+    }
+}
@@ -1,6 +1,8 @@
 package com.soapboxrace.core.xmpp;
 
 import com.soapboxrace.core.bo.ParameterBO;
+import com.soapboxrace.core.bo.util.LatencyHistogram;
+import com.soapboxrace.core.bo.util.MetricsRegistry;
 import org.jivesoftware.smack.ReconnectionManager;
 import org.jivesoftware.smack.SmackException;
 import org.jivesoftware.smack.XMPPException;
@@ -18,6 +20,7 @@ import javax.ejb.Singleton;
 import javax.net.ssl.X509TrustManager;
 import java.io.IOException;
 import java.security.cert.X509Certificate;
+import java.util.Collection;
 
 /**
  * Interacts to OpenFire XMPP server using the Smack library.
@@ -27,6 +30,8 @@ import java.security.cert.X509Certificate;
 @Singleton
 public class OpenFireConnector {
 
+    private static final LatencyHistogram SEND_TIMER = MetricsRegistry.timer("xmpp_send");
+
     private String ipAddress;
 
     private Integer port;
@@ -102,12 +107,37 @@ public class OpenFireConnector {
         message.setSubject("1337733113377331");
         message.setStanzaId("JN_1234567");
         message.setBody(msg);
+        long start = System.nanoTime();
         try {
             message.setTo(JidCreate.entityBareFrom("sbrw." + personaId + "@" + ipAddress));
             connection.sendStanza(message);
         } catch (SmackException.NotConnectedException | InterruptedException | XmppStringprepException e) {
             throw new RuntimeException("Failed to send XMPP message", e);
+        } finally {
+            SEND_TIMER.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Sends a batch of messages. A message that fails to send does not stop the rest of the batch.
+     *
+     * @param messages The messages to send.
+     * @return The number of messages that could not be sent.
+     */
+    @Lock(LockType.READ)
+    public int send(Collection<XmppMessage> messages) {
+        int failed = 0;
+
+        for (XmppMessage message : messages) {
+            try {
+                send(message.getBody(), message.getPersonaId());
+            } catch (RuntimeException e) {
+                System.err.println(e.getMessage() + " to " + message.getPersonaId() + " [" + e.getCause() + "]");
+                failed++;
+            }
         }
+
+        return failed;
     }
 
     private XMPPTCPConnectionConfiguration getConnectionConfiguration() {
@@ -12,11 +12,13 @@ import com.soapboxrace.core.jpa.ChatRoomEntity;
 import org.igniterealtime.restclient.entity.MUCRoomEntities;
 import org.igniterealtime.restclient.entity.MUCRoomEntity;
 import org.igniterealtime.restclient.entity.UserEntity;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
 
 import javax.annotation.PostConstruct;
-import javax.ejb.EJB;
-import javax.ejb.Singleton;
-import javax.ejb.Startup;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.*;
+import javax.enterprise.concurrent.ManagedThreadFactory;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
@@ -28,9 +30,19 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Client for the OpenFire REST API plugin.
+ * <p>
+ * A single pooled HTTP client is shared by all requests, so connections to OpenFire are kept alive and reused.
+ * The async variants run on a small bounded pool; when its queue is full, the call runs on the caller's thread.
+ * Async updates of the same persona's XMPP user are applied one after the other, in the order they were requested.
+ */
 @Startup
 @Singleton
+@Lock(LockType.READ)
 public class OpenFireRestApiCli {
     private String openFireToken;
     private String openFireAddress;
@@ -43,6 +55,19 @@ public class OpenFireRestApiCli {
     @EJB
     private ChatRoomDAO chatRoomDAO;
 
+    @Resource
+    private ManagedThreadFactory managedThreadFactory;
+
+    private final LongAdder asyncFailedCount = new LongAdder();
+
+    private final ConcurrentMap<Long, CompletableFuture<Void>> personaUpdates = new ConcurrentHashMap<>();
+
+    private Client client;
+
+    private ThreadPoolExecutor executor;
+
+    private long personaUpdateTimeout;
+
     @PostConstruct
     public void init() {
         openFireToken = parameterBO.getStrParam("OPENFIRE_TOKEN");
@@ -51,6 +76,24 @@ public class OpenFireRestApiCli {
         if (openFireToken != null && openFireAddress != null) {
             restApiEnabled = true;
         }
+
+        int poolSize = parameterBO.getIntParam("OPENFIRE_POOL_SIZE", 16);
+        int connectTimeout = parameterBO.getIntParam("OPENFIRE_CONNECT_TIMEOUT", 2000);
+        int readTimeout = parameterBO.getIntParam("OPENFIRE_READ_TIMEOUT", 5000);
+        int asyncThreads = parameterBO.getIntParam("OPENFIRE_ASYNC_THREADS", 4);
+        // a persona update is a GET followed by a PUT or POST
+        personaUpdateTimeout = 2L * (connectTimeout + readTimeout);
+        client = ((ResteasyClientBuilder) ClientBuilder.newBuilder())
+                .connectionPoolSize(poolSize)
+                .maxPooledPerRoute(poolSize)
+                .connectionCheckoutTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+                .connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeout, TimeUnit.MILLISECONDS)
+                .build();
+        executor = new ThreadPoolExecutor(asyncThreads, asyncThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(parameterBO.getIntParam("OPENFIRE_ASYNC_QUEUE_SIZE", 1000)),
+                managedThreadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+
         createUpdatePersona("sbrw.engine.engine", openFireToken);
 
         for (ChatRoomEntity chatRoomEntity : chatRoomDAO.findAll()) {
@@ -60,12 +103,27 @@ public class OpenFireRestApiCli {
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        client.close();
+    }
+
     private Builder getBuilder(String path) {
         return getBuilder(path, null);
     }
 
     private Builder getBuilder(String path, Map<String, Object> query) {
-        Client client = ClientBuilder.newClient();
         WebTarget target = client.target(openFireAddress).path(path);
 
         if (query != null) {
@@ -83,21 +141,22 @@ public class OpenFireRestApiCli {
         if (!restApiEnabled) {
             return;
         }
-        Builder builder = getBuilder("users/" + user);
-        Response response = builder.get();
-        if (response.getStatus() == 200) {
+        UserEntity userEntity = null;
+        Response response = getBuilder("users/" + user).get();
+        try {
+            if (response.getStatus() == 200) {
+                userEntity = response.readEntity(UserEntity.class);
+            }
+        } finally {
             response.close();
-            UserEntity userEntity = builder.get(UserEntity.class);
+        }
+        if (userEntity != null) {
             userEntity.setPassword(password);
-            builder = getBuilder("users/" + user);
-            builder.put(Entity.entity(userEntity, MediaType.APPLICATION_XML));
+            getBuilder("users/" + user).put(Entity.entity(userEntity, MediaType.APPLICATION_XML)).close();
         } else {
-            response.close();
-            builder = getBuilder("users");
-            UserEntity userEntity = new UserEntity(user, null, null, password);
-            builder.post(Entity.entity(userEntity, MediaType.APPLICATION_XML));
+            userEntity = new UserEntity(user, null, null, password);
+            getBuilder("users").post(Entity.entity(userEntity, MediaType.APPLICATION_XML)).close();
         }
-        response.close();
     }
 
     public void createUpdatePersona(Long personaId, String password) {
@@ -105,6 +164,50 @@ public class OpenFireRestApiCli {
         createUpdatePersona(user, password);
     }
 
+    /**
+     * Creates or updates the XMPP user of a persona without waiting for OpenFire. The update starts once the
+     * previous update of the same persona has finished, so the last password requested is the one that sticks.
+     *
+     * @param personaId the persona ID
+     * @param password  the XMPP password
+     * @return a future that completes once OpenFire has answered
+     * @see #awaitPersonaUpdate(Long)
+     */
+    public CompletableFuture<Void> createUpdatePersonaAsync(Long personaId, String password) {
+        CompletableFuture<Void> update = personaUpdates.compute(personaId, (k, previous) ->
+                (previous == null ? CompletableFuture.<Void>completedFuture(null) : previous.exceptionally(e -> null))
+                        .thenCompose(v -> async(() -> {
+                            createUpdatePersona(personaId, password);
+                            return null;
+                        })));
+        update.whenComplete((v, e) -> personaUpdates.remove(personaId, update));
+        return update;
+    }
+
+    /**
+     * Waits until the pending async updates of a persona's XMPP user have been applied, so that the client can
+     * log in to XMPP with its new password.
+     *
+     * @param personaId the persona ID
+     */
+    public void awaitPersonaUpdate(Long personaId) {
+        CompletableFuture<Void> update = personaUpdates.get(personaId);
+
+        if (update == null) {
+            return;
+        }
+
+        try {
+            update.get(personaUpdateTimeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // already counted and logged by async()
+        } catch (TimeoutException e) {
+            System.err.println("Timed out waiting for the XMPP user of persona " + personaId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public int getTotalOnlineUsers() {
         if (!restApiEnabled) {
             return 0;
@@ -118,6 +221,10 @@ public class OpenFireRestApiCli {
         return 0;
     }
 
+    public CompletableFuture<Integer> getTotalOnlineUsersAsync() {
+        return async(this::getTotalOnlineUsers);
+    }
+
     public List<Long> getAllPersonaByGroup(Long personaId) {
         if (!restApiEnabled) {
             return new ArrayList<>();
@@ -140,6 +247,10 @@ public class OpenFireRestApiCli {
         return new ArrayList<>();
     }
 
+    public CompletableFuture<List<Long>> getAllPersonaByGroupAsync(Long personaId) {
+        return async(() -> getAllPersonaByGroup(personaId));
+    }
+
     public List<Long> getAllOccupantsInRoom(String roomName) {
         Builder builder = getBuilder("chatrooms/" + roomName + "/occupants");
         OccupantEntities occupantEntities = builder.get(OccupantEntities.class);
@@ -165,7 +276,7 @@ public class OpenFireRestApiCli {
 
     public void sendChatAnnouncement(String message) {
         Builder builder = getBuilder("messages/game");
-        builder.post(Entity.entity(message, MediaType.TEXT_PLAIN_TYPE));
+        builder.post(Entity.entity(message, MediaType.TEXT_PLAIN_TYPE)).close();
     }
 
     private void createGeneralChatRoom(String language, Integer number) {
@@ -180,6 +291,32 @@ public class OpenFireRestApiCli {
         mucRoomEntity.setBroadcastPresenceRoles(Arrays.asList("moderator", "participant", "visitor"));
         mucRoomEntity.setLogEnabled(true);
 
-        builder.post(Entity.entity(mucRoomEntity, MediaType.APPLICATION_XML));
+        builder.post(Entity.entity(mucRoomEntity, MediaType.APPLICATION_XML)).close();
+    }
+
+    /**
+     * @return the number of async calls that failed
+     */
+    public long getAsyncFailedCount() {
+        return asyncFailedCount.sum();
+    }
+
+    /**
+     * @return the number of async calls waiting for a thread
+     */
+    public int getAsyncQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    private <T> CompletableFuture<T> async(Callable<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (Exception e) {
+                asyncFailedCount.increment();
+                System.err.println("OpenFire REST call failed: " + e.getMessage());
+                throw new CompletionException(e);
+            }
+        }, executor);
     }
 }
\ No newline at end of file
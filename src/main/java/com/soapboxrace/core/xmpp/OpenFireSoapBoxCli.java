@@ -18,6 +18,9 @@ public class OpenFireSoapBoxCli {
     @EJB
     private OpenFireConnector openFireConnector;
 
+    @EJB
+    private XmppMessageScheduler xmppMessageScheduler;
+
     @PostConstruct
     public void init() {
         openFireConnector.connect();
@@ -25,11 +28,24 @@ public class OpenFireSoapBoxCli {
 
     @Lock(LockType.READ)
     public void send(String msg, Long to) {
-        openFireConnector.send(msg, to);
+        xmppMessageScheduler.schedule(msg, to, 0);
     }
 
     @Lock(LockType.READ)
     public void send(Object object, Long to) {
-        openFireConnector.send(MarshalXML.marshal(object), to);
+        send(object, to, 0);
+    }
+
+    /**
+     * Sends a packet to a persona once the given delay has passed, without blocking the caller.
+     * The packet is marshalled right away, so it can safely be modified afterwards.
+     *
+     * @param object      The packet to send.
+     * @param to          The ID of the persona to send the packet to.
+     * @param delayMillis How long to wait before sending, in milliseconds.
+     */
+    @Lock(LockType.READ)
+    public void send(Object object, Long to, long delayMillis) {
+        xmppMessageScheduler.schedule(MarshalXML.marshal(object), to, delayMillis);
     }
 }
\ No newline at end of file
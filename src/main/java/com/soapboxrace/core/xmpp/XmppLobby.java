@@ -27,23 +27,13 @@ public class XmppLobby {
     public void joinQueueEvent(XMPP_LobbyInviteType xMPP_LobbyInviteType) {
         XMPP_ResponseTypeLobbyInvite responseType = new XMPP_ResponseTypeLobbyInvite();
         responseType.setLobbyInvite(xMPP_LobbyInviteType);
-        try {
-            Thread.sleep(1000);
-            openFireSoapBoxCli.send(responseType, personaId);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        openFireSoapBoxCli.send(responseType, personaId, 1000);
     }
 
     public void sendJoinMsg(LobbyEntrantAdded lobbyInfo) {
         XMPP_ResponseTypeEntrantAdded responseType = new XMPP_ResponseTypeEntrantAdded();
         responseType.setLobbyInvite(lobbyInfo);
-        try {
-            Thread.sleep(1000);
-            openFireSoapBoxCli.send(responseType, personaId);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        openFireSoapBoxCli.send(responseType, personaId, 1000);
     }
 
     public void sendExitMsg(LobbyEntrantRemoved lobbyInfo) {
@@ -0,0 +1,56 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.xmpp;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An outbound XMPP message waiting in the {@link XmppMessageScheduler}.
+ * Messages are ordered by due time, then by the order they were scheduled in.
+ */
+public class XmppMessage implements Delayed {
+
+    private final String body;
+
+    private final Long personaId;
+
+    private final long dueNanos;
+
+    private final long sequence;
+
+    public XmppMessage(String body, Long personaId, long dueNanos, long sequence) {
+        this.body = body;
+        this.personaId = personaId;
+        this.dueNanos = dueNanos;
+        this.sequence = sequence;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public Long getPersonaId() {
+        return personaId;
+    }
+
+    public long getDueNanos() {
+        return dueNanos;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        XmppMessage otherMessage = (XmppMessage) other;
+        int result = Long.compare(dueNanos - otherMessage.dueNanos, 0);
+        return result != 0 ? result : Long.compare(sequence, otherMessage.sequence);
+    }
+}
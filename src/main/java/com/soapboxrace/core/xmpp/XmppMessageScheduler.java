@@ -0,0 +1,205 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.xmpp;
+
+import com.soapboxrace.core.bo.ParameterBO;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.*;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Queues outbound XMPP messages so that request threads never wait on Openfire.
+ * Messages can be delayed, and are handed to a small pool of sender threads.
+ * Messages for a given persona are delivered in the order they were scheduled: they all go through the same
+ * sender, and a message is never due before an earlier one to the same persona, even if it asked for a shorter delay.
+ *
+ * @see OpenFireSoapBoxCli
+ */
+@Startup
+@Singleton
+@Lock(LockType.READ)
+public class XmppMessageScheduler {
+
+    @EJB
+    private OpenFireConnector openFireConnector;
+
+    @EJB
+    private ParameterBO parameterBO;
+
+    @Resource
+    private ManagedThreadFactory managedThreadFactory;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    /**
+     * The due time of the last message queued for each persona that still has messages waiting.
+     */
+    private final ConcurrentMap<Long, Long> lastDueNanos = new ConcurrentHashMap<>();
+
+    private final LongAdder sentCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final LongAdder batchCount = new LongAdder();
+
+    private final LongAdder latencyNanos = new LongAdder();
+
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    private List<SenderLane> lanes;
+
+    private int capacity;
+
+    private int batchSize;
+
+    @PostConstruct
+    public void init() {
+        int senderThreads = parameterBO.getIntParam("XMPP_SENDER_THREADS", 2);
+        this.capacity = parameterBO.getIntParam("XMPP_SEND_QUEUE_CAPACITY", 10000);
+        this.batchSize = parameterBO.getIntParam("XMPP_SEND_BATCH_SIZE", 50);
+        this.lanes = new ArrayList<>(senderThreads);
+
+        for (int i = 0; i < senderThreads; i++) {
+            SenderLane lane = new SenderLane();
+            lane.thread = managedThreadFactory.newThread(lane);
+            lane.thread.setName("xmpp-sender-" + i);
+            lane.thread.start();
+            lanes.add(lane);
+        }
+
+        System.out.println("XmppMessageScheduler started with " + senderThreads + " sender(s)");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        System.out.println("XmppMessageScheduler shutdown (" + queueDepth.get() + " message(s) pending)");
+
+        for (SenderLane lane : lanes) {
+            lane.running = false;
+            lane.thread.interrupt();
+        }
+    }
+
+    /**
+     * Schedules a message to be sent to a persona.
+     *
+     * @param msg         The message to send.
+     * @param personaId   The ID of the persona to send the message to.
+     * @param delayMillis How long to wait before sending the message, in milliseconds. The message waits longer
+     *                    if an earlier message to the same persona is due later.
+     * @return {@code true} if the message was queued, {@code false} if the queue is full
+     */
+    public boolean schedule(String msg, Long personaId, long delayMillis) {
+        if (queueDepth.incrementAndGet() > capacity) {
+            queueDepth.decrementAndGet();
+            droppedCount.increment();
+            System.err.println("XMPP send queue is full, dropping message to " + personaId);
+            return false;
+        }
+
+        long requestedDueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        SenderLane lane = lanes.get(Math.floorMod(personaId.hashCode(), lanes.size()));
+        lastDueNanos.compute(personaId, (k, lastDue) -> {
+            long dueNanos = lastDue != null && lastDue - requestedDueNanos > 0 ? lastDue : requestedDueNanos;
+            lane.queue.add(new XmppMessage(msg, personaId, dueNanos, sequence.getAndIncrement()));
+            return dueNanos;
+        });
+        return true;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public long getSentCount() {
+        return sentCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    /**
+     * @return the total time messages spent waiting past their due time, in nanoseconds
+     */
+    public long getLatencyNanos() {
+        return latencyNanos.sum();
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos.get();
+    }
+
+    private void recordBatch(List<XmppMessage> batch, int failed) {
+        long now = System.nanoTime();
+
+        for (XmppMessage message : batch) {
+            long latency = Math.max(0, now - message.getDueNanos());
+            latencyNanos.add(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+        }
+
+        batchCount.increment();
+        sentCount.add(batch.size() - failed);
+        failedCount.add(failed);
+    }
+
+    private class SenderLane implements Runnable {
+        private final DelayQueue<XmppMessage> queue = new DelayQueue<>();
+
+        private volatile boolean running = true;
+
+        private Thread thread;
+
+        @Override
+        public void run() {
+            List<XmppMessage> batch = new ArrayList<>(batchSize);
+
+            while (running) {
+                try {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, batchSize - 1);
+                    queueDepth.addAndGet(-batch.size());
+                    recordBatch(batch, openFireConnector.send(batch));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                } finally {
+                    // forget personas whose last queued message has now gone out
+                    batch.forEach(message -> lastDueNanos.remove(message.getPersonaId(), message.getDueNanos()));
+                    batch.clear();
+                }
+            }
+        }
+    }
+}
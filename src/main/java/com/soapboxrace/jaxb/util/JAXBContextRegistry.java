@@ -0,0 +1,307 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.jaxb.util;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.stream.XMLInputFactory;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Keeps one {@link JAXBContext} per bound class, along with per-thread marshallers and unmarshallers.
+ * Building a context is expensive, so contexts are created once (ideally at startup through
+ * {@link #warmUp(String...)}) and reused by every marshalling path.
+ */
+public final class JAXBContextRegistry {
+
+    private static final ConcurrentMap<Class<?>, TypeEntry> ENTRIES = new ConcurrentHashMap<>();
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newFactory();
+
+    private static final LongAdder CONTEXT_HITS = new LongAdder();
+
+    private static final LongAdder CONTEXT_MISSES = new LongAdder();
+
+    private JAXBContextRegistry() {
+    }
+
+    /**
+     * Creates contexts for every JAXB-bound top-level class in the given packages.
+     *
+     * @param packageNames the packages to scan
+     * @return the number of contexts that were created
+     */
+    public static int warmUp(String... packageNames) {
+        int created = 0;
+
+        for (String packageName : packageNames) {
+            for (Class<?> type : findBoundClasses(packageName)) {
+                if (!ENTRIES.containsKey(type)) {
+                    ENTRIES.computeIfAbsent(type, TypeEntry::new);
+                    created++;
+                }
+            }
+        }
+
+        return created;
+    }
+
+    public static JAXBContext getContext(Class<?> type) {
+        return getEntry(type).context;
+    }
+
+    /**
+     * Gets a marshaller for the given type that belongs to the calling thread.
+     * The marshaller produces unformatted XML fragments.
+     *
+     * @param type           the type to marshal
+     * @param schemaLocation the value of {@link Marshaller#JAXB_SCHEMA_LOCATION}, or {@code null} for none
+     * @return the marshaller
+     */
+    public static Marshaller getMarshaller(Class<?> type, String schemaLocation) {
+        TypeEntry entry = getEntry(type);
+        return entry.marshallers.get().computeIfAbsent(schemaLocation == null ? "" : schemaLocation,
+                k -> createMarshaller(entry, type, schemaLocation));
+    }
+
+    public static Marshaller getMarshaller(Class<?> type) {
+        return getMarshaller(type, null);
+    }
+
+    /**
+     * Gets an unmarshaller for the given type that belongs to the calling thread.
+     *
+     * @param type the type to unmarshal
+     * @return the unmarshaller
+     */
+    public static Unmarshaller getUnmarshaller(Class<?> type) {
+        return getEntry(type).unmarshaller.get();
+    }
+
+    public static XMLInputFactory getXMLInputFactory() {
+        return XML_INPUT_FACTORY;
+    }
+
+    /**
+     * Records the time taken to marshal an instance of the given type.
+     *
+     * @param type  the marshalled type
+     * @param nanos the elapsed time, in nanoseconds
+     */
+    public static void recordMarshal(Class<?> type, long nanos) {
+        TypeEntry entry = ENTRIES.get(type);
+
+        if (entry != null) {
+            entry.marshalCount.increment();
+            entry.marshalNanos.add(nanos);
+        }
+    }
+
+    public static long getContextHits() {
+        return CONTEXT_HITS.sum();
+    }
+
+    public static long getContextMisses() {
+        return CONTEXT_MISSES.sum();
+    }
+
+    public static int getContextCount() {
+        return ENTRIES.size();
+    }
+
+    /**
+     * Gets marshalling statistics for every type that has been marshalled at least once.
+     *
+     * @return the statistics, keyed by type
+     */
+    public static Map<Class<?>, TypeStatistics> getTypeStatistics() {
+        Map<Class<?>, TypeStatistics> statistics = new HashMap<>();
+
+        for (Map.Entry<Class<?>, TypeEntry> entry : ENTRIES.entrySet()) {
+            long count = entry.getValue().marshalCount.sum();
+
+            if (count != 0) {
+                statistics.put(entry.getKey(), new TypeStatistics(count, entry.getValue().marshalNanos.sum()));
+            }
+        }
+
+        return statistics;
+    }
+
+    private static TypeEntry getEntry(Class<?> type) {
+        TypeEntry entry = ENTRIES.get(type);
+
+        if (entry != null) {
+            CONTEXT_HITS.increment();
+            return entry;
+        }
+
+        CONTEXT_MISSES.increment();
+        return ENTRIES.computeIfAbsent(type, TypeEntry::new);
+    }
+
+    private static Marshaller createMarshaller(TypeEntry entry, Class<?> type, String schemaLocation) {
+        try {
+            Marshaller marshaller = entry.context.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+
+            if (schemaLocation != null) {
+                marshaller.setProperty(Marshaller.JAXB_SCHEMA_LOCATION, schemaLocation);
+            }
+
+            return marshaller;
+        } catch (JAXBException e) {
+            throw new RuntimeException("Failed to create marshaller for " + type.getCanonicalName(), e);
+        }
+    }
+
+    private static Set<Class<?>> findBoundClasses(String packageName) {
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        ClassLoader classLoader = JAXBContextRegistry.class.getClassLoader();
+
+        for (String className : findClassNames(classLoader, packageName)) {
+            try {
+                Class<?> type = Class.forName(className, false, classLoader);
+
+                if (isBound(type)) {
+                    classes.add(type);
+                }
+            } catch (ClassNotFoundException | LinkageError e) {
+                System.err.println("JAXBContextRegistry: cannot load " + className + " [" + e.getMessage() + "]");
+            }
+        }
+
+        // Some deployments (e.g. VFS) can't be listed; generated packages can still be discovered
+        // through their ObjectFactory.
+        if (classes.isEmpty()) {
+            try {
+                Class<?> objectFactory = Class.forName(packageName + ".ObjectFactory", false, classLoader);
+
+                for (Method method : objectFactory.getMethods()) {
+                    if (method.getName().startsWith("create") && isBound(method.getReturnType())) {
+                        classes.add(method.getReturnType());
+                    }
+                }
+            } catch (ClassNotFoundException e) {
+                // nothing else to try
+            }
+        }
+
+        return classes;
+    }
+
+    private static boolean isBound(Class<?> type) {
+        return !type.isEnum() && !type.isMemberClass() && !type.getSimpleName().equals("ObjectFactory")
+                && (type.isAnnotationPresent(XmlType.class) || type.isAnnotationPresent(XmlRootElement.class));
+    }
+
+    private static List<String> findClassNames(ClassLoader classLoader, String packageName) {
+        List<String> classNames = new ArrayList<>();
+        String path = packageName.replace('.', '/');
+
+        try {
+            Enumeration<URL> resources = classLoader.getResources(path);
+
+            while (resources.hasMoreElements()) {
+                URL url = resources.nextElement();
+
+                if ("file".equals(url.getProtocol())) {
+                    File[] files = new File(url.toURI()).listFiles((dir, name) -> name.endsWith(".class"));
+
+                    if (files != null) {
+                        for (File file : files) {
+                            classNames.add(packageName + "." + file.getName().replace(".class", ""));
+                        }
+                    }
+                } else if ("jar".equals(url.getProtocol())) {
+                    URLConnection connection = url.openConnection();
+
+                    if (connection instanceof JarURLConnection) {
+                        JarFile jarFile = ((JarURLConnection) connection).getJarFile();
+
+                        for (JarEntry jarEntry : Collections.list(jarFile.entries())) {
+                            String name = jarEntry.getName();
+
+                            if (name.startsWith(path + "/") && name.endsWith(".class")
+                                    && name.indexOf('/', path.length() + 1) == -1) {
+                                classNames.add(name.replace('/', '.').replace(".class", ""));
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IOException | URISyntaxException e) {
+            System.err.println("JAXBContextRegistry: cannot scan " + packageName + " [" + e.getMessage() + "]");
+        }
+
+        return classNames;
+    }
+
+    public static class TypeStatistics {
+        private final long marshalCount;
+
+        private final long marshalNanos;
+
+        private TypeStatistics(long marshalCount, long marshalNanos) {
+            this.marshalCount = marshalCount;
+            this.marshalNanos = marshalNanos;
+        }
+
+        public long getMarshalCount() {
+            return marshalCount;
+        }
+
+        public long getMarshalNanos() {
+            return marshalNanos;
+        }
+    }
+
+    private static class TypeEntry {
+        private final JAXBContext context;
+
+        private final ThreadLocal<Map<String, Marshaller>> marshallers = ThreadLocal.withInitial(HashMap::new);
+
+        private final ThreadLocal<Unmarshaller> unmarshaller;
+
+        private final LongAdder marshalCount = new LongAdder();
+
+        private final LongAdder marshalNanos = new LongAdder();
+
+        private TypeEntry(Class<?> type) {
+            try {
+                this.context = JAXBContext.newInstance(type);
+            } catch (JAXBException e) {
+                throw new RuntimeException("Failed to create JAXB context for " + type.getCanonicalName(), e);
+            }
+
+            this.unmarshaller = ThreadLocal.withInitial(() -> {
+                try {
+                    return context.createUnmarshaller();
+                } catch (JAXBException e) {
+                    throw new RuntimeException("Failed to create unmarshaller for " + type.getCanonicalName(), e);
+                }
+            });
+        }
+    }
+}
@@ -6,7 +6,6 @@
 
 package com.soapboxrace.jaxb.util;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.XmlRootElement;
@@ -24,10 +23,8 @@ public class MarshalXML {
 
         StringWriter stringWriter = new StringWriter();
         try {
-            JAXBContext jaxbContext = JAXBContext.newInstance(obj.getClass());
-            Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
-            jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
-            jaxbMarshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+            long start = System.nanoTime();
+            Marshaller jaxbMarshaller = JAXBContextRegistry.getMarshaller(obj.getClass());
             XmlRootElement xmlRootAnnotation = obj.getClass().getAnnotation(XmlRootElement.class);
             if (xmlRootAnnotation == null) {
                 XmlType xmlTypeAnnotation = obj.getClass().getAnnotation(XmlType.class);
@@ -37,6 +34,7 @@ public class MarshalXML {
             } else {
                 jaxbMarshaller.marshal(obj, stringWriter);
             }
+            JAXBContextRegistry.recordMarshal(obj.getClass(), System.nanoTime() - start);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -6,10 +6,8 @@
 
 package com.soapboxrace.jaxb.util;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.Unmarshaller;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamReader;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
@@ -22,9 +20,8 @@ public class UnmarshalXML {
     public static <T> T unMarshal(InputStream is, Class<T> classz) {
         try {
             InputStreamReader inputStreamReader = new InputStreamReader(is);
-            JAXBContext jaxbContext = JAXBContext.newInstance(classz);
-            Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-            XMLStreamReader xsr = XMLInputFactory.newFactory().createXMLStreamReader(inputStreamReader);
+            Unmarshaller jaxbUnmarshaller = JAXBContextRegistry.getUnmarshaller(classz);
+            XMLStreamReader xsr = JAXBContextRegistry.getXMLInputFactory().createXMLStreamReader(inputStreamReader);
             XMLReaderWithoutNamespace xr = new XMLReaderWithoutNamespace(xsr);
             JAXBElement<T> jaxbElement = jaxbUnmarshaller.unmarshal(xr, classz);
             return jaxbElement.getValue();
@@ -0,0 +1,19 @@
+<%--
+  ~ This file is part of the Soapbox Race World core source code.
+  ~ If you use any of this code for third-party purposes, please provide attribution.
+  ~ Copyright (c) 2020.
+  --%>
+
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<html>
+<head>
+    <title>Reload Catalog</title>
+</head>
+<body>
+<form action="Engine.svc/ReloadCatalog" method="post">
+    <input type="hidden" name="adminAuth"
+           value="<%=request.getParameter("adminAuth")%>"/> <br/> <input
+        type="submit" value="Reload catalog"/>
+</form>
+</body>
+</html>
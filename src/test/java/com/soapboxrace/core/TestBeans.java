@@ -0,0 +1,42 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core;
+
+import java.lang.reflect.Field;
+
+/**
+ * Helpers for tests and benchmarks that create beans directly, without a container.
+ */
+public final class TestBeans {
+
+    private TestBeans() {
+    }
+
+    /**
+     * Sets a field of a bean, the way the container would inject it.
+     *
+     * @param target the bean
+     * @param name   the field name, declared by the bean's class or one of its superclasses
+     * @param value  the value
+     */
+    public static void inject(Object target, String name, Object value) {
+        for (Class<?> c = target.getClass(); c != Object.class; c = c.getSuperclass()) {
+            try {
+                Field field = c.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // try the superclass
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        throw new IllegalArgumentException(target.getClass().getSimpleName() + " has no field " + name);
+    }
+}
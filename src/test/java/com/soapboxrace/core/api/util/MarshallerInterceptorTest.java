@@ -0,0 +1,140 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.api.util;
+
+import com.soapboxrace.jaxb.annotation.XsiSchemaLocation;
+import com.soapboxrace.jaxb.http.*;
+import com.soapboxrace.jaxb.util.JAXBContextRegistry;
+import org.junit.Test;
+
+import javax.ws.rs.core.MediaType;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.namespace.QName;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Checks that streaming a response gives the same bytes as marshalling it to a String first, which is how
+ * responses used to be written.
+ */
+public class MarshallerInterceptorTest {
+
+    private static final String SCHEMA_LOCATION = "http://schemas.datacontract.org/2004/07/Victory.DataLayer" +
+            ".Serialization";
+
+    @Test
+    public void productListWithNilEntries() throws Exception {
+        ArrayOfProductTrans arrayOfProductTrans = new ArrayOfProductTrans();
+        arrayOfProductTrans.getProductTrans().add(product("SRV-CAR1", "Nissan Skyline GT-R"));
+        arrayOfProductTrans.getProductTrans().add(null);
+        arrayOfProductTrans.getProductTrans().add(product("SRV-CAR2", "Mazda RX-7"));
+
+        assertSameBytes(arrayOfProductTrans, null);
+        assertSameBytes(arrayOfProductTrans, SCHEMA_LOCATION);
+    }
+
+    @Test
+    public void escapedAndNonAsciiText() throws Exception {
+        ArrayOfProductTrans arrayOfProductTrans = new ArrayOfProductTrans();
+        ProductTrans productTrans = product("SRV-<&>\"'", "Citroën \"2CV\" <Spécial> & Co");
+        productTrans.setLongDescription("Kōnigsegg – 速い –  tab\there\r\nline");
+        arrayOfProductTrans.getProductTrans().add(productTrans);
+
+        assertSameBytes(arrayOfProductTrans, null);
+        assertSameBytes(arrayOfProductTrans, SCHEMA_LOCATION);
+    }
+
+    @Test
+    public void personaList() throws Exception {
+        ArrayOfPersonaBase arrayOfPersonaBase = new ArrayOfPersonaBase();
+
+        for (long personaId = 100; personaId < 103; personaId++) {
+            PersonaBase personaBase = new PersonaBase();
+            personaBase.setPersonaId(personaId);
+            personaBase.setName("PERSONA" + personaId);
+            personaBase.setMotto(personaId == 101 ? null : "Ça roule ✓");
+            personaBase.setLevel(60);
+            personaBase.setScore(1234);
+            personaBase.setPresence(personaId == 102 ? null : 1L);
+            personaBase.setUserId(1L);
+
+            ArrayOfBadgePacket arrayOfBadgePacket = new ArrayOfBadgePacket();
+            BadgePacket badgePacket = new BadgePacket();
+            badgePacket.setAchievementRankId(11);
+            badgePacket.setBadgeDefinitionId(2);
+            badgePacket.setIsRare(true);
+            badgePacket.setRarity(0.25f);
+            badgePacket.setSlotId((short) 0);
+            arrayOfBadgePacket.getBadgePacket().add(badgePacket);
+            personaBase.setBadges(arrayOfBadgePacket);
+
+            arrayOfPersonaBase.getPersonaBase().add(personaBase);
+        }
+
+        assertSameBytes(arrayOfPersonaBase, null);
+        assertSameBytes(arrayOfPersonaBase, SCHEMA_LOCATION);
+    }
+
+    private static ProductTrans product(String productId, String title) {
+        ProductTrans productTrans = new ProductTrans();
+        productTrans.setProductId(productId);
+        productTrans.setProductTitle(title);
+        productTrans.setCurrency("CASH");
+        productTrans.setPrice(12500.5);
+        productTrans.setLevel(10);
+        productTrans.setHash(-1234567);
+        productTrans.setBundleItems(new ArrayOfProductTrans());
+        return productTrans;
+    }
+
+    private static void assertSameBytes(Object object, String schemaLocation) throws Exception {
+        assertArrayEquals(marshalToString(object, schemaLocation),
+                marshalToStream(object, schemaLocation));
+    }
+
+    /**
+     * The way responses were written before they were streamed.
+     */
+    @SuppressWarnings("unchecked")
+    private static byte[] marshalToString(Object object, String schemaLocation) throws Exception {
+        Marshaller jaxbMarshaller = JAXBContextRegistry.getMarshaller(object.getClass(), schemaLocation);
+        StringWriter stringWriter = new StringWriter();
+        XmlType xmlTypeAnnotation = object.getClass().getAnnotation(XmlType.class);
+        QName qname = new QName("", xmlTypeAnnotation.name());
+        JAXBElement<Object> jaxbElement = new JAXBElement<>(qname, (Class<Object>) object.getClass(), null, object);
+        jaxbMarshaller.marshal(jaxbElement, stringWriter);
+        return stringWriter.toString().getBytes();
+    }
+
+    private static byte[] marshalToStream(Object object, String schemaLocation) {
+        Annotation[] annotations = schemaLocation == null ? new Annotation[0] :
+                new Annotation[]{schemaLocation(schemaLocation)};
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new MarshallerInterceptor().writeTo(object, object.getClass(), object.getClass(), annotations,
+                MediaType.APPLICATION_XML_TYPE, null, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static XsiSchemaLocation schemaLocation(String schemaLocation) {
+        return new XsiSchemaLocation() {
+            @Override
+            public String schemaLocation() {
+                return schemaLocation;
+            }
+
+            @Override
+            public Class<? extends Annotation> annotationType() {
+                return XsiSchemaLocation.class;
+            }
+        };
+    }
+}
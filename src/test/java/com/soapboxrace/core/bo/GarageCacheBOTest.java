@@ -0,0 +1,214 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.bo;
+
+import com.soapboxrace.core.TestBeans;
+import com.soapboxrace.core.dao.CarSlotDAO;
+import com.soapboxrace.core.dao.CustomCarDAO;
+import com.soapboxrace.core.dao.OwnedCarDAO;
+import com.soapboxrace.core.jpa.*;
+import com.soapboxrace.jaxb.http.OwnedCarTrans;
+import com.soapboxrace.jaxb.util.UnmarshalXML;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the cached garage of a persona is rebuilt after its cars are changed.
+ */
+public class GarageCacheBOTest {
+
+    private static final Long PERSONA_ID = 100L;
+
+    private final List<Synchronization> synchronizations = new ArrayList<>();
+
+    private int transactionStatus = Status.STATUS_NO_TRANSACTION;
+
+    private GarageCacheBO garageCacheBO;
+
+    private CarDamageBO carDamageBO;
+
+    private PersonaBO personaBO;
+
+    private PersonaEntity personaEntity;
+
+    private OwnedCarEntity ownedCarEntity;
+
+    private int builds;
+
+    @Before
+    public void setUp() throws Exception {
+        personaEntity = new PersonaEntity();
+        personaEntity.setPersonaId(PERSONA_ID);
+        CarSlotEntity carSlotEntity = new CarSlotEntity();
+        carSlotEntity.setPersona(personaEntity);
+        ownedCarEntity = new OwnedCarEntity();
+        ownedCarEntity.setCarSlot(carSlotEntity);
+        ownedCarEntity.setDurability(100);
+        ownedCarEntity.setHeat(1);
+        carSlotEntity.setOwnedCar(ownedCarEntity);
+        CustomCarEntity customCarEntity = new CustomCarEntity();
+        customCarEntity.setOwnedCar(ownedCarEntity);
+        ownedCarEntity.setCustomCar(customCarEntity);
+
+        garageCacheBO = new GarageCacheBO();
+        TestBeans.inject(garageCacheBO, "parameterBO", new ParameterBO());
+        TestBeans.inject(garageCacheBO, "transactionSynchronizationRegistry", transactionSynchronizationRegistry());
+        garageCacheBO.init();
+
+        OwnedCarDAO ownedCarDAO = new OwnedCarDAO() {
+            @Override
+            public void update(OwnedCarEntity entity) {
+            }
+        };
+
+        carDamageBO = new CarDamageBO();
+        TestBeans.inject(carDamageBO, "ownedCarDAO", ownedCarDAO);
+        TestBeans.inject(carDamageBO, "customCarDAO", new CustomCarDAO() {
+            @Override
+            public void update(CustomCarEntity entity) {
+            }
+        });
+        TestBeans.inject(carDamageBO, "performanceBO", new PerformanceBO() {
+            @Override
+            public void calcNewCarClass(CustomCarEntity customCarEntity, boolean ignoreParts) {
+            }
+        });
+        TestBeans.inject(carDamageBO, "garageCacheBO", garageCacheBO);
+
+        personaBO = new PersonaBO();
+        TestBeans.inject(personaBO, "ownedCarDAO", ownedCarDAO);
+        TestBeans.inject(personaBO, "carSlotDAO", new CarSlotDAO() {
+            @Override
+            public List<CarSlotEntity> findByPersonaId(Long personaId) {
+                return Collections.singletonList(carSlotEntity);
+            }
+        });
+        TestBeans.inject(personaBO, "garageCacheBO", garageCacheBO);
+    }
+
+    @Test
+    public void heatChange() throws Exception {
+        assertEquals(1.0f, getCar().getHeat(), 0);
+        getCar();
+
+        carDamageBO.updateHeat(ownedCarEntity, 3);
+
+        assertEquals(3.0f, getCar().getHeat(), 0);
+        assertEquals(2, garageCacheBO.getMissCount());
+        assertEquals(2, builds);
+    }
+
+    @Test
+    public void durabilityChange() throws Exception {
+        assertEquals(100, getCar().getDurability());
+        getCar();
+
+        carDamageBO.updateDurability(ownedCarEntity, 95);
+
+        assertEquals(95, getCar().getDurability());
+        assertEquals(2, garageCacheBO.getMissCount());
+        assertEquals(2, builds);
+    }
+
+    @Test
+    public void repairAllCars() throws Exception {
+        ownedCarEntity.setDurability(40);
+        assertEquals(40, getCar().getDurability());
+        getCar();
+
+        personaBO.repairAllCars(personaEntity);
+
+        assertEquals(100, getCar().getDurability());
+        assertEquals(2, garageCacheBO.getMissCount());
+        assertEquals(2, builds);
+    }
+
+    @Test
+    public void changeInsideTransactionIsSeenAfterCommit() throws Exception {
+        getCar();
+        transactionStatus = Status.STATUS_ACTIVE;
+
+        carDamageBO.updateHeat(ownedCarEntity, 3);
+
+        // not committed yet
+        assertEquals(1.0f, getCar().getHeat(), 0);
+        assertEquals(1, builds);
+
+        transactionStatus = Status.STATUS_NO_TRANSACTION;
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(Status.STATUS_COMMITTED));
+
+        assertEquals(3.0f, getCar().getHeat(), 0);
+        assertEquals(2, builds);
+    }
+
+    /**
+     * Gets the cached {@code /personas/{id}/cars} response and reads back the car from it.
+     */
+    private OwnedCarTrans getCar() throws IOException {
+        byte[] gzipped = garageCacheBO.getGzipped(GarageCacheBO.CARS, PERSONA_ID, 0, () -> {
+            builds++;
+            OwnedCarTrans ownedCarTrans = new OwnedCarTrans();
+            ownedCarTrans.setDurability(ownedCarEntity.getDurability());
+            ownedCarTrans.setHeat(ownedCarEntity.getHeat());
+            return ownedCarTrans;
+        });
+
+        try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return UnmarshalXML.unMarshal(inputStream, OwnedCarTrans.class);
+        }
+    }
+
+    private TransactionSynchronizationRegistry transactionSynchronizationRegistry() {
+        return new TransactionSynchronizationRegistry() {
+            @Override
+            public Object getTransactionKey() {
+                return null;
+            }
+
+            @Override
+            public void putResource(Object key, Object value) {
+            }
+
+            @Override
+            public Object getResource(Object key) {
+                return null;
+            }
+
+            @Override
+            public void registerInterposedSynchronization(Synchronization sync) {
+                synchronizations.add(sync);
+            }
+
+            @Override
+            public int getTransactionStatus() {
+                return transactionStatus;
+            }
+
+            @Override
+            public void setRollbackOnly() {
+            }
+
+            @Override
+            public boolean getRollbackOnly() {
+                return false;
+            }
+        };
+    }
+}
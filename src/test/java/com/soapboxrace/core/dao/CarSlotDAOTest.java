@@ -0,0 +1,135 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.dao;
+
+import com.soapboxrace.core.bo.util.OwnedCarConverter;
+import com.soapboxrace.core.jpa.*;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Counts the SQL statements it takes to load a garage (as for {@code /personas/{id}/carslots}) on an in-memory
+ * H2 database. The number must not grow with the number of cars.
+ */
+public class CarSlotDAOTest {
+
+    /**
+     * The persona (with its user), the car slots with their owned and custom cars, and one batch per custom car
+     * collection: paints, performance parts, skill mods, vinyls and visual parts.
+     */
+    private static final long GARAGE_STATEMENTS = 7;
+
+    private H2Database database;
+
+    private EntityManager entityManager;
+
+    private CarSlotDAO carSlotDAO;
+
+    @Before
+    public void setUp() {
+        database = new H2Database(UserEntity.class, PersonaEntity.class, CarSlotEntity.class, OwnedCarEntity.class,
+                CustomCarEntity.class, PaintEntity.class, PerformancePartEntity.class, SkillModPartEntity.class,
+                VinylEntity.class, VisualPartEntity.class);
+        entityManager = database.createEntityManager();
+        carSlotDAO = new CarSlotDAO();
+        carSlotDAO.setEntityManager(entityManager);
+    }
+
+    @After
+    public void tearDown() {
+        entityManager.close();
+        database.close();
+    }
+
+    @Test
+    public void singleCar() {
+        assertEquals(GARAGE_STATEMENTS, countGarageStatements(1));
+    }
+
+    @Test
+    public void fiftyCars() {
+        assertEquals(GARAGE_STATEMENTS, countGarageStatements(50));
+    }
+
+    @Test
+    public void fullBatch() {
+        assertEquals(GARAGE_STATEMENTS, countGarageStatements(250));
+    }
+
+    private long countGarageStatements(int cars) {
+        Long personaId = createGarage(cars);
+        entityManager.clear();
+        Statistics statistics = database.getStatistics();
+        statistics.clear();
+
+        PersonaEntity personaEntity = entityManager.find(PersonaEntity.class, personaId);
+        List<CarSlotEntity> carSlots = carSlotDAO.findByPersonaId(personaEntity.getPersonaId());
+
+        for (CarSlotEntity carSlotEntity : carSlots) {
+            OwnedCarConverter.entity2Trans(carSlotEntity.getOwnedCar());
+        }
+
+        assertEquals(cars, carSlots.size());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Long createGarage(int cars) {
+        entityManager.getTransaction().begin();
+
+        UserEntity userEntity = new UserEntity();
+        userEntity.setEmail("garage@example.com");
+        entityManager.persist(userEntity);
+
+        PersonaEntity personaEntity = new PersonaEntity();
+        personaEntity.setName("GARAGE");
+        personaEntity.setUser(userEntity);
+        entityManager.persist(personaEntity);
+
+        for (int i = 0; i < cars; i++) {
+            CarSlotEntity carSlotEntity = new CarSlotEntity();
+            carSlotEntity.setPersona(personaEntity);
+            OwnedCarEntity ownedCarEntity = new OwnedCarEntity();
+            ownedCarEntity.setCarSlot(carSlotEntity);
+            ownedCarEntity.setDurability(100);
+            carSlotEntity.setOwnedCar(ownedCarEntity);
+            CustomCarEntity customCarEntity = new CustomCarEntity();
+            customCarEntity.setName("car" + i);
+            customCarEntity.setOwnedCar(ownedCarEntity);
+            ownedCarEntity.setCustomCar(customCarEntity);
+
+            PaintEntity paintEntity = new PaintEntity();
+            paintEntity.setCustomCar(customCarEntity);
+            customCarEntity.setPaints(new HashSet<>(Set.of(paintEntity)));
+            PerformancePartEntity performancePartEntity = new PerformancePartEntity();
+            performancePartEntity.setCustomCar(customCarEntity);
+            customCarEntity.setPerformanceParts(new HashSet<>(Set.of(performancePartEntity)));
+            SkillModPartEntity skillModPartEntity = new SkillModPartEntity();
+            skillModPartEntity.setCustomCar(customCarEntity);
+            customCarEntity.setSkillModParts(new HashSet<>(Set.of(skillModPartEntity)));
+            VinylEntity vinylEntity = new VinylEntity();
+            vinylEntity.setCustomCar(customCarEntity);
+            customCarEntity.setVinyls(new HashSet<>(Set.of(vinylEntity)));
+            VisualPartEntity visualPartEntity = new VisualPartEntity();
+            visualPartEntity.setCustomCar(customCarEntity);
+            customCarEntity.setVisualParts(new HashSet<>(Set.of(visualPartEntity)));
+
+            entityManager.persist(carSlotEntity);
+        }
+
+        entityManager.getTransaction().commit();
+        return personaEntity.getPersonaId();
+    }
+}
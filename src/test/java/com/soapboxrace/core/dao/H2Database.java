@@ -0,0 +1,61 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.dao;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManager;
+import java.util.UUID;
+
+/**
+ * A new in-memory H2 database with the tables of the given entities, and a Hibernate session factory on it that
+ * counts the statements it runs.
+ */
+final class H2Database implements AutoCloseable {
+
+    private final StandardServiceRegistry registry;
+
+    private final SessionFactory sessionFactory;
+
+    H2Database(Class<?>... entityClasses) {
+        registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.URL, "jdbc:h2:mem:" + UUID.randomUUID())
+                .applySetting(AvailableSettings.DIALECT, "org.hibernate.dialect.H2Dialect")
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "create")
+                .applySetting(AvailableSettings.GENERATE_STATISTICS, "true")
+                .applySetting(AvailableSettings.JPA_VALIDATION_MODE, "none")
+                // as in persistence.xml
+                .applySetting(AvailableSettings.BATCH_FETCH_STYLE, "DYNAMIC")
+                .build();
+        MetadataSources metadataSources = new MetadataSources(registry);
+
+        for (Class<?> entityClass : entityClasses) {
+            metadataSources.addAnnotatedClass(entityClass);
+        }
+
+        sessionFactory = metadataSources.buildMetadata().buildSessionFactory();
+    }
+
+    EntityManager createEntityManager() {
+        return sessionFactory.createEntityManager();
+    }
+
+    Statistics getStatistics() {
+        return sessionFactory.getStatistics();
+    }
+
+    @Override
+    public void close() {
+        sessionFactory.close();
+        StandardServiceRegistryBuilder.destroy(registry);
+    }
+}
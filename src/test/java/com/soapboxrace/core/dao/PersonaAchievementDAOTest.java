@@ -0,0 +1,155 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.dao;
+
+import com.soapboxrace.core.bo.util.PersonaAchievementSnapshot;
+import com.soapboxrace.core.jpa.*;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Counts the SQL statements it takes to load the achievements of a persona (as for
+ * {@code AchievementBO.getSnapshot}) on an in-memory H2 database. The number must not grow with the number of
+ * achievements.
+ */
+public class PersonaAchievementDAOTest {
+
+    /**
+     * The persona achievements with their achievements, the persona (with its user), and the persona ranks with
+     * their ranks.
+     */
+    private static final long SNAPSHOT_STATEMENTS = 3;
+
+    private static final int RANKS_PER_ACHIEVEMENT = 5;
+
+    private H2Database database;
+
+    private EntityManager entityManager;
+
+    private PersonaAchievementDAO personaAchievementDAO;
+
+    private PersonaAchievementRankDAO personaAchievementRankDAO;
+
+    @Before
+    public void setUp() {
+        database = new H2Database(UserEntity.class, PersonaEntity.class, BadgeDefinitionEntity.class,
+                AchievementEntity.class, AchievementRankEntity.class, PersonaAchievementEntity.class,
+                PersonaAchievementRankEntity.class);
+        entityManager = database.createEntityManager();
+        personaAchievementDAO = new PersonaAchievementDAO();
+        personaAchievementDAO.setEntityManager(entityManager);
+        personaAchievementRankDAO = new PersonaAchievementRankDAO();
+        personaAchievementRankDAO.setEntityManager(entityManager);
+    }
+
+    @After
+    public void tearDown() {
+        entityManager.close();
+        database.close();
+    }
+
+    @Test
+    public void singleAchievement() {
+        assertEquals(SNAPSHOT_STATEMENTS, countSnapshotStatements(1));
+    }
+
+    @Test
+    public void manyAchievements() {
+        assertEquals(SNAPSHOT_STATEMENTS, countSnapshotStatements(150));
+    }
+
+    private long countSnapshotStatements(int achievements) {
+        Long personaId = createAchievements(achievements);
+        entityManager.clear();
+        Statistics statistics = database.getStatistics();
+        statistics.clear();
+
+        PersonaAchievementSnapshot snapshot = new PersonaAchievementSnapshot(personaId,
+                personaAchievementDAO.findAllByPersonaId(personaId),
+                personaAchievementRankDAO.findAllByPersonaId(personaId));
+
+        for (long achievementId = 1; achievementId <= achievements; achievementId++) {
+            assertNotNull(snapshot.getAchievement(achievementId));
+
+            for (int rank = 1; rank <= RANKS_PER_ACHIEVEMENT; rank++) {
+                PersonaAchievementRankEntity personaAchievementRankEntity =
+                        snapshot.getRank(rankId(achievementId, rank));
+                assertEquals(achievementId, (long) personaAchievementRankEntity.getAchievementRankEntity()
+                        .getAchievementEntity().getId());
+                assertEquals(achievementId, (long) personaAchievementRankEntity.getPersonaAchievementEntity()
+                        .getAchievementEntity().getId());
+            }
+        }
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Long createAchievements(int achievements) {
+        entityManager.getTransaction().begin();
+
+        UserEntity userEntity = new UserEntity();
+        userEntity.setEmail("achievements@example.com");
+        entityManager.persist(userEntity);
+
+        PersonaEntity personaEntity = new PersonaEntity();
+        personaEntity.setName("ACHIEVEMENTS");
+        personaEntity.setUser(userEntity);
+        entityManager.persist(personaEntity);
+
+        for (long achievementId = 1; achievementId <= achievements; achievementId++) {
+            // definitions are inserted directly, since their entity listeners need the container
+            insert("INSERT INTO BADGE_DEFINITION (ID) VALUES (?)", achievementId);
+            insert("INSERT INTO ACHIEVEMENT (ID, badge_definition_id) VALUES (?, ?)", achievementId, achievementId);
+
+            PersonaAchievementEntity personaAchievementEntity = new PersonaAchievementEntity();
+            personaAchievementEntity.setPersonaEntity(personaEntity);
+            personaAchievementEntity.setAchievementEntity(entityManager.getReference(AchievementEntity.class,
+                    achievementId));
+            personaAchievementEntity.setCanProgress(true);
+            personaAchievementEntity.setCurrentValue(0L);
+            entityManager.persist(personaAchievementEntity);
+
+            for (int rank = 1; rank <= RANKS_PER_ACHIEVEMENT; rank++) {
+                long rankId = rankId(achievementId, rank);
+                insert("INSERT INTO ACHIEVEMENT_RANK (ID, achievement_id, \"rank\") VALUES (?, ?, ?)", rankId,
+                        achievementId, rank);
+
+                PersonaAchievementRankEntity personaAchievementRankEntity = new PersonaAchievementRankEntity();
+                personaAchievementRankEntity.setPersonaAchievementEntity(personaAchievementEntity);
+                personaAchievementRankEntity.setAchievementRankEntity(entityManager.getReference(
+                        AchievementRankEntity.class, rankId));
+                personaAchievementRankEntity.setState("Completed");
+                entityManager.persist(personaAchievementRankEntity);
+            }
+        }
+
+        entityManager.getTransaction().commit();
+        return personaEntity.getPersonaId();
+    }
+
+    private void insert(String sql, Object... parameters) {
+        Query query = entityManager.createNativeQuery(sql);
+
+        for (int i = 0; i < parameters.length; i++) {
+            query.setParameter(i + 1, parameters[i]);
+        }
+
+        query.executeUpdate();
+    }
+
+    private static long rankId(long achievementId, int rank) {
+        return achievementId * 10 + rank;
+    }
+}
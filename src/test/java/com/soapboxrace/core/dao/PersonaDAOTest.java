@@ -0,0 +1,76 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.dao;
+
+import com.soapboxrace.core.jpa.PersonaEntity;
+import com.soapboxrace.core.jpa.UserEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks on an in-memory H2 database that score changes made by the achievement worker are kept when a copy of
+ * the persona that was loaded earlier is saved.
+ */
+public class PersonaDAOTest {
+
+    private H2Database database;
+
+    private EntityManager entityManager;
+
+    private PersonaDAO personaDAO;
+
+    @Before
+    public void setUp() {
+        database = new H2Database(UserEntity.class, PersonaEntity.class);
+        entityManager = database.createEntityManager();
+        personaDAO = new PersonaDAO();
+        personaDAO.setEntityManager(entityManager);
+    }
+
+    @After
+    public void tearDown() {
+        entityManager.close();
+        database.close();
+    }
+
+    @Test
+    public void staleUpdateKeepsScore() {
+        entityManager.getTransaction().begin();
+        UserEntity userEntity = new UserEntity();
+        userEntity.setEmail("score@example.com");
+        entityManager.persist(userEntity);
+        PersonaEntity personaEntity = new PersonaEntity();
+        personaEntity.setName("SCORE");
+        personaEntity.setUser(userEntity);
+        entityManager.persist(personaEntity);
+        entityManager.getTransaction().commit();
+
+        // a request loads the persona before the achievement worker commits its score
+        entityManager.clear();
+        PersonaEntity staleEntity = personaDAO.findById(personaEntity.getPersonaId());
+        entityManager.clear();
+
+        entityManager.getTransaction().begin();
+        personaDAO.addScore(personaEntity.getPersonaId(), 25);
+        entityManager.getTransaction().commit();
+
+        entityManager.getTransaction().begin();
+        staleEntity.setLevel(2);
+        personaDAO.update(staleEntity);
+        entityManager.getTransaction().commit();
+
+        entityManager.clear();
+        PersonaEntity savedEntity = personaDAO.findById(personaEntity.getPersonaId());
+        assertEquals(25, savedEntity.getScore());
+        assertEquals(2, savedEntity.getLevel());
+    }
+}
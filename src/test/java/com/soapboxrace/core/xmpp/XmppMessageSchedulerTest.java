@@ -0,0 +1,94 @@
+/*
+ * This file is part of the Soapbox Race World core source code.
+ * If you use any of this code for third-party purposes, please provide attribution.
+ * Copyright (c) 2020.
+ */
+
+package com.soapboxrace.core.xmpp;
+
+import com.soapboxrace.core.TestBeans;
+import com.soapboxrace.core.bo.ParameterBO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class XmppMessageSchedulerTest {
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+
+    private XmppMessageScheduler scheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        OpenFireConnector openFireConnector = new OpenFireConnector() {
+            @Override
+            public int send(Collection<XmppMessage> messages) {
+                messages.forEach(message -> sent.add(message.getPersonaId() + ":" + message.getBody()));
+                return 0;
+            }
+        };
+
+        scheduler = new XmppMessageScheduler();
+        TestBeans.inject(scheduler, "openFireConnector", openFireConnector);
+        TestBeans.inject(scheduler, "parameterBO", new ParameterBO());
+        TestBeans.inject(scheduler, "managedThreadFactory", (ManagedThreadFactory) Thread::new);
+        scheduler.init();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void shortDelayDoesNotOvertakeEarlierMessage() throws Exception {
+        scheduler.schedule("EntrantAdded", 100L, 300);
+        scheduler.schedule("EntrantRemoved", 100L, 0);
+
+        awaitSent(2);
+        assertEquals(Arrays.asList("100:EntrantAdded", "100:EntrantRemoved"), sent);
+    }
+
+    @Test
+    public void otherPersonasAreNotHeldBack() throws Exception {
+        scheduler.schedule("EntrantAdded", 100L, 300);
+        scheduler.schedule("Invite", 101L, 0);
+        scheduler.schedule("EntrantRemoved", 100L, 0);
+
+        awaitSent(3);
+        assertEquals(Arrays.asList("101:Invite", "100:EntrantAdded", "100:EntrantRemoved"), sent);
+    }
+
+    @Test
+    public void messagesWithoutDelayKeepTheirOrder() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            scheduler.schedule(Integer.toString(i), 100L, i % 3);
+        }
+
+        awaitSent(100);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("100:" + i, sent.get(i));
+        }
+    }
+
+    private void awaitSent(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (sent.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertTrue("only " + sent.size() + " message(s) sent", sent.size() >= count);
+    }
+}